@@ -1,20 +1,48 @@
 package com.vidaplus.sghss_backend.controller;
 
+import com.vidaplus.sghss_backend.dto.AgendaGradeDTO;
 import com.vidaplus.sghss_backend.dto.AgendaMedicaRespostaDTO;
+import com.vidaplus.sghss_backend.dto.AgendaRecorrenteRespostaDTO;
+import com.vidaplus.sghss_backend.dto.AgendamentoSerieRespostaDTO;
+import com.vidaplus.sghss_backend.dto.AgendarSerieRequest;
+import com.vidaplus.sghss_backend.dto.BloqueioAgendaRespostaDTO;
+import com.vidaplus.sghss_backend.dto.BloquearAgendaRequest;
+import com.vidaplus.sghss_backend.dto.CriarAgendaRecorrenteRequest;
 import com.vidaplus.sghss_backend.dto.CriarConsultaRequest;
+import com.vidaplus.sghss_backend.dto.CriarExpedienteRequest;
 import com.vidaplus.sghss_backend.dto.CriarSlotRequest;
+import com.vidaplus.sghss_backend.dto.DisponibilidadeDiariaDTO;
+import com.vidaplus.sghss_backend.dto.ExpedienteDTO;
+import com.vidaplus.sghss_backend.dto.PainelAgendaDTO;
+import com.vidaplus.sghss_backend.dto.ReservaSlotDTO;
 import com.vidaplus.sghss_backend.model.Medico;
 import com.vidaplus.sghss_backend.model.Usuario;
 import com.vidaplus.sghss_backend.model.enums.PerfilUsuario;
+import com.vidaplus.sghss_backend.service.AgendaDisponibilidadeDiariaService;
+import com.vidaplus.sghss_backend.service.AgendaExpedienteService;
+import com.vidaplus.sghss_backend.service.AgendaIcsService;
 import com.vidaplus.sghss_backend.service.AgendaMedicaSlotService;
 import com.vidaplus.sghss_backend.service.AgendamentoService;
+import com.vidaplus.sghss_backend.service.BloqueioAgendaService;
+import com.vidaplus.sghss_backend.service.FaixasEscritaAgenda;
+import com.vidaplus.sghss_backend.service.IdempotenciaService;
 import com.vidaplus.sghss_backend.service.MedicoService;
+import com.vidaplus.sghss_backend.service.PainelAgendaService;
+import com.vidaplus.sghss_backend.service.ReservaSlotService;
+import com.vidaplus.sghss_backend.service.VersaoAgendaMedico;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.List;
 
 @RestController
@@ -25,6 +53,15 @@ public class AgendaMedicaSlotController {
     private final AgendaMedicaSlotService agendaSlotService;
     private final MedicoService medicoService;
     private final AgendamentoService agendamentoService;
+    private final ReservaSlotService reservaSlotService;
+    private final IdempotenciaService idempotenciaService;
+    private final FaixasEscritaAgenda faixasEscrita;
+    private final AgendaDisponibilidadeDiariaService disponibilidadeDiariaService;
+    private final BloqueioAgendaService bloqueioAgendaService;
+    private final AgendaExpedienteService expedienteService;
+    private final AgendaIcsService agendaIcsService;
+    private final VersaoAgendaMedico versaoAgenda;
+    private final PainelAgendaService painelAgendaService;
 
     @GetMapping("/medico/{medicoId}")
     public List<AgendaMedicaRespostaDTO> listarSlotsPorMedico(
@@ -44,6 +81,35 @@ public class AgendaMedicaSlotController {
         return agendaSlotService.listarSlots(medico);
     }
 
+    // Feed iCalendar para apps de calendário; sem alteração desde a última leitura (If-None-Match) devolve 304
+    @GetMapping(value = "/medico/{medicoId}/agenda.ics", produces = "text/calendar")
+    public ResponseEntity<StreamingResponseBody> feedIcs(
+            @PathVariable Long medicoId,
+            WebRequest webRequest,
+            @AuthenticationPrincipal Usuario usuarioLogado) {
+
+        // Autorização pelo próprio usuário logado, para que o 304 saia sem ir ao banco
+        if (usuarioLogado.getPerfil() == PerfilUsuario.PACIENTE) {
+            throw new AccessDeniedException("Paciente não pode acessar agenda de médico.");
+        }
+        if (usuarioLogado.getPerfil() == PerfilUsuario.MEDICO &&
+                (usuarioLogado.getMedico() == null || !usuarioLogado.getMedico().getId().equals(medicoId))) {
+            throw new AccessDeniedException("Médico só pode acessar sua própria agenda.");
+        }
+
+        String etag = "\"" + versaoAgenda.versao(medicoId) + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        Medico medico = medicoService.buscarEntidadePorId(medicoId, usuarioLogado);
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .contentType(MediaType.parseMediaType("text/calendar; charset=UTF-8"))
+                .body(agendaIcsService.feed(medico));
+    }
+
     // Pacientes tbm podem ver vagas de agenda disponiveis dos medicos
     @GetMapping("/medico/{medicoId}/disponiveis")
     public List<AgendaMedicaRespostaDTO> listarSlotsDisponiveis(
@@ -56,6 +122,58 @@ public class AgendaMedicaSlotController {
         return agendaSlotService.listarSlotsDisponiveis(medico, data);
     }
 
+    // Primeiros horários livres entre todos os médicos de uma especialidade (pacientes também podem buscar)
+    @GetMapping("/primeiros-disponiveis")
+    public List<AgendaMedicaRespostaDTO> buscarPrimeirosDisponiveis(
+            @RequestParam String especialidade,
+            @RequestParam(required = false) LocalDateTime aPartirDe,
+            @RequestParam(defaultValue = "10") int quantidade,
+            @AuthenticationPrincipal Usuario usuarioLogado) {
+
+        return agendaSlotService.buscarPrimeirosDisponiveis(
+                especialidade, aPartirDe != null ? aPartirDe : LocalDateTime.now(), quantidade);
+    }
+
+    // Grade de livres/ocupados entre duas datas (semana, mês), opcionalmente agrupada em faixas de minutos
+    @GetMapping("/medico/{medicoId}/grade")
+    public AgendaGradeDTO gradeDoPeriodo(
+            @PathVariable Long medicoId,
+            @RequestParam LocalDate de,
+            @RequestParam LocalDate ate,
+            @RequestParam(required = false) Integer granularidade,
+            @AuthenticationPrincipal Usuario usuarioLogado) {
+
+        return agendaSlotService.montarGrade(medicoId, de, ate, granularidade, usuarioLogado);
+    }
+
+    // Painel de semana/mês da recepção: consultas por dia e status e ocupação por médico (só contagens)
+    @GetMapping("/painel")
+    public PainelAgendaDTO painel(
+            @RequestParam LocalDate de,
+            @RequestParam LocalDate ate,
+            @RequestParam(required = false) Long medicoId,
+            @AuthenticationPrincipal Usuario usuarioLogado) {
+
+        return painelAgendaService.montarPainel(de, ate, medicoId, usuarioLogado);
+    }
+
+    // Calendário do paciente: só os dias com slots e quantos estão livres (lê os contadores diários)
+    @GetMapping("/medico/{medicoId}/calendario")
+    public List<DisponibilidadeDiariaDTO> calendario(
+            @PathVariable Long medicoId,
+            @RequestParam LocalDate de,
+            @RequestParam LocalDate ate,
+            @AuthenticationPrincipal Usuario usuarioLogado) {
+
+        return disponibilidadeDiariaService.listarCalendario(medicoId, de, ate);
+    }
+
+    // Recalcula os contadores diários a partir dos slots (também roda todo dia de madrugada)
+    @PostMapping("/disponibilidade-diaria/reconstruir")
+    public void reconstruirDisponibilidadeDiaria(@AuthenticationPrincipal Usuario usuarioLogado) {
+        disponibilidadeDiariaService.reconstruirManual(usuarioLogado);
+    }
+
     // Recebe id do medico da uri e data e hora do body
     @PostMapping("/medico/{medicoId}/novo")
     public AgendaMedicaRespostaDTO criarSlot(
@@ -70,20 +188,148 @@ public class AgendaMedicaSlotController {
             throw new AccessDeniedException("Médico só pode criar slots para si mesmo.");
         }
 
-        return agendaSlotService.criarSlot(medico, request.getData(), request.getHora(), usuarioLogado);
+        return faixasEscrita.executar(medicoId,
+                () -> agendaSlotService.criarSlot(medico, request.getData(), request.getHora(), usuarioLogado));
+    }
+
+    // Gera vários slots de uma vez a partir de um modelo semanal (dias, faixa de horário, intervalo e semanas)
+    @PostMapping("/medico/{medicoId}/recorrente")
+    public AgendaRecorrenteRespostaDTO criarAgendaRecorrente(
+            @PathVariable Long medicoId,
+            @RequestBody CriarAgendaRecorrenteRequest request,
+            @AuthenticationPrincipal Usuario usuarioLogado) {
+
+        Medico medico = medicoService.buscarEntidadePorId(medicoId, usuarioLogado);
+
+        if (usuarioLogado.getPerfil() == PerfilUsuario.MEDICO &&
+                !medico.getUsuario().getId().equals(usuarioLogado.getId())) {
+            throw new AccessDeniedException("Médico só pode criar slots para si mesmo.");
+        }
+        if (usuarioLogado.getPerfil() == PerfilUsuario.PACIENTE) {
+            throw new AccessDeniedException("Paciente não pode criar slots na agenda.");
+        }
+
+        return faixasEscrita.executar(medicoId,
+                () -> agendaSlotService.criarAgendaRecorrente(medico, request, usuarioLogado));
+    }
+
+    // Expediente: a faixa semanal substitui a geração de um slot por horário (os livres são calculados na leitura)
+    @PostMapping("/medico/{medicoId}/expediente")
+    public List<ExpedienteDTO> criarExpediente(
+            @PathVariable Long medicoId,
+            @RequestBody CriarExpedienteRequest request,
+            @AuthenticationPrincipal Usuario usuarioLogado) {
+
+        Medico medico = medicoService.buscarEntidadePorId(medicoId, usuarioLogado);
+
+        if (usuarioLogado.getPerfil() == PerfilUsuario.MEDICO &&
+                !medico.getUsuario().getId().equals(usuarioLogado.getId())) {
+            throw new AccessDeniedException("Médico só pode criar expediente para si mesmo.");
+        }
+        if (usuarioLogado.getPerfil() == PerfilUsuario.PACIENTE) {
+            throw new AccessDeniedException("Paciente não pode alterar expedientes.");
+        }
+
+        return faixasEscrita.executar(medicoId,
+                () -> expedienteService.criarExpediente(medico, request, usuarioLogado));
+    }
+
+    @GetMapping("/medico/{medicoId}/expediente")
+    public List<ExpedienteDTO> listarExpedientes(
+            @PathVariable Long medicoId,
+            @AuthenticationPrincipal Usuario usuarioLogado) {
+
+        Medico medico = medicoService.buscarEntidadePorId(medicoId, usuarioLogado);
+
+        return expedienteService.listarExpedientes(medico.getId());
+    }
+
+    @DeleteMapping("/expediente/{expedienteId}")
+    public void removerExpediente(
+            @PathVariable Long expedienteId,
+            @AuthenticationPrincipal Usuario usuarioLogado) {
+
+        expedienteService.removerExpediente(expedienteId, usuarioLogado);
+    }
+
+    // Agenda um horário do expediente que ainda não tem slot gravado (id nulo em /disponiveis e na grade)
+    @PostMapping("/medico/{medicoId}/expediente/agendar")
+    public AgendaMedicaRespostaDTO agendarHorarioDoExpediente(
+            @PathVariable Long medicoId,
+            @RequestParam LocalDate data,
+            @RequestParam LocalTime hora,
+            @RequestBody CriarConsultaRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @AuthenticationPrincipal Usuario usuarioLogado) {
+
+        return idempotenciaService.executar(idempotencyKey, usuarioLogado, "AGENDAR_EXPEDIENTE",
+                List.of(medicoId, data, hora, request),
+                () -> faixasEscrita.executar(medicoId,
+                        () -> agendamentoService.agendarHorario(medicoId, data, hora, request, usuarioLogado)));
+    }
+
+    // Fecha todos os slots livres de um período (férias, licença); consultas no período são devolvidas e os pacientes avisados
+    @PostMapping("/medico/{medicoId}/bloqueio")
+    public BloqueioAgendaRespostaDTO bloquearPeriodo(
+            @PathVariable Long medicoId,
+            @RequestBody BloquearAgendaRequest request,
+            @AuthenticationPrincipal Usuario usuarioLogado) {
+
+        Medico medico = medicoService.buscarEntidadePorId(medicoId, usuarioLogado);
+
+        return faixasEscrita.executar(medicoId,
+                () -> bloqueioAgendaService.bloquearPeriodo(medico, request, usuarioLogado));
+    }
+
+    // Segura o slot por alguns minutos enquanto o agendamento é concluído (confirmar em /agendar)
+    @PostMapping("/{slotId}/reserva")
+    public ReservaSlotDTO reservarSlot(
+            @PathVariable Long slotId,
+            @AuthenticationPrincipal Usuario usuarioLogado) {
+
+        return faixasEscrita.executarPorSlot(slotId, () -> reservaSlotService.reservar(slotId, usuarioLogado));
+    }
+
+    @DeleteMapping("/{slotId}/reserva")
+    public void liberarReserva(
+            @PathVariable Long slotId,
+            @AuthenticationPrincipal Usuario usuarioLogado) {
+
+        faixasEscrita.executarPorSlot(slotId, () -> {
+            reservaSlotService.liberar(slotId, usuarioLogado);
+            return null;
+        });
     }
 
     // Usa um facade service para vincular um slot existente a criacao de uma consulta
+    // (reenvios com o mesmo Idempotency-Key devolvem a resposta original em vez de um 409)
     @PostMapping("/{slotId}/agendar")
     public AgendaMedicaRespostaDTO vincularConsulta(
             @PathVariable Long slotId,
             @RequestBody CriarConsultaRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @AuthenticationPrincipal Usuario usuarioLogado) {
 
-        // Apenas delega para a fachada de agendamento
-        return agendamentoService.vincularConsulta(slotId, request, usuarioLogado);
+        // Apenas delega para a fachada de agendamento (a impressão do request é tirada antes de a fachada completá-lo)
+        return idempotenciaService.executar(idempotencyKey, usuarioLogado, "AGENDAR_SLOT", List.of(slotId, request),
+                () -> faixasEscrita.executarPorSlot(slotId,
+                        () -> agendamentoService.vincularConsulta(slotId, request, usuarioLogado)));
     }
 
+    // Série de sessões (lista de slots ou regra semanal) agendada de uma vez, tudo ou nada
+    @PostMapping("/serie")
+    public AgendamentoSerieRespostaDTO agendarSerie(
+            @RequestBody AgendarSerieRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @AuthenticationPrincipal Usuario usuarioLogado) {
+
+        return idempotenciaService.executar(idempotencyKey, usuarioLogado, "AGENDAR_SERIE", request,
+                () -> request.getSlotIds() != null && !request.getSlotIds().isEmpty()
+                        ? faixasEscrita.executarPorSlot(request.getSlotIds().get(0),
+                                () -> agendamentoService.agendarSerie(request, usuarioLogado))
+                        : faixasEscrita.executar(request.getMedicoId(),
+                                () -> agendamentoService.agendarSerie(request, usuarioLogado)));
+    }
 
     @PatchMapping("/{slotId}/disponivel")
     public AgendaMedicaRespostaDTO setDisponivel(
@@ -99,7 +345,8 @@ public class AgendaMedicaSlotController {
             throw new AccessDeniedException("Médico só pode alterar seus próprios slots.");
         }
 
-        return agendaSlotService.setDisponivel(slotId, disponivel, usuarioLogado);
+        return faixasEscrita.executar(medico.getId(),
+                () -> agendaSlotService.setDisponivel(slotId, disponivel, usuarioLogado));
     }
 
     // Todos que souberem o id de um slot, podem buscá-lo
@@ -1,6 +1,7 @@
 package com.vidaplus.sghss_backend.controller;
 
 import com.vidaplus.sghss_backend.dto.AtualizarConsultaRequest;
+import com.vidaplus.sghss_backend.dto.ConflitoConsultaDTO;
 import com.vidaplus.sghss_backend.dto.ConsultaDTO;
 import com.vidaplus.sghss_backend.dto.CriarConsultaRequest;
 import com.vidaplus.sghss_backend.model.Consulta;
@@ -8,6 +9,8 @@ import com.vidaplus.sghss_backend.model.Usuario;
 import com.vidaplus.sghss_backend.repository.MedicoRepository;
 import com.vidaplus.sghss_backend.repository.PacienteRepository;
 import com.vidaplus.sghss_backend.service.ConsultaService;
+import com.vidaplus.sghss_backend.service.FaixasEscritaAgenda;
+import com.vidaplus.sghss_backend.service.IdempotenciaService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -15,6 +18,8 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
 
 @RestController
@@ -25,6 +30,8 @@ public class ConsultaController {
     private final ConsultaService consultaService;
     private final PacienteRepository pacienteRepository;
     private final MedicoRepository medicoRepository;
+    private final IdempotenciaService idempotenciaService;
+    private final FaixasEscritaAgenda faixasEscrita;
 
     // Listar consultas
     @GetMapping
@@ -39,14 +46,18 @@ public class ConsultaController {
         return ResponseEntity.ok(consultaService.buscarPorId(id, usuarioLogado));
     }
 
-    // Criar nova consulta
+    // Criar nova consulta (reenvios com o mesmo Idempotency-Key devolvem a consulta já criada)
     @PostMapping
     @PreAuthorize("hasAnyRole('ADMIN','MEDICO')")
     public ResponseEntity<Consulta> criarConsulta(
             @RequestBody CriarConsultaRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @AuthenticationPrincipal Usuario usuarioLogado) {
 
-        Consulta consulta = consultaService.criarConsulta(request, usuarioLogado);
+        Consulta consulta = idempotenciaService.executar(idempotencyKey, usuarioLogado, "CRIAR_CONSULTA", request,
+                () -> request.getMedicoId() != null
+                        ? faixasEscrita.executar(request.getMedicoId(), () -> consultaService.criarConsulta(request, usuarioLogado))
+                        : consultaService.criarConsulta(request, usuarioLogado));
         return ResponseEntity.ok(consulta);
     }
 
@@ -90,6 +101,42 @@ public class ConsultaController {
         return ResponseEntity.ok(total);
     }
 
+    // Verifica se o paciente já tem consulta sobreposta ao horário (a mesma regra aplicada no agendamento)
+    @GetMapping("/conflitos")
+    public ResponseEntity<ConflitoConsultaDTO> verificarConflitos(
+            @RequestParam Long pacienteId,
+            @RequestParam LocalDate data,
+            @RequestParam LocalTime hora,
+            @RequestParam(required = false) Long ignorarConsultaId,
+            @AuthenticationPrincipal Usuario usuarioLogado) {
+
+        return ResponseEntity.ok(consultaService.verificarConflitos(pacienteId, data, hora, ignorarConsultaId, usuarioLogado));
+    }
+
+    // Remarcar para outro slot: ocupa o novo e libera o antigo na mesma transação (409 se o novo não estiver livre)
+    @PostMapping("/{id}/remarcar")
+    @PreAuthorize("hasAnyRole('ADMIN','MEDICO')")
+    public ResponseEntity<Consulta> remarcarConsulta(
+            @PathVariable Long id,
+            @RequestParam Long novoSlotId,
+            @AuthenticationPrincipal Usuario usuarioLogado) {
+
+        Consulta consulta = faixasEscrita.executarPorConsulta(id,
+                () -> consultaService.remarcarConsulta(id, novoSlotId, usuarioLogado));
+        return ResponseEntity.ok(consulta);
+    }
+
+    // Cancelar consulta (ADMIN, ou o médico/paciente da consulta): o slot volta a ficar disponível
+    @PostMapping("/{id}/cancelar")
+    public ResponseEntity<Void> cancelarConsulta(@PathVariable Long id,
+                                                 @AuthenticationPrincipal Usuario usuarioLogado) {
+        faixasEscrita.executarPorConsulta(id, () -> {
+            consultaService.cancelarConsulta(id, usuarioLogado);
+            return null;
+        });
+        return ResponseEntity.noContent().build();
+    }
+
     // Deletar consulta (apenas ADMIN)
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
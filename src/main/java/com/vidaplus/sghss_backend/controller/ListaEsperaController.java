@@ -0,0 +1,53 @@
+package com.vidaplus.sghss_backend.controller;
+
+import com.vidaplus.sghss_backend.dto.ConsultaDTO;
+import com.vidaplus.sghss_backend.dto.InscreverListaEsperaRequest;
+import com.vidaplus.sghss_backend.dto.ListaEsperaDTO;
+import com.vidaplus.sghss_backend.model.Usuario;
+import com.vidaplus.sghss_backend.service.ListaEsperaService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/lista-espera")
+@RequiredArgsConstructor
+public class ListaEsperaController {
+
+    private final ListaEsperaService listaEsperaService;
+
+    // Paciente se inscreve (ADMIN pode inscrever qualquer paciente e definir prioridade)
+    @PostMapping
+    public ResponseEntity<ListaEsperaDTO> inscrever(
+            @RequestBody InscreverListaEsperaRequest request,
+            @AuthenticationPrincipal Usuario usuarioLogado) {
+
+        return ResponseEntity.ok(listaEsperaService.inscrever(request, usuarioLogado));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<ListaEsperaDTO>> listar(@AuthenticationPrincipal Usuario usuarioLogado) {
+        return ResponseEntity.ok(listaEsperaService.listar(usuarioLogado));
+    }
+
+    // Confirma a vaga ofertada enquanto a reserva estiver valendo
+    @PostMapping("/{id}/aceitar")
+    public ResponseEntity<ConsultaDTO> aceitarOferta(
+            @PathVariable Long id,
+            @AuthenticationPrincipal Usuario usuarioLogado) {
+
+        return ResponseEntity.ok(listaEsperaService.aceitarOferta(id, usuarioLogado));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> cancelar(
+            @PathVariable Long id,
+            @AuthenticationPrincipal Usuario usuarioLogado) {
+
+        listaEsperaService.cancelar(id, usuarioLogado);
+        return ResponseEntity.noContent().build();
+    }
+}
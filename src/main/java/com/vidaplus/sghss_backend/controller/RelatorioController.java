@@ -1,19 +1,27 @@
 package com.vidaplus.sghss_backend.controller;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vidaplus.sghss_backend.dto.AdminRespostaDTO;
-import com.vidaplus.sghss_backend.dto.RelatorioCompletoDTO;
+import com.vidaplus.sghss_backend.dto.MapaCalorAgendaDTO;
+import com.vidaplus.sghss_backend.dto.RelatorioJobDTO;
+import com.vidaplus.sghss_backend.dto.RelatorioResumoDTO;
 import com.vidaplus.sghss_backend.model.Relatorio;
 import com.vidaplus.sghss_backend.model.Usuario;
+import com.vidaplus.sghss_backend.model.enums.FormatoRelatorio;
+import com.vidaplus.sghss_backend.service.ConsolidacaoRelatorioService;
+import com.vidaplus.sghss_backend.service.MapaCalorAgendaService;
+import com.vidaplus.sghss_backend.service.RelatorioJobService;
 import com.vidaplus.sghss_backend.service.RelatorioService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -23,28 +31,42 @@ import java.util.List;
 public class RelatorioController {
 
     private final RelatorioService relatorioService;
-    private final ObjectMapper objectMapper; // injeta direto aqui
+    private final MapaCalorAgendaService mapaCalorAgendaService;
+    private final RelatorioJobService relatorioJobService;
+    private final ConsolidacaoRelatorioService consolidacaoRelatorioService;
 
-   //Traz um relatorio atual completo em json
+   //Traz um relatorio atual completo em json (escrito na resposta enquanto é gerado e gravado; sem vaga retorna 429)
    @PostMapping("/completo")
-   public ResponseEntity<RelatorioCompletoDTO> gerarRelatorioCompleto(@AuthenticationPrincipal Usuario usuarioLogado) {
-       Relatorio relatorio = relatorioService.gerarRelatorioCompleto(usuarioLogado);
-
-       // Desserializa o JSON armazenado no DB para enviar ao front-end
-       RelatorioCompletoDTO relatorioDTO;
-       try {
-           relatorioDTO = objectMapper.readValue(relatorio.getConteudoJson(), RelatorioCompletoDTO.class);
-       } catch (Exception e) {
-           throw new RuntimeException("Erro ao ler JSON do relatório", e);
-       }
-
-       return ResponseEntity.ok(relatorioDTO);
+   public ResponseEntity<StreamingResponseBody> gerarRelatorioCompleto(@AuthenticationPrincipal Usuario usuarioLogado) {
+       return ResponseEntity.ok()
+               .contentType(MediaType.APPLICATION_JSON)
+               .body(relatorioJobService.limitarSincrono(() -> relatorioService.gerarRelatorioCompleto(usuarioLogado)));
    }
 
-    //Lista todos em json
+    // Só o que mudou desde a marca d'água do relatório base (padrão: o mais recente com marca)
+    @PostMapping("/delta")
+    public ResponseEntity<StreamingResponseBody> gerarRelatorioDelta(@RequestParam(required = false) Long baseId,
+                                                                     @AuthenticationPrincipal Usuario usuarioLogado) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(relatorioJobService.limitarSincrono(() -> relatorioService.gerarRelatorioDelta(baseId, usuarioLogado)));
+    }
+
+    // Relatório completo da base + deltas da cadeia, cada registro na versão mais recente
+    @GetMapping("/{id}/consolidado")
+    public ResponseEntity<StreamingResponseBody> consolidarRelatorio(@PathVariable Long id,
+                                                                     @AuthenticationPrincipal Usuario usuarioLogado) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(consolidacaoRelatorioService.consolidar(id, usuarioLogado));
+    }
+
+    //Lista os relatórios (só metadados, paginado, mais recentes primeiro)
     @GetMapping
-    public ResponseEntity<List<Relatorio>> listarRelatorios(@AuthenticationPrincipal Usuario usuarioLogado) {
-        List<Relatorio> relatorios = relatorioService.listarRelatorios(usuarioLogado);
+    public ResponseEntity<List<RelatorioResumoDTO>> listarRelatorios(@RequestParam(defaultValue = "0") int pagina,
+                                                                     @RequestParam(defaultValue = "20") int tamanho,
+                                                                     @AuthenticationPrincipal Usuario usuarioLogado) {
+        List<RelatorioResumoDTO> relatorios = relatorioService.listarRelatorios(pagina, tamanho, usuarioLogado);
         return ResponseEntity.ok(relatorios);
     }
 
@@ -56,10 +78,31 @@ public class RelatorioController {
         return ResponseEntity.ok(relatorio);
     }
 
-    //Esse gera o pdf atual geral e já baixa
+    // Conteúdo gravado do relatório; clientes que aceitam gzip recebem o arquivo comprimido como está
+    @GetMapping("/{id}/conteudo")
+    public ResponseEntity<StreamingResponseBody> baixarConteudo(@PathVariable Long id,
+                                                                @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                                @AuthenticationPrincipal Usuario usuarioLogado) {
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        StreamingResponseBody conteudo = relatorioService.baixarConteudo(id, gzip, usuarioLogado);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=relatorio_" + id + ".json");
+        headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(conteudo);
+    }
+
+    //Esse gera o pdf atual geral e já baixa (divide as vagas de geração síncrona com /completo; sem vaga retorna 429)
     @GetMapping("/completo/pdf")
-    public ResponseEntity<byte[]> baixarPdfRelatorioCompleto() {
-        byte[] pdf = relatorioService.gerarPdfRelatorioCompleto();
+    public ResponseEntity<StreamingResponseBody> baixarPdfRelatorioCompleto() {
+        StreamingResponseBody pdf = relatorioJobService.limitarSincrono(relatorioService::gerarPdfRelatorioCompleto);
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_PDF);
@@ -70,6 +113,53 @@ public class RelatorioController {
                 .body(pdf);
     }
 
+    // Gera o relatório em segundo plano (executor limitado); a resposta traz o id do job para acompanhar
+    @PostMapping("/jobs")
+    public ResponseEntity<RelatorioJobDTO> enfileirarRelatorio(@RequestParam FormatoRelatorio formato,
+                                                               @AuthenticationPrincipal Usuario usuarioLogado) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(relatorioJobService.enfileirar(formato, usuarioLogado));
+    }
+
+    @GetMapping("/jobs")
+    public ResponseEntity<List<RelatorioJobDTO>> listarJobs(@AuthenticationPrincipal Usuario usuarioLogado) {
+        return ResponseEntity.ok(relatorioJobService.listar(usuarioLogado));
+    }
+
+    // Status e progresso
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<RelatorioJobDTO> consultarJob(@PathVariable String jobId,
+                                                        @AuthenticationPrincipal Usuario usuarioLogado) {
+        return ResponseEntity.ok(relatorioJobService.consultar(jobId, usuarioLogado));
+    }
+
+    @DeleteMapping("/jobs/{jobId}")
+    public ResponseEntity<RelatorioJobDTO> cancelarJob(@PathVariable String jobId,
+                                                       @AuthenticationPrincipal Usuario usuarioLogado) {
+        return ResponseEntity.ok(relatorioJobService.cancelar(jobId, usuarioLogado));
+    }
+
+    @GetMapping("/jobs/{jobId}/download")
+    public ResponseEntity<StreamingResponseBody> baixarJob(@PathVariable String jobId,
+                                                           @AuthenticationPrincipal Usuario usuarioLogado) {
+        RelatorioJobService.Download download = relatorioJobService.baixar(jobId, usuarioLogado);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(download.tipo());
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + download.nomeArquivo());
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(download.corpo());
+    }
+
+    // Carga dos médicos por dia da semana e hora (vetores de 168 posições, ver MapaCalorAgendaDTO)
+    @GetMapping("/mapa-calor")
+    public MapaCalorAgendaDTO mapaCalorAgenda(
+            @RequestParam LocalDate de,
+            @RequestParam LocalDate ate) {
+        return mapaCalorAgendaService.gerar(de, ate);
+    }
+
     @GetMapping("/consultas")
     public Relatorio relatorioConsultas(@AuthenticationPrincipal Usuario usuarioLogado) {
         return relatorioService.gerarRelatorioConsultas(usuarioLogado);
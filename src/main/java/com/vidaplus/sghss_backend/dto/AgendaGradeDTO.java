@@ -0,0 +1,30 @@
+package com.vidaplus.sghss_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+// Grade compacta de horários livres/ocupados de um médico em um período (visões de semana e mês)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AgendaGradeDTO {
+    private Long medicoId;
+    private LocalDate de;
+    private LocalDate ate;
+    private Integer granularidadeMinutos; // null = uma célula por slot
+
+    private List<Dia> dias;
+
+    public record Dia(LocalDate data, int livres, int ocupados, List<Celula> celulas) {}
+
+    // Sem granularidade cada célula é um slot (slotId preenchido, nulo para horário de expediente ainda sem linha);
+    // com granularidade, a soma da faixa
+    public record Celula(LocalTime hora, Long slotId, int livres, int ocupados) {}
+}
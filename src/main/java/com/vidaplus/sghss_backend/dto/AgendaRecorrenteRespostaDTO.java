@@ -0,0 +1,20 @@
+package com.vidaplus.sghss_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AgendaRecorrenteRespostaDTO {
+    private Long medicoId;
+    private LocalDate dataInicio;
+    private LocalDate dataFim;
+    private int slotsCriados;
+    private int slotsIgnorados; // horários que já existiam na agenda
+}
@@ -0,0 +1,22 @@
+package com.vidaplus.sghss_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AgendamentoSerieRespostaDTO {
+    private Long pacienteId;
+    private Long medicoId;
+    private List<Sessao> sessoes;
+
+    public record Sessao(Long consultaId, Long slotId, LocalDate data, LocalTime hora) {}
+}
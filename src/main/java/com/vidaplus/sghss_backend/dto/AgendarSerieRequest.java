@@ -0,0 +1,23 @@
+package com.vidaplus.sghss_backend.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+// Série de sessões: informe os slots ou a regra (médico, primeira data, hora, quantidade e intervalo)
+@Data
+public class AgendarSerieRequest {
+    private Long pacienteId;
+    private BigDecimal valor; // valor de cada sessão
+
+    private List<Long> slotIds;
+
+    private Long medicoId;
+    private LocalDate dataInicio;
+    private LocalTime hora;
+    private Integer sessoes;
+    private Integer intervaloDias; // padrão 7 (semanal)
+}
@@ -0,0 +1,16 @@
+package com.vidaplus.sghss_backend.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// Bloqueio de um período da agenda (férias, licença). Sem horários, bloqueia os dias inteiros.
+@Data
+public class BloquearAgendaRequest {
+    private LocalDate de;
+    private LocalDate ate;
+    private LocalTime horaInicio; // opcional: faixa do dia, início incluído
+    private LocalTime horaFim;    // opcional: fim excluído
+    private String motivo;
+}
@@ -0,0 +1,25 @@
+package com.vidaplus.sghss_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BloqueioAgendaRespostaDTO {
+    private Long medicoId;
+    private LocalDate de;
+    private LocalDate ate;
+    private int slotsBloqueados;
+    private List<ConsultaAfetada> consultasAfetadas; // continuam agendadas; pacientes foram notificados
+
+    public record ConsultaAfetada(Long consultaId, Long slotId, Long pacienteId, String pacienteNome,
+                                  LocalDate data, LocalTime hora) {}
+}
@@ -0,0 +1,27 @@
+package com.vidaplus.sghss_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+// Resultado da verificação de sobreposição de um horário com as consultas agendadas do paciente
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ConflitoConsultaDTO {
+    private Long pacienteId;
+    private LocalDate data;
+    private LocalTime hora;
+    private int duracaoMinutos;
+    private boolean verificado; // false para datas anteriores à carga do índice (passado)
+
+    private List<Conflito> conflitos;
+
+    public record Conflito(Long consultaId, LocalDate data, LocalTime hora) {}
+}
@@ -0,0 +1,19 @@
+package com.vidaplus.sghss_backend.dto;
+
+import lombok.Data;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Set;
+
+// Modelo semanal de agenda, ex.: MONDAY a FRIDAY, 08:00 às 12:00, a cada 20 minutos, por 12 semanas
+@Data
+public class CriarAgendaRecorrenteRequest {
+    private LocalDate dataInicio;
+    private Integer semanas;
+    private Set<DayOfWeek> diasSemana;
+    private LocalTime horaInicio;
+    private LocalTime horaFim;          // exclusiva: o último slot começa antes dela
+    private Integer intervaloMinutos;
+}
@@ -0,0 +1,19 @@
+package com.vidaplus.sghss_backend.dto;
+
+import lombok.Data;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Set;
+
+// Ex.: MONDAY a FRIDAY, 08:00 às 12:00, slots de 20 minutos, a partir de 01/03 (sem data de término)
+@Data
+public class CriarExpedienteRequest {
+    private Set<DayOfWeek> diasSemana;
+    private LocalTime horaInicio;
+    private LocalTime horaFim;          // exclusiva: o último slot começa antes dela
+    private Integer duracaoMinutos;
+    private LocalDate vigenteDe;
+    private LocalDate vigenteAte;       // opcional
+}
@@ -0,0 +1,14 @@
+package com.vidaplus.sghss_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+public class DisponibilidadeDiariaDTO {
+    private LocalDate data;
+    private int livres;
+    private int total;
+}
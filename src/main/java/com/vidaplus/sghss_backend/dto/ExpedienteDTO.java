@@ -0,0 +1,39 @@
+package com.vidaplus.sghss_backend.dto;
+
+import com.vidaplus.sghss_backend.model.AgendaExpediente;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ExpedienteDTO {
+    private Long id;
+    private Long medicoId;
+    private DayOfWeek diaSemana;
+    private LocalTime horaInicio;
+    private LocalTime horaFim;
+    private int duracaoMinutos;
+    private LocalDate vigenteDe;
+    private LocalDate vigenteAte;
+
+    public static ExpedienteDTO from(AgendaExpediente expediente) {
+        return ExpedienteDTO.builder()
+                .id(expediente.getId())
+                .medicoId(expediente.getMedico().getId())
+                .diaSemana(expediente.getDiaSemana())
+                .horaInicio(expediente.getHoraInicio())
+                .horaFim(expediente.getHoraFim())
+                .duracaoMinutos(expediente.getDuracaoMinutos())
+                .vigenteDe(expediente.getVigenteDe())
+                .vigenteAte(expediente.getVigenteAte())
+                .build();
+    }
+}
@@ -0,0 +1,15 @@
+package com.vidaplus.sghss_backend.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+public class InscreverListaEsperaRequest {
+    private Long pacienteId;       // só ADMIN informa; paciente se inscreve a si mesmo
+    private Long medicoId;         // médico específico...
+    private String especialidade;  // ...ou qualquer médico da especialidade
+    private LocalDate dataInicio;
+    private LocalDate dataFim;
+    private Integer prioridade;    // só ADMIN define (padrão 0)
+}
@@ -0,0 +1,44 @@
+package com.vidaplus.sghss_backend.dto;
+
+import com.vidaplus.sghss_backend.model.ListaEspera;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ListaEsperaDTO {
+    private Long id;
+    private Long pacienteId;
+    private Long medicoId;
+    private String especialidade;
+    private LocalDate dataInicio;
+    private LocalDate dataFim;
+    private int prioridade;
+    private String status;
+    private LocalDateTime criadoEm;
+    private Long slotOfertadoId;
+    private LocalDateTime ofertaExpiraEm;
+
+    public static ListaEsperaDTO from(ListaEspera inscricao) {
+        return ListaEsperaDTO.builder()
+                .id(inscricao.getId())
+                .pacienteId(inscricao.getPaciente().getId())
+                .medicoId(inscricao.getMedico() != null ? inscricao.getMedico().getId() : null)
+                .especialidade(inscricao.getEspecialidade())
+                .dataInicio(inscricao.getDataInicio())
+                .dataFim(inscricao.getDataFim())
+                .prioridade(inscricao.getPrioridade())
+                .status(inscricao.getStatus().name())
+                .criadoEm(inscricao.getCriadoEm())
+                .slotOfertadoId(inscricao.getSlotOfertadoId())
+                .ofertaExpiraEm(inscricao.getOfertaExpiraEm())
+                .build();
+    }
+}
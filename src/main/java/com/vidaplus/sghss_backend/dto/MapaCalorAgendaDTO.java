@@ -0,0 +1,30 @@
+package com.vidaplus.sghss_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Mapa de calor médico × dia da semana × hora. Cada vetor tem 168 posições:
+ * índice = diaSemana * 24 + hora, com diaSemana 0 = segunda ... 6 = domingo.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MapaCalorAgendaDTO {
+    private LocalDate de;
+    private LocalDate ate;
+    private LocalDateTime geradoEm; // resultados são reaproveitados por alguns minutos para a mesma janela
+
+    private List<Medico> medicos;
+
+    // slotsOcupados inclui bloqueados; consultas não conta as canceladas
+    public record Medico(Long medicoId, String medicoNome, int[] slotsTotal, int[] slotsOcupados,
+                         int[] consultas, int[] consultasCanceladas) {}
+}
@@ -0,0 +1,31 @@
+package com.vidaplus.sghss_backend.dto;
+
+import com.vidaplus.sghss_backend.model.enums.StatusConsulta;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+// Visão de semana/mês para painéis da recepção: só contagens, sem entidades
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PainelAgendaDTO {
+    private LocalDate de;
+    private LocalDate ate;
+    private Long medicoId; // nulo = todos os médicos
+
+    private List<Dia> dias;
+    private List<OcupacaoMedico> medicos;
+
+    // Dias sem consultas nem slots não aparecem
+    public record Dia(LocalDate data, Map<StatusConsulta, Long> consultas, long slotsTotal, long slotsLivres) {}
+
+    // ocupacao = (total - livres) / total; slots bloqueados contam como ocupados
+    public record OcupacaoMedico(Long medicoId, String medicoNome, long slotsTotal, long slotsLivres, double ocupacao) {}
+}
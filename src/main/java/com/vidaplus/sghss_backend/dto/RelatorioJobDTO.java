@@ -0,0 +1,30 @@
+package com.vidaplus.sghss_backend.dto;
+
+import com.vidaplus.sghss_backend.model.enums.FormatoRelatorio;
+import com.vidaplus.sghss_backend.model.enums.StatusRelatorioJob;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RelatorioJobDTO {
+    private String id;
+    private FormatoRelatorio formato;
+    private StatusRelatorioJob status;
+    private int etapasConcluidas;
+    private int totalEtapas;
+    private int percentual;
+    private long linhasProcessadas;
+    private Long solicitadoPorId;
+    private LocalDateTime solicitadoEm;
+    private LocalDateTime iniciadoEm;
+    private LocalDateTime finalizadoEm;
+    private Long relatorioId;   // formato JSON: relatório gravado
+    private String erro;
+}
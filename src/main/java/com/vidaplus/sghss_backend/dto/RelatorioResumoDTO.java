@@ -0,0 +1,21 @@
+package com.vidaplus.sghss_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Item da listagem de relatórios: só metadados, sem o conteúdo
+@Data
+@AllArgsConstructor
+public class RelatorioResumoDTO {
+    private Long id;
+    private String nome;
+    private LocalDateTime dataGeracao;
+    private String geradoPorEmail;
+    private Long tamanhoBytes;
+    private Long tamanhoComprimido;
+    private Long totalRegistros;
+    private LocalDateTime marcaDagua;
+    private Long baseRelatorioId;   // preenchido nos relatórios incrementais (delta)
+}
@@ -0,0 +1,18 @@
+package com.vidaplus.sghss_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReservaSlotDTO {
+    private Long slotId;
+    private Long reservadoPorId;
+    private LocalDateTime expiraEm; // após este instante o slot volta a ser oferecido
+}
@@ -0,0 +1,71 @@
+package com.vidaplus.sghss_backend.event;
+
+import com.vidaplus.sghss_backend.model.AgendaMedicaSlot;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Publicado sempre que um slot da agenda é criado, removido, muda de disponibilidade
+ * ou ganha/perde um hold temporário. Carrega o estado final do slot (para holds, "disponivel"
+ * indica se o slot pode ser oferecido), então pode ser reaplicado sem efeito colateral.
+ */
+public record AgendaSlotAlteradoEvent(
+        Long slotId,
+        Long medicoId,
+        LocalDate data,
+        LocalTime hora,
+        Tipo tipo,
+        boolean disponivel
+) {
+
+    public enum Tipo {
+        CRIADO,
+        DISPONIBILIDADE_ALTERADA,
+        REMOVIDO,
+        RESERVADO,
+        RESERVA_LIBERADA
+    }
+
+    public static AgendaSlotAlteradoEvent criado(AgendaMedicaSlot slot) {
+        return de(slot, Tipo.CRIADO);
+    }
+
+    public static AgendaSlotAlteradoEvent disponibilidadeAlterada(AgendaMedicaSlot slot) {
+        return de(slot, Tipo.DISPONIBILIDADE_ALTERADA);
+    }
+
+    // Para escritas feitas por UPDATE direto, sem a entidade carregada
+    public static AgendaSlotAlteradoEvent disponibilidadeAlterada(Long slotId, Long medicoId, LocalDate data,
+                                                                  LocalTime hora, boolean disponivel) {
+        return new AgendaSlotAlteradoEvent(slotId, medicoId, data, hora, Tipo.DISPONIBILIDADE_ALTERADA, disponivel);
+    }
+
+    public static AgendaSlotAlteradoEvent removido(AgendaMedicaSlot slot) {
+        return de(slot, Tipo.REMOVIDO);
+    }
+
+    // Slot segurado por um hold: deixa de ser oferecido até a confirmação ou a expiração
+    public static AgendaSlotAlteradoEvent reservado(AgendaMedicaSlot slot) {
+        return de(slot, Tipo.RESERVADO, false);
+    }
+
+    public static AgendaSlotAlteradoEvent reservaLiberada(AgendaMedicaSlot slot) {
+        return de(slot, Tipo.RESERVA_LIBERADA, slot.isDisponivel());
+    }
+
+    private static AgendaSlotAlteradoEvent de(AgendaMedicaSlot slot, Tipo tipo) {
+        return de(slot, tipo, slot.isDisponivel());
+    }
+
+    private static AgendaSlotAlteradoEvent de(AgendaMedicaSlot slot, Tipo tipo, boolean disponivel) {
+        return new AgendaSlotAlteradoEvent(
+                slot.getId(),
+                slot.getMedico().getId(),
+                slot.getData(),
+                slot.getHora(),
+                tipo,
+                disponivel
+        );
+    }
+}
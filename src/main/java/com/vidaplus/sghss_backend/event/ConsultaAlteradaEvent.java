@@ -0,0 +1,8 @@
+package com.vidaplus.sghss_backend.event;
+
+/**
+ * Publicado quando dados de uma consulta mudam sem que o slot dela mude
+ * (status, médico, data/hora editados diretamente). Os slots têm o próprio evento.
+ */
+public record ConsultaAlteradaEvent(Long consultaId, Long medicoId) {
+}
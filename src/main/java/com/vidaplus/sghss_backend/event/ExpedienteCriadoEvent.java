@@ -0,0 +1,8 @@
+package com.vidaplus.sghss_backend.event;
+
+/**
+ * Publicado quando um médico ganha faixas de expediente. Os horários novos não viram linha (nem evento de slot)
+ * até serem ocupados, então quem precisa reagir à capacidade nova (lista de espera) escuta este evento.
+ */
+public record ExpedienteCriadoEvent(Long medicoId) {
+}
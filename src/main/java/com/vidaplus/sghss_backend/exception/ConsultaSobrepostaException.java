@@ -0,0 +1,7 @@
+package com.vidaplus.sghss_backend.exception;
+
+public class ConsultaSobrepostaException extends RuntimeException {
+    public ConsultaSobrepostaException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.vidaplus.sghss_backend.exception;
+
+public class FilaRelatoriosCheiaException extends RuntimeException {
+    public FilaRelatoriosCheiaException(String message) {
+        super(message);
+    }
+}
@@ -1,6 +1,9 @@
 package com.vidaplus.sghss_backend.exception;
 
+import com.vidaplus.sghss_backend.model.AgendaMedicaSlot;
+import com.vidaplus.sghss_backend.util.ViolacaoRestricao;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -69,6 +72,70 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body);
     }
 
+    @ExceptionHandler(SlotIndisponivelException.class)
+    public ResponseEntity<Map<String, Object>> handleSlotIndisponivel(SlotIndisponivelException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", HttpStatus.CONFLICT.value());
+        body.put("error", "Conflict");
+        body.put("message", ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
+    // Paciente já tem outra consulta no mesmo horário
+    @ExceptionHandler(ConsultaSobrepostaException.class)
+    public ResponseEntity<Map<String, Object>> handleConsultaSobreposta(ConsultaSobrepostaException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", HttpStatus.CONFLICT.value());
+        body.put("error", "Conflict");
+        body.put("message", ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
+    // Repetição de Idempotency-Key enquanto a requisição original ainda não terminou
+    @ExceptionHandler(RequisicaoEmAndamentoException.class)
+    public ResponseEntity<Map<String, Object>> handleRequisicaoEmAndamento(RequisicaoEmAndamentoException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", HttpStatus.CONFLICT.value());
+        body.put("error", "Conflict");
+        body.put("message", ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
+    // Fila de geração de relatórios lotada: o cliente tenta de novo mais tarde
+    @ExceptionHandler(FilaRelatoriosCheiaException.class)
+    public ResponseEntity<Map<String, Object>> handleFilaRelatoriosCheia(FilaRelatoriosCheiaException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
+        body.put("error", "Too Many Requests");
+        body.put("message", ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(body);
+    }
+
+    // Dois pedidos gravaram o mesmo horário do médico ao mesmo tempo (lotes de slots, bloqueios); outras
+    // violações (NOT NULL, chave estrangeira) continuam sendo erro interno
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<Map<String, Object>> handleDataIntegrityViolation(DataIntegrityViolationException ex) {
+        if (!ViolacaoRestricao.violou(ex, AgendaMedicaSlot.UK_MEDICO_DATA_HORA)) {
+            return handleRuntime(ex);
+        }
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", HttpStatus.CONFLICT.value());
+        body.put("error", "Conflict");
+        body.put("message", "Já existe um slot para este médico neste horário.");
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<Map<String, Object>> handleRuntime(RuntimeException ex) {
         ex.printStackTrace(); // ou use Logger para registrar
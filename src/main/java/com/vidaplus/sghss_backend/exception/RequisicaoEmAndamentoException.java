@@ -0,0 +1,7 @@
+package com.vidaplus.sghss_backend.exception;
+
+public class RequisicaoEmAndamentoException extends RuntimeException {
+    public RequisicaoEmAndamentoException(String message) {
+        super(message);
+    }
+}
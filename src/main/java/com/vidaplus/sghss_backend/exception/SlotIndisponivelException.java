@@ -0,0 +1,7 @@
+package com.vidaplus.sghss_backend.exception;
+
+public class SlotIndisponivelException extends RuntimeException {
+    public SlotIndisponivelException(String message) {
+        super(message);
+    }
+}
@@ -2,6 +2,10 @@ package com.vidaplus.sghss_backend.mapper;
 
 import com.vidaplus.sghss_backend.dto.AgendaMedicaRespostaDTO;
 import com.vidaplus.sghss_backend.model.AgendaMedicaSlot;
+import com.vidaplus.sghss_backend.model.Medico;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
 
 public class AgendaMedicaSlotMapper {
 
@@ -19,4 +23,20 @@ public class AgendaMedicaSlotMapper {
                 .pacienteNome(slot.getConsulta() != null ? slot.getConsulta().getPaciente().getNome() : null)
                 .build();
     }
+
+    // Slot livre vindo do índice em memória: não há consulta vinculada, só o médico já carregado
+    public static AgendaMedicaRespostaDTO toDTOLivre(Long slotId, LocalDate data, LocalTime hora, Medico medico) {
+        return toDTOLivre(slotId, data, hora, medico.getId(), medico.getNome());
+    }
+
+    public static AgendaMedicaRespostaDTO toDTOLivre(Long slotId, LocalDate data, LocalTime hora, Long medicoId, String medicoNome) {
+        return AgendaMedicaRespostaDTO.builder()
+                .id(slotId)
+                .data(data)
+                .hora(hora)
+                .disponivel(true)
+                .medicoId(medicoId)
+                .medicoNome(medicoNome)
+                .build();
+    }
 }
@@ -0,0 +1,39 @@
+package com.vidaplus.sghss_backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+// Contadores de slots por médico e dia (calendário do paciente), mantidos pelas escritas de agenda
+@Entity
+@Table(name = "agenda_disponibilidade_diaria")
+@IdClass(AgendaDisponibilidadeDiaria.Chave.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgendaDisponibilidadeDiaria {
+
+    @Id
+    @Column(name = "medico_id")
+    private Long medicoId;
+
+    @Id
+    private LocalDate data;
+
+    private int livres;
+    private int total;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Chave implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Long medicoId;
+        private LocalDate data;
+    }
+}
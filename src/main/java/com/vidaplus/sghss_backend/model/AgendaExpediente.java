@@ -0,0 +1,50 @@
+package com.vidaplus.sghss_backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+// Faixa de atendimento semanal de um médico; os slots livres dela são calculados na leitura
+@Entity
+@Table(name = "agenda_expedientes")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AgendaExpediente {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "medico_id", nullable = false)
+    private Medico medico;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private DayOfWeek diaSemana;
+
+    @Column(nullable = false)
+    private LocalTime horaInicio;
+
+    @Column(nullable = false)
+    private LocalTime horaFim; // exclusiva: o último slot começa antes dela
+
+    private int duracaoMinutos;
+
+    @Column(nullable = false)
+    private LocalDate vigenteDe;
+
+    private LocalDate vigenteAte; // nulo = sem data de término
+
+    @Column(nullable = false)
+    private LocalDateTime criadoEm;
+}
@@ -8,18 +8,26 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 
 @Entity
-@Table(name = "agenda_medica_slots")
+@Table(name = "agenda_medica_slots",
+        uniqueConstraints = @UniqueConstraint(name = AgendaMedicaSlot.UK_MEDICO_DATA_HORA, columnNames = {"medico_id", "data", "hora"}))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class AgendaMedicaSlot {
 
+    // Um slot por médico, data e hora (migration V10)
+    public static final String UK_MEDICO_DATA_HORA = "uk_agenda_medico_data_hora";
+
+    // Ids alocados em blocos (tabela agenda_medica_slots_seq) para permitir INSERT em lote;
+    // com IDENTITY o Hibernate precisa executar cada INSERT isoladamente
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "agenda_medica_slots_seq")
+    @SequenceGenerator(name = "agenda_medica_slots_seq", sequenceName = "agenda_medica_slots_seq", allocationSize = 50)
     private Long id;
 
     private LocalDate data;
@@ -36,4 +44,16 @@ public class AgendaMedicaSlot {
     @JoinColumn(name = "consulta_id")
     @JsonBackReference(value = "consulta-agendaSlot")
     private Consulta consulta; // vincula o slot a uma consulta quando agendada
+
+    // Hold temporário durante o checkout: até expirar, só quem reservou pode confirmar o slot
+    private LocalDateTime reservaExpiraEm;
+    private Long reservadoPorId;
+
+    // Mantido pelo banco (ver V15)
+    @Column(name = "atualizado_em", insertable = false, updatable = false)
+    private LocalDateTime atualizadoEm;
+
+    public boolean isReservadoPorOutro(Long usuarioId, LocalDateTime agora) {
+        return reservaExpiraEm != null && reservaExpiraEm.isAfter(agora) && !reservadoPorId.equals(usuarioId);
+    }
 }
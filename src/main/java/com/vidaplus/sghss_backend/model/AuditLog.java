@@ -9,7 +9,11 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "audit_logs")
+@Table(name = "audit_logs", indexes = {
+        // Logs por período (findByDataHoraBetween) e por usuário (findByUsuarioId)
+        @Index(name = "idx_audit_logs_data_hora", columnList = "data_hora"),
+        @Index(name = "idx_audit_logs_usuario_data_hora", columnList = "usuario_id, data_hora")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
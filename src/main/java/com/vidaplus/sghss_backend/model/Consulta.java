@@ -7,6 +7,7 @@ import lombok.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 
 @Entity
@@ -47,4 +48,8 @@ public class Consulta {
 
     @Column(nullable = false)
     private BigDecimal valor;
+
+    // Mantido pelo banco: muda também nas atualizações em lote por JDBC (cancelamento, bloqueio de agenda)
+    @Column(name = "atualizado_em", insertable = false, updatable = false)
+    private LocalDateTime atualizadoEm;
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.vidaplus.sghss_backend.model;
+
+import com.vidaplus.sghss_backend.model.enums.StatusListaEspera;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Inscrição de um paciente à espera de vaga com um médico ou em uma especialidade
+@Entity
+@Table(name = "lista_espera")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ListaEspera {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "paciente_id", nullable = false)
+    private Paciente paciente;
+
+    @ManyToOne
+    @JoinColumn(name = "medico_id")
+    private Medico medico; // nulo quando a espera é por especialidade
+
+    private String especialidade;
+
+    @Column(nullable = false)
+    private LocalDate dataInicio;
+
+    @Column(nullable = false)
+    private LocalDate dataFim;
+
+    private int prioridade; // maior primeiro; empate pela ordem de inscrição
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StatusListaEspera status;
+
+    @Column(nullable = false)
+    private LocalDateTime criadoEm;
+
+    private Long slotOfertadoId;
+    private LocalDateTime ofertaExpiraEm;
+}
@@ -3,6 +3,7 @@ import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import lombok.*;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
@@ -44,4 +45,8 @@ public class Medico {
     @OneToMany(mappedBy = "medico")
     @JsonManagedReference(value = "medico-prontuarios")
     private List<Prontuario> prontuarios;
+
+    // Mantido pelo banco (ON UPDATE CURRENT_TIMESTAMP)
+    @Column(name = "atualizado_em", insertable = false, updatable = false)
+    private LocalDateTime atualizadoEm;
 }
\ No newline at end of file
@@ -8,6 +8,8 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
+// Notificações não lidas de um paciente (findByPacienteAndLidaFalse)
+@Table(indexes = @Index(name = "idx_notificacao_paciente_lida", columnList = "paciente_id, lida"))
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor @Builder
 public class Notificacao {
@@ -18,7 +20,9 @@ public class Notificacao {
 
     private String mensagem;
 
+    // VARCHAR e não enum(...) do MySQL: o ddl-auto não alarga a coluna quando um tipo novo é criado (ver V16)
     @Enumerated(EnumType.STRING)
+    @Column(columnDefinition = "VARCHAR(30)")
     private TipoNotificacao tipo;
 
     private LocalDateTime dataCriacao;
@@ -6,6 +6,7 @@ import jakarta.persistence.*;
 import lombok.*;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -56,4 +57,8 @@ public class Paciente {
 
     @Column(name = "teleconsulta_info")
     private String teleconsultaInfo;
+
+    // Preenchido pelo banco a cada INSERT/UPDATE (V15); relatórios incrementais leem só o que mudou depois da marca
+    @Column(name = "atualizado_em", insertable = false, updatable = false)
+    private LocalDateTime atualizadoEm;
 }
@@ -3,6 +3,8 @@ import com.fasterxml.jackson.annotation.JsonBackReference;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.time.LocalDateTime;
+
 @Entity
 @Table(name = "prontuarios")
 @Data
@@ -31,4 +33,8 @@ public class Prontuario {
     @JoinColumn(name = "medico_id", nullable = false)
     @JsonBackReference(value = "medico-prontuarios")
     private Medico medico;
+
+    // Mantido pelo banco (ON UPDATE CURRENT_TIMESTAMP)
+    @Column(name = "atualizado_em", insertable = false, updatable = false)
+    private LocalDateTime atualizadoEm;
 }
\ No newline at end of file
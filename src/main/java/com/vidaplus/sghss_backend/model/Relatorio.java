@@ -22,8 +22,25 @@ public class Relatorio {
 
     private String nome; // ex: "Relatório completo de consultas - Setembro"
 
-    @Lob
-    private String conteudoJson; // armazenar o relatório como JSON (ou XML/CSV se preferir)
+    // O JSON fica comprimido em relatorio_conteudos (lido só no download); aqui ficam os metadados
+    @Column(name = "tamanho_bytes")
+    private Long tamanhoBytes;
+
+    @Column(name = "tamanho_comprimido")
+    private Long tamanhoComprimido;
+
+    @Column(name = "total_registros")
+    private Long totalRegistros;
+
+    // Relatórios incrementais: instante (relógio do banco) em que os dados foram lidos; o próximo delta parte daqui
+    @Column(name = "marca_dagua")
+    private LocalDateTime marcaDagua;
+
+    // Preenchidos só nos deltas: relatório anterior da cadeia e limite inferior de atualizado_em usado na leitura
+    @Column(name = "base_relatorio_id")
+    private Long baseRelatorioId;
+
+    private LocalDateTime desde;
 
     private LocalDateTime dataGeracao;
 
@@ -0,0 +1,6 @@
+package com.vidaplus.sghss_backend.model.enums;
+
+public enum FormatoRelatorio {
+    JSON,   // relatório completo gravado na tabela relatorios
+    PDF     // arquivo temporário, disponível para download enquanto o job estiver retido
+}
@@ -0,0 +1,10 @@
+package com.vidaplus.sghss_backend.model.enums;
+
+public enum StatusListaEspera {
+    AGUARDANDO,
+    OFERTADO,         // slot reservado em nome do paciente, aguardando aceite
+    ATENDIDO,
+    OFERTA_EXPIRADA,
+    EXPIRADO,         // período desejado terminou sem vaga
+    CANCELADO
+}
@@ -0,0 +1,9 @@
+package com.vidaplus.sghss_backend.model.enums;
+
+public enum StatusRelatorioJob {
+    NA_FILA,
+    EXECUTANDO,
+    CONCLUIDO,
+    FALHOU,
+    CANCELADO
+}
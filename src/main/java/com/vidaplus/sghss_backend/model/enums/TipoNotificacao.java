@@ -5,5 +5,7 @@ public enum TipoNotificacao {
     CONSULTA_CANCELADA,
     LEMBRETE_CONSULTA,
     NOVO_PRONTUARIO,
+    VAGA_DISPONIVEL,
+    AGENDA_BLOQUEADA,
     OUTROS
 }
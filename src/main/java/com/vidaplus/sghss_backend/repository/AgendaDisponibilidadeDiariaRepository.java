@@ -0,0 +1,48 @@
+package com.vidaplus.sghss_backend.repository;
+
+import com.vidaplus.sghss_backend.dto.DisponibilidadeDiariaDTO;
+import com.vidaplus.sghss_backend.model.AgendaDisponibilidadeDiaria;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface AgendaDisponibilidadeDiariaRepository
+        extends JpaRepository<AgendaDisponibilidadeDiaria, AgendaDisponibilidadeDiaria.Chave> {
+
+    @Query("SELECT new com.vidaplus.sghss_backend.dto.DisponibilidadeDiariaDTO(d.data, d.livres, d.total) " +
+            "FROM AgendaDisponibilidadeDiaria d " +
+            "WHERE d.medicoId = :medicoId AND d.data BETWEEN :de AND :ate AND d.total > 0 " +
+            "ORDER BY d.data")
+    List<DisponibilidadeDiariaDTO> findCalendario(@Param("medicoId") Long medicoId,
+                                                  @Param("de") LocalDate de,
+                                                  @Param("ate") LocalDate ate);
+
+    // Soma os deltas ao contador do dia, criando a linha se ainda não existir
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO agenda_disponibilidade_diaria (medico_id, data, livres, total) " +
+            "VALUES (:medicoId, :data, :livres, :total) " +
+            "ON DUPLICATE KEY UPDATE livres = livres + VALUES(livres), total = total + VALUES(total)",
+            nativeQuery = true)
+    int somar(@Param("medicoId") Long medicoId,
+              @Param("data") LocalDate data,
+              @Param("livres") int livres,
+              @Param("total") int total);
+
+    @Modifying
+    @Query(value = "DELETE FROM agenda_disponibilidade_diaria WHERE data >= :inicio", nativeQuery = true)
+    int apagarAPartirDe(@Param("inicio") LocalDate inicio);
+
+    // Recalcula os contadores a partir dos próprios slots
+    @Modifying
+    @Query(value = "INSERT INTO agenda_disponibilidade_diaria (medico_id, data, livres, total) " +
+            "SELECT medico_id, data, SUM(CASE WHEN disponivel THEN 1 ELSE 0 END), COUNT(*) " +
+            "FROM agenda_medica_slots WHERE data >= :inicio GROUP BY medico_id, data",
+            nativeQuery = true)
+    int recalcularAPartirDe(@Param("inicio") LocalDate inicio);
+}
@@ -0,0 +1,22 @@
+package com.vidaplus.sghss_backend.repository;
+
+import com.vidaplus.sghss_backend.model.AgendaExpediente;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface AgendaExpedienteRepository extends JpaRepository<AgendaExpediente, Long> {
+
+    // Todas as faixas de um médico (poucas linhas; ficam em cache em AgendaExpedienteService)
+    List<AgendaExpediente> findByMedicoIdOrderByVigenteDeAscHoraInicioAsc(Long medicoId);
+
+    // Médicos com alguma faixa cuja vigência cruza o período (painel da agenda)
+    @Query("SELECT DISTINCT e.medico.id FROM AgendaExpediente e " +
+            "WHERE e.vigenteDe <= :ate AND (e.vigenteAte IS NULL OR e.vigenteAte >= :de)")
+    List<Long> findMedicoIdsVigentesEntre(@Param("de") LocalDate de, @Param("ate") LocalDate ate);
+}
@@ -1,12 +1,31 @@
 package com.vidaplus.sghss_backend.repository;
 
 import com.vidaplus.sghss_backend.model.AgendaMedicaSlot;
+import com.vidaplus.sghss_backend.model.Consulta;
 import com.vidaplus.sghss_backend.model.Medico;
+import com.vidaplus.sghss_backend.repository.projection.ReservaAtiva;
+import com.vidaplus.sghss_backend.repository.projection.SlotCalendario;
+import com.vidaplus.sghss_backend.repository.projection.SlotRelatorio;
+import com.vidaplus.sghss_backend.repository.projection.SlotResumo;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface AgendaMedicaSlotRepository extends JpaRepository<AgendaMedicaSlot, Long> {
@@ -21,5 +40,130 @@ public interface AgendaMedicaSlotRepository extends JpaRepository<AgendaMedicaSl
     List<AgendaMedicaSlot> findByMedicoAndDisponivelTrue(Medico medico);
 
     // Verificar se existe algum slot específico já ocupado
-    boolean existsByMedicoAndDataAndHora(Medico medico, LocalDate data, java.time.LocalTime hora);
+    boolean existsByMedicoAndDataAndHora(Medico medico, LocalDate data, LocalTime hora);
+
+    // Linha já materializada de um horário de expediente (livre, ocupada ou bloqueada)
+    Optional<AgendaMedicaSlot> findByMedicoIdAndDataAndHora(Long medicoId, LocalDate data, LocalTime hora);
+
+    // Slots de um médico em um período (projeção enxuta, ordenada por data e hora)
+    @Query("SELECT s.id AS id, s.medico.id AS medicoId, s.data AS data, s.hora AS hora, s.disponivel AS disponivel " +
+            "FROM AgendaMedicaSlot s WHERE s.medico.id = :medicoId AND s.data BETWEEN :inicio AND :fim " +
+            "ORDER BY s.data, s.hora")
+    List<SlotResumo> findResumosPorMedicoEPeriodo(@Param("medicoId") Long medicoId,
+                                                  @Param("inicio") LocalDate inicio,
+                                                  @Param("fim") LocalDate fim);
+
+    // Mesmos slots do período, mas com hold vigente contando como indisponível (listagem de horários livres)
+    @Query("SELECT s.id AS id, s.medico.id AS medicoId, s.data AS data, s.hora AS hora, " +
+            "CASE WHEN s.disponivel = true AND (s.reservaExpiraEm IS NULL OR s.reservaExpiraEm <= :agora) " +
+            "THEN true ELSE false END AS disponivel " +
+            "FROM AgendaMedicaSlot s WHERE s.medico.id = :medicoId AND s.data BETWEEN :inicio AND :fim " +
+            "ORDER BY s.data, s.hora")
+    List<SlotResumo> findResumosLivresDeHoldPorMedicoEPeriodo(@Param("medicoId") Long medicoId,
+                                                              @Param("inicio") LocalDate inicio,
+                                                              @Param("fim") LocalDate fim,
+                                                              @Param("agora") LocalDateTime agora);
+
+    // Primeiros slots livres (e sem hold vigente) de uma especialidade a partir de um instante
+    // (usa o índice disponivel, data, hora)
+    @Query("SELECT s.id AS id, s.medico.id AS medicoId, s.data AS data, s.hora AS hora, s.disponivel AS disponivel " +
+            "FROM AgendaMedicaSlot s WHERE s.disponivel = true AND s.medico.especialidade = :especialidade " +
+            "AND (s.reservaExpiraEm IS NULL OR s.reservaExpiraEm <= :agora) " +
+            "AND (s.data > :data OR (s.data = :data AND s.hora >= :hora)) ORDER BY s.data, s.hora, s.id")
+    List<SlotResumo> findPrimeirosLivresPorEspecialidade(@Param("especialidade") String especialidade,
+                                                         @Param("data") LocalDate data,
+                                                         @Param("hora") LocalTime hora,
+                                                         @Param("agora") LocalDateTime agora,
+                                                         Pageable pageable);
+
+    // Feed iCalendar: slots do médico a partir de uma data com consulta e paciente, lidos em streaming (MySQL)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT s.id AS id, s.data AS data, s.hora AS hora, s.disponivel AS disponivel, " +
+            "c.id AS consultaId, c.status AS status, p.nome AS pacienteNome " +
+            "FROM AgendaMedicaSlot s LEFT JOIN s.consulta c LEFT JOIN c.paciente p " +
+            "WHERE s.medico.id = :medicoId AND s.data >= :inicio ORDER BY s.data, s.hora")
+    Stream<SlotCalendario> streamCalendario(@Param("medicoId") Long medicoId, @Param("inicio") LocalDate inicio);
+
+    // Relatório completo: todos os slots com médico e paciente da consulta, lidos em streaming (MySQL)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT s.id AS id, s.data AS data, s.hora AS hora, s.disponivel AS disponivel, " +
+            "m.id AS medicoId, m.nome AS medicoNome, c.id AS consultaId, p.nome AS pacienteNome " +
+            "FROM AgendaMedicaSlot s JOIN s.medico m LEFT JOIN s.consulta c LEFT JOIN c.paciente p " +
+            "WHERE s.atualizadoEm >= :desde ORDER BY s.id")
+    Stream<SlotRelatorio> streamRelatorio(@Param("desde") LocalDateTime desde);
+
+    @Query("SELECT s.medico.id FROM AgendaMedicaSlot s WHERE s.id = :slotId")
+    Optional<Long> findMedicoIdPorSlot(@Param("slotId") Long slotId);
+
+    // Carga do índice de disponibilidade em memória: projeção enxuta, lida em streaming (MySQL).
+    // Slots com hold vigente contam como indisponíveis.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT s.id AS id, s.medico.id AS medicoId, s.data AS data, s.hora AS hora, " +
+            "CASE WHEN s.disponivel = true AND (s.reservaExpiraEm IS NULL OR s.reservaExpiraEm <= :agora) " +
+            "THEN true ELSE false END AS disponivel " +
+            "FROM AgendaMedicaSlot s WHERE s.data >= :inicio")
+    Stream<SlotResumo> streamResumosAPartirDe(@Param("inicio") LocalDate inicio, @Param("agora") LocalDateTime agora);
+
+    // Reserva atômica: só ocupa o slot se ele ainda estiver livre e sem hold de outro usuário
+    // (1 = reservou, 0 = perdeu a disputa). O hold do próprio usuário é consumido aqui.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE AgendaMedicaSlot s SET s.disponivel = false, s.consulta = :consulta, " +
+            "s.reservaExpiraEm = null, s.reservadoPorId = null " +
+            "WHERE s.id = :slotId AND s.disponivel = true " +
+            "AND (s.reservaExpiraEm IS NULL OR s.reservaExpiraEm <= :agora OR s.reservadoPorId = :usuarioId)")
+    int reservarSeDisponivel(@Param("slotId") Long slotId,
+                             @Param("consulta") Consulta consulta,
+                             @Param("usuarioId") Long usuarioId,
+                             @Param("agora") LocalDateTime agora);
+
+    @Query("SELECT s.id AS id, s.medico.id AS medicoId, s.data AS data, s.hora AS hora, s.disponivel AS disponivel " +
+            "FROM AgendaMedicaSlot s WHERE s.id = :slotId")
+    Optional<SlotResumo> findResumoPorId(@Param("slotId") Long slotId);
+
+    @Query("SELECT s.id AS id, s.medico.id AS medicoId, s.data AS data, s.hora AS hora, s.disponivel AS disponivel " +
+            "FROM AgendaMedicaSlot s WHERE s.id IN :ids ORDER BY s.data, s.hora")
+    List<SlotResumo> findResumosPorIds(@Param("ids") Collection<Long> ids);
+
+    // Slots de um médico em um horário fixo nas datas informadas (sessões recorrentes)
+    @Query("SELECT s.id AS id, s.medico.id AS medicoId, s.data AS data, s.hora AS hora, s.disponivel AS disponivel " +
+            "FROM AgendaMedicaSlot s WHERE s.medico.id = :medicoId AND s.hora = :hora AND s.data IN :datas " +
+            "ORDER BY s.data")
+    List<SlotResumo> findResumosPorMedicoHoraEDatas(@Param("medicoId") Long medicoId,
+                                                    @Param("hora") LocalTime hora,
+                                                    @Param("datas") Collection<LocalDate> datas);
+
+    // Trava os slots em ordem crescente de id (ordem fixa evita deadlock entre trocas simultâneas)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<AgendaMedicaSlot> findByIdInOrderByIdAsc(Collection<Long> ids);
+
+    // Desfaz o vínculo com a consulta e reabre o slot (cancelamento/exclusão da consulta)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE AgendaMedicaSlot s SET s.disponivel = true, s.consulta = null " +
+            "WHERE s.id = :slotId AND s.consulta.id = :consultaId")
+    int liberarDaConsulta(@Param("slotId") Long slotId, @Param("consultaId") Long consultaId);
+
+    // Hold temporário: concedido se o slot estiver livre e sem hold vigente de outro usuário (renova o próprio)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE AgendaMedicaSlot s SET s.reservaExpiraEm = :expiraEm, s.reservadoPorId = :usuarioId " +
+            "WHERE s.id = :slotId AND s.disponivel = true " +
+            "AND (s.reservaExpiraEm IS NULL OR s.reservaExpiraEm <= :agora OR s.reservadoPorId = :usuarioId)")
+    int reservarTemporariamente(@Param("slotId") Long slotId,
+                                @Param("usuarioId") Long usuarioId,
+                                @Param("expiraEm") LocalDateTime expiraEm,
+                                @Param("agora") LocalDateTime agora);
+
+    // Desistência do hold pelo próprio usuário
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE AgendaMedicaSlot s SET s.reservaExpiraEm = null, s.reservadoPorId = null " +
+            "WHERE s.id = :slotId AND s.reservadoPorId = :usuarioId")
+    int liberarReserva(@Param("slotId") Long slotId, @Param("usuarioId") Long usuarioId);
+
+    // Holds vencidos entre os ids informados, travados até o fim da transação de limpeza
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM AgendaMedicaSlot s WHERE s.id IN :ids AND s.reservaExpiraEm <= :agora")
+    List<AgendaMedicaSlot> findReservasVencidas(@Param("ids") Collection<Long> ids, @Param("agora") LocalDateTime agora);
+
+    @Query("SELECT s.id AS id, s.reservaExpiraEm AS reservaExpiraEm FROM AgendaMedicaSlot s " +
+            "WHERE s.reservaExpiraEm > :agora")
+    List<ReservaAtiva> findReservasAtivas(@Param("agora") LocalDateTime agora);
 }
@@ -4,8 +4,24 @@ import com.vidaplus.sghss_backend.model.Consulta;
 import com.vidaplus.sghss_backend.model.Paciente;
 import com.vidaplus.sghss_backend.model.Medico;
 import com.vidaplus.sghss_backend.model.Usuario;
+import com.vidaplus.sghss_backend.model.enums.StatusConsulta;
+import com.vidaplus.sghss_backend.repository.projection.ConsultaCancelamento;
+import com.vidaplus.sghss_backend.repository.projection.ConsultaHorario;
+import com.vidaplus.sghss_backend.repository.projection.ConsultaRelatorio;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ConsultaRepository extends JpaRepository<Consulta, Long> {
     // Consultar por paciente
@@ -17,4 +33,42 @@ public interface ConsultaRepository extends JpaRepository<Consulta, Long> {
     List<Consulta> findByMedicoUsuario(Usuario usuarioLogado);
 
     List<Consulta> findByPacienteUsuario(Usuario usuarioLogado);
-}
\ No newline at end of file
+
+    // Consultas agendadas a partir de uma data, para a carga do índice por paciente (lida em streaming no MySQL)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT c.id AS id, c.paciente.id AS pacienteId, c.data AS data, c.hora AS hora FROM Consulta c " +
+            "WHERE c.status = com.vidaplus.sghss_backend.model.enums.StatusConsulta.AGENDADA AND c.data >= :inicio")
+    Stream<ConsultaHorario> streamAgendadasAPartirDe(@Param("inicio") LocalDate inicio);
+
+    // Relatório completo: consultas com paciente e médico pelo id, lidas em streaming (MySQL)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT c.id AS id, c.data AS data, c.hora AS hora, c.status AS status, c.valor AS valor, " +
+            "c.paciente.id AS pacienteId, c.medico.id AS medicoId FROM Consulta c WHERE c.atualizadoEm >= :desde ORDER BY c.id")
+    Stream<ConsultaRelatorio> streamRelatorio(@Param("desde") LocalDateTime desde);
+
+    @Query("SELECT c.medico.id FROM Consulta c WHERE c.id = :consultaId")
+    Optional<Long> findMedicoIdPorConsulta(@Param("consultaId") Long consultaId);
+
+    // Consulta, donos e slot vinculado em uma só leitura (sem carregar as entidades)
+    @Query("SELECT c.id AS id, c.status AS status, m.id AS medicoId, mu.id AS medicoUsuarioId, " +
+            "p.id AS pacienteId, pu.id AS pacienteUsuarioId, s.id AS slotId, s.data AS slotData, s.hora AS slotHora " +
+            "FROM Consulta c JOIN c.medico m LEFT JOIN m.usuario mu JOIN c.paciente p LEFT JOIN p.usuario pu " +
+            "LEFT JOIN c.agendaSlot s WHERE c.id = :consultaId")
+    Optional<ConsultaCancelamento> findParaCancelamento(@Param("consultaId") Long consultaId);
+
+    // Move a consulta para o horário/médico do novo slot, se ainda estiver agendada
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Consulta c SET c.medico = :medico, c.data = :data, c.hora = :hora " +
+            "WHERE c.id = :consultaId AND c.status = com.vidaplus.sghss_backend.model.enums.StatusConsulta.AGENDADA")
+    int remarcarSeAgendada(@Param("consultaId") Long consultaId,
+                           @Param("medico") Medico medico,
+                           @Param("data") LocalDate data,
+                           @Param("hora") LocalTime hora);
+
+    // Troca de status condicional: 0 se outra requisição já mudou a consulta
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Consulta c SET c.status = :novo WHERE c.id = :consultaId AND c.status = :atual")
+    int atualizarStatusSe(@Param("consultaId") Long consultaId,
+                          @Param("atual") StatusConsulta atual,
+                          @Param("novo") StatusConsulta novo);
+}
@@ -0,0 +1,37 @@
+package com.vidaplus.sghss_backend.repository;
+
+import com.vidaplus.sghss_backend.model.ListaEspera;
+import com.vidaplus.sghss_backend.model.enums.StatusListaEspera;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ListaEsperaRepository extends JpaRepository<ListaEspera, Long> {
+
+    List<ListaEspera> findByStatus(StatusListaEspera status);
+
+    List<ListaEspera> findByPacienteUsuarioId(Long usuarioId);
+
+    // Inscrições cujo período desejado já terminou
+    @Modifying
+    @Query("UPDATE ListaEspera l SET l.status = com.vidaplus.sghss_backend.model.enums.StatusListaEspera.EXPIRADO " +
+            "WHERE l.status = com.vidaplus.sghss_backend.model.enums.StatusListaEspera.AGUARDANDO AND l.dataFim < :hoje")
+    int expirarVencidas(@Param("hoje") LocalDate hoje);
+
+    // Troca de status condicional: 0 se outra requisição (ou o motor da lista de espera) já mudou a inscrição
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE ListaEspera l SET l.status = :novo WHERE l.id = :id AND l.status = :atual")
+    int atualizarStatusSe(@Param("id") Long id,
+                          @Param("atual") StatusListaEspera atual,
+                          @Param("novo") StatusListaEspera novo);
+
+    // Ofertas de um slot cuja reserva terminou sem aceite (as já aceitas ou canceladas não são tocadas)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE ListaEspera l SET l.status = com.vidaplus.sghss_backend.model.enums.StatusListaEspera.OFERTA_EXPIRADA " +
+            "WHERE l.status = com.vidaplus.sghss_backend.model.enums.StatusListaEspera.OFERTADO AND l.slotOfertadoId = :slotId")
+    int expirarOfertas(@Param("slotId") Long slotId);
+}
@@ -1,13 +1,35 @@
 package com.vidaplus.sghss_backend.repository;
 
+import com.vidaplus.sghss_backend.dto.MedicoResumoDTO;
 import com.vidaplus.sghss_backend.model.Medico;
 import com.vidaplus.sghss_backend.model.Usuario;
+import com.vidaplus.sghss_backend.repository.projection.MedicoRelatorio;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface MedicoRepository extends JpaRepository<Medico, Long> {
     // Buscar médico pelo CRM
     Optional<Medico> findByCrm(String crm);
     Optional<Medico> findByUsuario(Usuario usuario);
     boolean existsByUsuario(Usuario usuario);
+
+    // Médicos de uma especialidade, sem carregar agenda, consultas ou prontuários
+    @Query("SELECT new com.vidaplus.sghss_backend.dto.MedicoResumoDTO(m.id, m.nome, m.crm, m.especialidade) " +
+            "FROM Medico m WHERE m.especialidade = :especialidade")
+    List<MedicoResumoDTO> findResumosPorEspecialidade(@Param("especialidade") String especialidade);
+
+    // Relatório completo: médicos sem agenda, consultas e prontuários, lidos em streaming (MySQL)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT m.id AS id, m.nome AS nome, m.crm AS crm, m.especialidade AS especialidade, " +
+            "m.usuario.id AS usuarioId FROM Medico m WHERE m.atualizadoEm >= :desde ORDER BY m.id")
+    Stream<MedicoRelatorio> streamRelatorio(@Param("desde") LocalDateTime desde);
 }
\ No newline at end of file
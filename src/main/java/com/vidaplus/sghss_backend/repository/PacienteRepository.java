@@ -2,8 +2,17 @@ package com.vidaplus.sghss_backend.repository;
 
 import com.vidaplus.sghss_backend.model.Paciente;
 import com.vidaplus.sghss_backend.model.Usuario;
+import com.vidaplus.sghss_backend.repository.projection.PacienteRelatorio;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface PacienteRepository extends JpaRepository<Paciente, Long> {
 
@@ -13,4 +22,11 @@ public interface PacienteRepository extends JpaRepository<Paciente, Long> {
 
     Optional<Paciente> findByUsuarioId(Long usuarioId);
 
+    // Relatório completo (ou delta, a partir de "desde"): pacientes sem os relacionamentos, lidos em streaming (MySQL)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT p.id AS id, p.nome AS nome, p.cpf AS cpf, p.dataNascimento AS dataNascimento, " +
+            "p.endereco AS endereco, p.telefone AS telefone, p.teleconsultaInfo AS teleconsultaInfo, u.id AS usuarioId " +
+            "FROM Paciente p LEFT JOIN p.usuario u WHERE p.atualizadoEm >= :desde ORDER BY p.id")
+    Stream<PacienteRelatorio> streamRelatorio(@Param("desde") LocalDateTime desde);
+
 }
\ No newline at end of file
@@ -3,9 +3,17 @@ package com.vidaplus.sghss_backend.repository;
 import com.vidaplus.sghss_backend.model.Prontuario;
 import com.vidaplus.sghss_backend.model.Paciente;
 import com.vidaplus.sghss_backend.model.Usuario;
+import com.vidaplus.sghss_backend.repository.projection.ProntuarioRelatorio;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface ProntuarioRepository extends JpaRepository<Prontuario, Long> {
 
@@ -17,4 +25,10 @@ public interface ProntuarioRepository extends JpaRepository<Prontuario, Long> {
 
     // Opcional: buscar prontuários de um médico pelo usuário associado
     List<Prontuario> findByMedicoUsuarioId(Long usuarioId);
+
+    // Relatório completo: prontuários com paciente e médico pelo id, lidos em streaming (MySQL)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT pr.id AS id, pr.registros AS registros, pr.prescricoes AS prescricoes, " +
+            "pr.paciente.id AS pacienteId, pr.medico.id AS medicoId FROM Prontuario pr WHERE pr.atualizadoEm >= :desde ORDER BY pr.id")
+    Stream<ProntuarioRelatorio> streamRelatorio(@Param("desde") LocalDateTime desde);
 }
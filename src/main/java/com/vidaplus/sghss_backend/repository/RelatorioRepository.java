@@ -1,11 +1,23 @@
 package com.vidaplus.sghss_backend.repository;
 
+import com.vidaplus.sghss_backend.dto.RelatorioResumoDTO;
 import com.vidaplus.sghss_backend.model.Relatorio;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface RelatorioRepository extends JpaRepository<Relatorio, Long> {
+
+    // Listagem paginada, mais recentes primeiro, sem tocar no conteúdo
+    @Query("SELECT new com.vidaplus.sghss_backend.dto.RelatorioResumoDTO(r.id, r.nome, r.dataGeracao, r.geradoPorEmail, " +
+            "r.tamanhoBytes, r.tamanhoComprimido, r.totalRegistros, r.marcaDagua, r.baseRelatorioId) FROM Relatorio r ORDER BY r.dataGeracao DESC, r.id DESC")
+    List<RelatorioResumoDTO> listarResumos(Pageable pageable);
+
+    // Base padrão de um delta: o relatório mais recente que tem marca d'água
+    Optional<Relatorio> findFirstByMarcaDaguaIsNotNullOrderByMarcaDaguaDesc();
 }
@@ -0,0 +1,19 @@
+package com.vidaplus.sghss_backend.repository.projection;
+
+import com.vidaplus.sghss_backend.model.enums.StatusConsulta;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// O mínimo para autorizar o cancelamento e liberar o slot, numa única leitura
+public interface ConsultaCancelamento {
+    Long getId();
+    StatusConsulta getStatus();
+    Long getMedicoId();
+    Long getMedicoUsuarioId();
+    Long getPacienteId();
+    Long getPacienteUsuarioId();
+    Long getSlotId();
+    LocalDate getSlotData();
+    LocalTime getSlotHora();
+}
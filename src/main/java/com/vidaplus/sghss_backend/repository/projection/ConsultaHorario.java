@@ -0,0 +1,12 @@
+package com.vidaplus.sghss_backend.repository.projection;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// Horário de uma consulta agendada e seu paciente (carga do índice de sobreposição)
+public interface ConsultaHorario {
+    Long getId();
+    Long getPacienteId();
+    LocalDate getData();
+    LocalTime getHora();
+}
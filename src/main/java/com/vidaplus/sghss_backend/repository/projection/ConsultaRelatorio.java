@@ -0,0 +1,18 @@
+package com.vidaplus.sghss_backend.repository.projection;
+
+import com.vidaplus.sghss_backend.model.enums.StatusConsulta;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// Linha de consulta do relatório completo; paciente e médico vão só pelo id
+public interface ConsultaRelatorio {
+    Long getId();
+    LocalDate getData();
+    LocalTime getHora();
+    StatusConsulta getStatus();
+    BigDecimal getValor();
+    Long getPacienteId();
+    Long getMedicoId();
+}
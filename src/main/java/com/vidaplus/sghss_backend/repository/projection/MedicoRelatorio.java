@@ -0,0 +1,10 @@
+package com.vidaplus.sghss_backend.repository.projection;
+
+// Linha de médico do relatório completo
+public interface MedicoRelatorio {
+    Long getId();
+    String getNome();
+    String getCrm();
+    String getEspecialidade();
+    Long getUsuarioId();
+}
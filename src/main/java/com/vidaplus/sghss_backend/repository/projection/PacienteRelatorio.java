@@ -0,0 +1,15 @@
+package com.vidaplus.sghss_backend.repository.projection;
+
+import java.time.LocalDate;
+
+// Linha de paciente do relatório completo (sem consultas, prontuários e notificações aninhados)
+public interface PacienteRelatorio {
+    Long getId();
+    String getNome();
+    String getCpf();
+    LocalDate getDataNascimento();
+    String getEndereco();
+    String getTelefone();
+    String getTeleconsultaInfo();
+    Long getUsuarioId();
+}
@@ -0,0 +1,10 @@
+package com.vidaplus.sghss_backend.repository.projection;
+
+// Linha de prontuário do relatório completo
+public interface ProntuarioRelatorio {
+    Long getId();
+    String getRegistros();
+    String getPrescricoes();
+    Long getPacienteId();
+    Long getMedicoId();
+}
@@ -0,0 +1,9 @@
+package com.vidaplus.sghss_backend.repository.projection;
+
+import java.time.LocalDateTime;
+
+// Slot com hold vigente (usado para reagendar as expirações após reiniciar a aplicação)
+public interface ReservaAtiva {
+    Long getId();
+    LocalDateTime getReservaExpiraEm();
+}
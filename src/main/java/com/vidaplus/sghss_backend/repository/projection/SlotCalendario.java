@@ -0,0 +1,17 @@
+package com.vidaplus.sghss_backend.repository.projection;
+
+import com.vidaplus.sghss_backend.model.enums.StatusConsulta;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// Slot com a consulta vinculada (se houver), para o feed iCalendar do médico
+public interface SlotCalendario {
+    Long getId();
+    LocalDate getData();
+    LocalTime getHora();
+    Boolean getDisponivel();
+    Long getConsultaId();
+    StatusConsulta getStatus();
+    String getPacienteNome();
+}
@@ -0,0 +1,16 @@
+package com.vidaplus.sghss_backend.repository.projection;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// Slot do relatório completo, com os mesmos campos de AgendaMedicaRespostaDTO
+public interface SlotRelatorio {
+    Long getId();
+    LocalDate getData();
+    LocalTime getHora();
+    Boolean getDisponivel();
+    Long getMedicoId();
+    String getMedicoNome();
+    Long getConsultaId();
+    String getPacienteNome();
+}
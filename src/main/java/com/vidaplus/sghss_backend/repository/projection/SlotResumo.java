@@ -0,0 +1,13 @@
+package com.vidaplus.sghss_backend.repository.projection;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// Projeção enxuta de AgendaMedicaSlot (sem carregar médico, consulta ou paciente)
+public interface SlotResumo {
+    Long getId();
+    Long getMedicoId();
+    LocalDate getData();
+    LocalTime getHora();
+    Boolean getDisponivel();
+}
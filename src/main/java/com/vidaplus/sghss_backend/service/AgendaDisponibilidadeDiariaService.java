@@ -0,0 +1,166 @@
+package com.vidaplus.sghss_backend.service;
+
+import com.vidaplus.sghss_backend.dto.DisponibilidadeDiariaDTO;
+import com.vidaplus.sghss_backend.event.AgendaSlotAlteradoEvent;
+import com.vidaplus.sghss_backend.model.Usuario;
+import com.vidaplus.sghss_backend.model.enums.PerfilUsuario;
+import com.vidaplus.sghss_backend.repository.AgendaDisponibilidadeDiariaRepository;
+import com.vidaplus.sghss_backend.repository.MedicoRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Contadores diários (livres/total) por médico, usados no calendário do paciente.
+ * Os deltas das escritas de agenda são acumulados por transação e gravados no beforeCommit,
+ * uma linha por dia alterado (em ordem de médico e data, para evitar deadlock entre transações).
+ * Horários de expediente que ainda não viraram linha não têm contador: são somados na leitura do calendário.
+ */
+@Service
+@RequiredArgsConstructor
+public class AgendaDisponibilidadeDiariaService {
+
+    private static final int MAX_DIAS_CALENDARIO = 366;
+    private static final Object CHAVE_DELTAS = new Object();
+
+    private final AgendaDisponibilidadeDiariaRepository disponibilidadeDiariaRepository;
+    private final MedicoRepository medicoRepository;
+    private final AuditLogService auditLogService;
+    private final AgendaExpedienteService expedienteService;
+
+    private record Dia(Long medicoId, LocalDate data) {}
+
+    private static final Comparator<Dia> ORDEM_DIAS = Comparator.comparing(Dia::medicoId).thenComparing(Dia::data);
+
+    // Síncrono: roda dentro da transação de quem alterou o slot
+    @EventListener
+    public void aoAlterarSlot(AgendaSlotAlteradoEvent evento) {
+        int livres;
+        int total;
+        switch (evento.tipo()) {
+            case CRIADO -> {
+                livres = evento.disponivel() ? 1 : 0;
+                total = 1;
+            }
+            case REMOVIDO -> {
+                livres = evento.disponivel() ? -1 : 0;
+                total = -1;
+            }
+            case DISPONIBILIDADE_ALTERADA -> {
+                livres = evento.disponivel() ? 1 : -1;
+                total = 0;
+            }
+            default -> {
+                return; // holds temporários não mudam os contadores
+            }
+        }
+
+        Dia dia = new Dia(evento.medicoId(), evento.data());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            disponibilidadeDiariaRepository.somar(dia.medicoId(), dia.data(), livres, total);
+            return;
+        }
+
+        deltasDaTransacao().merge(dia, new int[]{livres, total}, (a, b) -> {
+            a[0] += b[0];
+            a[1] += b[1];
+            return a;
+        });
+    }
+
+    public List<DisponibilidadeDiariaDTO> listarCalendario(Long medicoId, LocalDate de, LocalDate ate) {
+        if (de == null || ate == null || ate.isBefore(de)) {
+            throw new IllegalArgumentException("Informe um período válido (de <= ate).");
+        }
+        if (ChronoUnit.DAYS.between(de, ate) >= MAX_DIAS_CALENDARIO) {
+            throw new IllegalArgumentException("O período máximo do calendário é de " + MAX_DIAS_CALENDARIO + " dias.");
+        }
+
+        List<DisponibilidadeDiariaDTO> dias = disponibilidadeDiariaRepository.findCalendario(medicoId, de, ate);
+        if (expedienteService.possuiExpediente(medicoId)) {
+            dias = somarExpediente(dias, expedienteService.livresCalculadosPorDia(medicoId, de, ate));
+        }
+
+        if (dias.isEmpty() && !medicoRepository.existsById(medicoId)) {
+            throw new IllegalArgumentException("Médico não encontrado.");
+        }
+        return dias;
+    }
+
+    // Cada horário calculado conta como um slot livre do dia
+    private static List<DisponibilidadeDiariaDTO> somarExpediente(List<DisponibilidadeDiariaDTO> dias,
+                                                                  Map<LocalDate, Integer> calculados) {
+        if (calculados.isEmpty()) return dias;
+
+        TreeMap<LocalDate, DisponibilidadeDiariaDTO> porData = new TreeMap<>();
+        dias.forEach(dia -> porData.put(dia.getData(), dia));
+        calculados.forEach((data, quantidade) -> porData.merge(data, new DisponibilidadeDiariaDTO(data, quantidade, quantidade),
+                (atual, extra) -> new DisponibilidadeDiariaDTO(data, atual.getLivres() + quantidade, atual.getTotal() + quantidade)));
+        return List.copyOf(porData.values());
+    }
+
+    // Corrige eventuais desvios recalculando os contadores de hoje em diante a partir dos slots
+    @Scheduled(cron = "0 0 4 * * *")
+    @Transactional
+    public void reconstruir() {
+        LocalDate hoje = LocalDate.now();
+        disponibilidadeDiariaRepository.apagarAPartirDe(hoje);
+        disponibilidadeDiariaRepository.recalcularAPartirDe(hoje);
+    }
+
+    @Transactional
+    public void reconstruirManual(Usuario usuarioLogado) {
+        if (usuarioLogado.getPerfil() != PerfilUsuario.ADMIN) {
+            throw new AccessDeniedException("Apenas administradores podem reconstruir os contadores da agenda.");
+        }
+
+        reconstruir();
+
+        auditLogService.registrarAcao(
+                usuarioLogado.getId(),
+                usuarioLogado.getEmail(),
+                usuarioLogado.getPerfil().name(),
+                "RECONSTRUIR_DISPONIBILIDADE_DIARIA",
+                "AgendaDisponibilidadeDiaria",
+                null,
+                "Contadores recalculados a partir de " + LocalDate.now()
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Dia, int[]> deltasDaTransacao() {
+        Map<Dia, int[]> deltas = (Map<Dia, int[]>) TransactionSynchronizationManager.getResource(CHAVE_DELTAS);
+        if (deltas != null) return deltas;
+
+        Map<Dia, int[]> novos = new TreeMap<>(ORDEM_DIAS);
+        TransactionSynchronizationManager.bindResource(CHAVE_DELTAS, novos);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                novos.forEach((dia, delta) -> {
+                    if (delta[0] != 0 || delta[1] != 0) {
+                        disponibilidadeDiariaRepository.somar(dia.medicoId(), dia.data(), delta[0], delta[1]);
+                    }
+                });
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CHAVE_DELTAS);
+            }
+        });
+        return novos;
+    }
+}
@@ -0,0 +1,270 @@
+package com.vidaplus.sghss_backend.service;
+
+import com.vidaplus.sghss_backend.event.AgendaSlotAlteradoEvent;
+import com.vidaplus.sghss_backend.repository.AgendaMedicaSlotRepository;
+import com.vidaplus.sghss_backend.repository.projection.SlotResumo;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Índice em memória da disponibilidade da agenda: um bitset por (médico, dia), com um bit por slot.
+ * É reconstruído a partir da tabela na inicialização e atualizado pelos eventos de slot após o commit,
+ * de modo que as consultas de horários livres não precisam ir ao banco.
+ */
+@Component
+@RequiredArgsConstructor
+public class AgendaDisponibilidadeIndex {
+
+    private final AgendaMedicaSlotRepository agendaSlotRepository;
+
+    private final Map<Long, ConcurrentSkipListMap<LocalDate, DiaAgenda>> diasPorMedico = new ConcurrentHashMap<>();
+
+    // Eventos que chegam durante a reconstrução são reaplicados ao final dela
+    private final List<AgendaSlotAlteradoEvent> pendentes = new ArrayList<>();
+
+    private volatile boolean reconstruindo = true;
+    private volatile LocalDate inicioCarga = LocalDate.MAX;
+
+    public record SlotLivre(Long id, LocalTime hora) {}
+
+    public record HorarioLivre(Long slotId, Long medicoId, LocalDate data, LocalTime hora) {
+
+        public static final Comparator<HorarioLivre> ORDEM_CRONOLOGICA = Comparator
+                .comparing(HorarioLivre::data)
+                .thenComparing(HorarioLivre::hora)
+                .thenComparing(HorarioLivre::slotId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void reconstruir() {
+        synchronized (pendentes) {
+            reconstruindo = true;
+        }
+
+        LocalDate inicio = LocalDate.now();
+        inicioCarga = inicio;
+        diasPorMedico.clear();
+
+        try (Stream<SlotResumo> slots = agendaSlotRepository.streamResumosAPartirDe(inicio, LocalDateTime.now())) {
+            slots.forEach(s -> dia(s.getMedicoId(), s.getData())
+                    .definir(s.getId(), minutoDoDia(s.getHora()), Boolean.TRUE.equals(s.getDisponivel())));
+        }
+
+        synchronized (pendentes) {
+            pendentes.forEach(this::aplicar);
+            pendentes.clear();
+            reconstruindo = false;
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarSlot(AgendaSlotAlteradoEvent evento) {
+        synchronized (pendentes) {
+            if (reconstruindo) {
+                pendentes.add(evento);
+                return;
+            }
+        }
+        aplicar(evento);
+    }
+
+    // Indica se a data pode ser respondida pelo índice (carga concluída e data dentro da janela)
+    public boolean cobre(LocalDate data) {
+        return !reconstruindo && !data.isBefore(inicioCarga);
+    }
+
+    public List<SlotLivre> listarLivres(Long medicoId, LocalDate data) {
+        ConcurrentSkipListMap<LocalDate, DiaAgenda> dias = diasPorMedico.get(medicoId);
+        if (dias == null) return List.of();
+
+        DiaAgenda dia = dias.get(data);
+        return dia != null ? dia.livres() : List.of();
+    }
+
+    // Percorre os slots livres de um médico em ordem cronológica, a partir de um instante
+    public CursorLivres cursorLivres(Long medicoId, LocalDateTime aPartirDe) {
+        ConcurrentSkipListMap<LocalDate, DiaAgenda> dias = diasPorMedico.get(medicoId);
+        Iterator<Map.Entry<LocalDate, DiaAgenda>> iterador = dias != null
+                ? dias.tailMap(aPartirDe.toLocalDate(), true).entrySet().iterator()
+                : Collections.emptyIterator();
+        return new CursorLivres(medicoId, aPartirDe, iterador);
+    }
+
+    // Dias que já passaram não são mais consultados pelo índice
+    @Scheduled(cron = "0 30 3 * * *")
+    public void descartarDiasPassados() {
+        LocalDate hoje = LocalDate.now();
+        inicioCarga = hoje;
+        diasPorMedico.values().forEach(dias -> dias.headMap(hoje).clear());
+    }
+
+    private void aplicar(AgendaSlotAlteradoEvent evento) {
+        if (evento.data().isBefore(inicioCarga)) return;
+
+        int minuto = minutoDoDia(evento.hora());
+        switch (evento.tipo()) {
+            case CRIADO, DISPONIBILIDADE_ALTERADA, RESERVADO, RESERVA_LIBERADA ->
+                    dia(evento.medicoId(), evento.data()).definir(evento.slotId(), minuto, evento.disponivel());
+            case REMOVIDO -> {
+                ConcurrentSkipListMap<LocalDate, DiaAgenda> dias = diasPorMedico.get(evento.medicoId());
+                DiaAgenda dia = dias != null ? dias.get(evento.data()) : null;
+                if (dia != null) dia.remover(evento.slotId(), minuto);
+            }
+        }
+    }
+
+    private DiaAgenda dia(Long medicoId, LocalDate data) {
+        return diasPorMedico
+                .computeIfAbsent(medicoId, id -> new ConcurrentSkipListMap<>())
+                .computeIfAbsent(data, d -> new DiaAgenda());
+    }
+
+    private static int minutoDoDia(LocalTime hora) {
+        return hora.getHour() * 60 + hora.getMinute();
+    }
+
+    /**
+     * Cursor sobre os horários livres de um médico. Lê um dia por vez do índice,
+     * o que permite intercalar vários médicos (merge k-way) sem materializar a agenda inteira.
+     */
+    public static final class CursorLivres {
+
+        private final Long medicoId;
+        private final LocalDateTime aPartirDe;
+        private final Iterator<Map.Entry<LocalDate, DiaAgenda>> dias;
+
+        private LocalDate dataAtual;
+        private List<SlotLivre> livresDoDia = List.of();
+        private int posicao;
+        private HorarioLivre atual;
+
+        private CursorLivres(Long medicoId, LocalDateTime aPartirDe, Iterator<Map.Entry<LocalDate, DiaAgenda>> dias) {
+            this.medicoId = medicoId;
+            this.aPartirDe = aPartirDe;
+            this.dias = dias;
+            avancar();
+        }
+
+        // Horário corrente do cursor, ou null se acabou
+        public HorarioLivre atual() {
+            return atual;
+        }
+
+        public boolean avancar() {
+            while (true) {
+                while (posicao < livresDoDia.size()) {
+                    SlotLivre livre = livresDoDia.get(posicao++);
+                    if (dataAtual.equals(aPartirDe.toLocalDate()) && livre.hora().isBefore(aPartirDe.toLocalTime())) {
+                        continue;
+                    }
+                    atual = new HorarioLivre(livre.id(), medicoId, dataAtual, livre.hora());
+                    return true;
+                }
+                if (!dias.hasNext()) {
+                    atual = null;
+                    return false;
+                }
+                Map.Entry<LocalDate, DiaAgenda> dia = dias.next();
+                dataAtual = dia.getKey();
+                livresDoDia = dia.getValue().livres();
+                posicao = 0;
+            }
+        }
+    }
+
+    /**
+     * Slots de um médico em um dia, ordenados por horário (e id, para tolerar duplicados).
+     * Horários e ids ficam em arrays paralelos; o bit i de "livres" indica se o slot i está disponível.
+     */
+    static final class DiaAgenda {
+
+        private int[] minutos = new int[8];
+        private long[] ids = new long[8];
+        private final BitSet livres = new BitSet();
+        private int tamanho;
+
+        synchronized void definir(long id, int minuto, boolean livre) {
+            int pos = posicao(id, minuto);
+            if (pos < 0) {
+                pos = -pos - 1;
+                inserir(pos, id, minuto);
+            }
+            livres.set(pos, livre);
+        }
+
+        synchronized void remover(long id, int minuto) {
+            int pos = posicao(id, minuto);
+            if (pos < 0) return;
+
+            int movidos = tamanho - pos - 1;
+            System.arraycopy(minutos, pos + 1, minutos, pos, movidos);
+            System.arraycopy(ids, pos + 1, ids, pos, movidos);
+            for (int i = pos; i < tamanho - 1; i++) {
+                livres.set(i, livres.get(i + 1));
+            }
+            livres.clear(tamanho - 1);
+            tamanho--;
+        }
+
+        synchronized List<SlotLivre> livres() {
+            List<SlotLivre> resultado = new ArrayList<>(livres.cardinality());
+            for (int i = livres.nextSetBit(0); i >= 0; i = livres.nextSetBit(i + 1)) {
+                resultado.add(new SlotLivre(ids[i], LocalTime.of(minutos[i] / 60, minutos[i] % 60)));
+            }
+            return resultado;
+        }
+
+        // Busca binária por (minuto, id); se não existir, retorna -(ponto de inserção) - 1
+        private int posicao(long id, int minuto) {
+            int baixo = 0;
+            int alto = tamanho - 1;
+            while (baixo <= alto) {
+                int meio = (baixo + alto) >>> 1;
+                int cmp = minutos[meio] != minuto
+                        ? Integer.compare(minutos[meio], minuto)
+                        : Long.compare(ids[meio], id);
+                if (cmp < 0) baixo = meio + 1;
+                else if (cmp > 0) alto = meio - 1;
+                else return meio;
+            }
+            return -(baixo + 1);
+        }
+
+        private void inserir(int pos, long id, int minuto) {
+            if (tamanho == minutos.length) {
+                minutos = Arrays.copyOf(minutos, tamanho * 2);
+                ids = Arrays.copyOf(ids, tamanho * 2);
+            }
+            System.arraycopy(minutos, pos, minutos, pos + 1, tamanho - pos);
+            System.arraycopy(ids, pos, ids, pos + 1, tamanho - pos);
+            for (int i = tamanho; i > pos; i--) {
+                livres.set(i, livres.get(i - 1));
+            }
+            minutos[pos] = minuto;
+            ids[pos] = id;
+            livres.clear(pos);
+            tamanho++;
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.vidaplus.sghss_backend.service;
+
+import com.vidaplus.sghss_backend.dto.CriarExpedienteRequest;
+import com.vidaplus.sghss_backend.dto.ExpedienteDTO;
+import com.vidaplus.sghss_backend.event.AgendaSlotAlteradoEvent;
+import com.vidaplus.sghss_backend.event.ExpedienteCriadoEvent;
+import com.vidaplus.sghss_backend.exception.SlotIndisponivelException;
+import com.vidaplus.sghss_backend.model.AgendaExpediente;
+import com.vidaplus.sghss_backend.model.AgendaMedicaSlot;
+import com.vidaplus.sghss_backend.model.Medico;
+import com.vidaplus.sghss_backend.model.Usuario;
+import com.vidaplus.sghss_backend.model.enums.PerfilUsuario;
+import com.vidaplus.sghss_backend.repository.AgendaExpedienteRepository;
+import com.vidaplus.sghss_backend.repository.AgendaMedicaSlotRepository;
+import com.vidaplus.sghss_backend.repository.MedicoRepository;
+import com.vidaplus.sghss_backend.repository.projection.SlotResumo;
+import com.vidaplus.sghss_backend.util.ViolacaoRestricao;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Agenda por expediente: a disponibilidade é guardada como faixas semanais (dia, início, fim, duração)
+ * e os slots livres são calculados na leitura. Só horários ocupados ou bloqueados viram linha em
+ * agenda_medica_slots; uma linha existente sempre prevalece sobre o horário calculado. Leituras que partem das
+ * linhas (busca por especialidade, contadores do calendário e do painel, lista de espera) somam os horários
+ * calculados por aqui.
+ */
+@Service
+@RequiredArgsConstructor
+public class AgendaExpedienteService {
+
+    private final AgendaExpedienteRepository expedienteRepository;
+    private final AgendaMedicaSlotRepository agendaSlotRepository;
+    private final MedicoRepository medicoRepository;
+    private final AuditLogService auditLogService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Busca dos primeiros horários livres: o expediente não tem fim, então a procura para neste horizonte,
+    // lendo as linhas do médico um bloco de dias por vez
+    private static final int HORIZONTE_BUSCA_DIAS = 90;
+    private static final int BLOCO_BUSCA_DIAS = 14;
+
+    // Faixas por médico (poucas por médico e lidas a cada consulta de agenda); invalidado após cada escrita
+    private final Map<Long, List<Faixa>> cache = new ConcurrentHashMap<>();
+
+    private record Faixa(DayOfWeek diaSemana, int minutoInicial, int minutoFinal, int duracao,
+                         LocalDate vigenteDe, LocalDate vigenteAte) {
+
+        boolean vale(LocalDate data) {
+            return data.getDayOfWeek() == diaSemana && !data.isBefore(vigenteDe) &&
+                    (vigenteAte == null || !data.isAfter(vigenteAte));
+        }
+
+        // Só horários cuja consulta termina até o fim da faixa (08:00-09:00 de 45 min tem só 08:00)
+        boolean contem(LocalTime hora) {
+            int minuto = hora.toSecondOfDay() / 60;
+            return hora.getSecond() == 0 && minuto >= minutoInicial && minuto + duracao <= minutoFinal &&
+                    (minuto - minutoInicial) % duracao == 0;
+        }
+    }
+
+    // Horário calculado a partir do expediente: ainda não tem linha (nem id) na tabela de slots
+    public record SlotVirtual(Long medicoId, LocalDate data, LocalTime hora) implements SlotResumo {
+        public Long getId() { return null; }
+        public Long getMedicoId() { return medicoId; }
+        public LocalDate getData() { return data; }
+        public LocalTime getHora() { return hora; }
+        public Boolean getDisponivel() { return Boolean.TRUE; }
+    }
+
+    @Transactional
+    public List<ExpedienteDTO> criarExpediente(Medico medico, CriarExpedienteRequest request, Usuario usuarioLogado) {
+        validar(request);
+
+        // Faixas do mesmo dia da semana não podem se sobrepor em horário e vigência
+        for (AgendaExpediente existente : expedienteRepository.findByMedicoIdOrderByVigenteDeAscHoraInicioAsc(medico.getId())) {
+            boolean vigenciaSobreposta = (existente.getVigenteAte() == null || !existente.getVigenteAte().isBefore(request.getVigenteDe())) &&
+                    (request.getVigenteAte() == null || !request.getVigenteAte().isBefore(existente.getVigenteDe()));
+            boolean horarioSobreposto = existente.getHoraInicio().isBefore(request.getHoraFim()) &&
+                    request.getHoraInicio().isBefore(existente.getHoraFim());
+            if (request.getDiasSemana().contains(existente.getDiaSemana()) && vigenciaSobreposta && horarioSobreposto) {
+                throw new IllegalArgumentException("Já existe expediente em " + existente.getDiaSemana() + " das " +
+                        existente.getHoraInicio() + " às " + existente.getHoraFim() + " nesse período.");
+            }
+        }
+
+        LocalDateTime agora = LocalDateTime.now();
+        List<AgendaExpediente> novos = request.getDiasSemana().stream()
+                .sorted()
+                .map(dia -> AgendaExpediente.builder()
+                        .medico(medico)
+                        .diaSemana(dia)
+                        .horaInicio(request.getHoraInicio())
+                        .horaFim(request.getHoraFim())
+                        .duracaoMinutos(request.getDuracaoMinutos())
+                        .vigenteDe(request.getVigenteDe())
+                        .vigenteAte(request.getVigenteAte())
+                        .criadoEm(agora)
+                        .build())
+                .toList();
+        List<AgendaExpediente> salvos = expedienteRepository.saveAll(novos);
+        invalidar(medico.getId());
+        eventPublisher.publishEvent(new ExpedienteCriadoEvent(medico.getId()));
+
+        auditLogService.registrarAcao(
+                usuarioLogado.getId(),
+                usuarioLogado.getEmail(),
+                usuarioLogado.getPerfil().name(),
+                "CRIAR_EXPEDIENTE",
+                "AgendaExpediente",
+                null,
+                "Médico: " + medico.getNome() + ", Dias: " + request.getDiasSemana() + ", Horário: " +
+                        request.getHoraInicio() + "-" + request.getHoraFim() + " a cada " + request.getDuracaoMinutos() +
+                        " min, Vigência: " + request.getVigenteDe() + " a " + (request.getVigenteAte() != null ? request.getVigenteAte() : "indeterminado")
+        );
+
+        return salvos.stream().map(ExpedienteDTO::from).toList();
+    }
+
+    public List<ExpedienteDTO> listarExpedientes(Long medicoId) {
+        return expedienteRepository.findByMedicoIdOrderByVigenteDeAscHoraInicioAsc(medicoId)
+                .stream()
+                .map(ExpedienteDTO::from)
+                .toList();
+    }
+
+    // Consultas e bloqueios já gravados continuam como linhas; só os horários livres calculados deixam de existir
+    @Transactional
+    public void removerExpediente(Long expedienteId, Usuario usuarioLogado) {
+        AgendaExpediente expediente = expedienteRepository.findById(expedienteId)
+                .orElseThrow(() -> new EntityNotFoundException("Expediente não encontrado."));
+
+        if (usuarioLogado.getPerfil() == PerfilUsuario.PACIENTE) {
+            throw new AccessDeniedException("Paciente não pode alterar expedientes.");
+        }
+        if (usuarioLogado.getPerfil() == PerfilUsuario.MEDICO &&
+                !expediente.getMedico().getUsuario().getId().equals(usuarioLogado.getId())) {
+            throw new AccessDeniedException("Médico só pode alterar o próprio expediente.");
+        }
+
+        expedienteRepository.delete(expediente);
+        invalidar(expediente.getMedico().getId());
+
+        auditLogService.registrarAcao(
+                usuarioLogado.getId(),
+                usuarioLogado.getEmail(),
+                usuarioLogado.getPerfil().name(),
+                "REMOVER_EXPEDIENTE",
+                "AgendaExpediente",
+                expedienteId,
+                "Médico: " + expediente.getMedico().getNome() + ", Dia: " + expediente.getDiaSemana() +
+                        ", Horário: " + expediente.getHoraInicio() + "-" + expediente.getHoraFim()
+        );
+    }
+
+    public boolean possuiExpediente(Long medicoId) {
+        return !faixas(medicoId).isEmpty();
+    }
+
+    /**
+     * Horários do expediente entre duas datas, por dia e em ordem, sem descontar as linhas já materializadas
+     * (quem chama cruza com os slots do período, que já precisa ler de qualquer forma).
+     */
+    public NavigableMap<LocalDate, TreeSet<LocalTime>> horariosDoExpediente(Long medicoId, LocalDate de, LocalDate ate) {
+        NavigableMap<LocalDate, TreeSet<LocalTime>> horarios = new TreeMap<>();
+        List<Faixa> faixas = faixas(medicoId);
+        if (faixas.isEmpty()) return horarios;
+
+        for (LocalDate data = de; !data.isAfter(ate); data = data.plusDays(1)) {
+            for (Faixa faixa : faixas) {
+                if (!faixa.vale(data)) continue;
+                TreeSet<LocalTime> doDia = horarios.computeIfAbsent(data, d -> new TreeSet<>());
+                for (int minuto = faixa.minutoInicial(); minuto + faixa.duracao() <= faixa.minutoFinal(); minuto += faixa.duracao()) {
+                    doDia.add(LocalTime.of(minuto / 60, minuto % 60));
+                }
+            }
+        }
+        return horarios;
+    }
+
+    /**
+     * Junta os slots gravados de um período (ordenados por data e hora) com os horários livres do expediente
+     * que ainda não têm linha. O resultado continua ordenado; horários calculados vêm como SlotVirtual.
+     */
+    public List<SlotResumo> mesclarComExpediente(Long medicoId, LocalDate de, LocalDate ate, List<SlotResumo> gravados) {
+        NavigableMap<LocalDate, TreeSet<LocalTime>> horarios = horariosDoExpediente(medicoId, de, ate);
+        if (horarios.isEmpty()) return gravados;
+
+        descontarGravados(horarios, gravados);
+
+        List<SlotResumo> mesclados = new ArrayList<>(gravados.size() + horarios.values().stream().mapToInt(Set::size).sum());
+        mesclados.addAll(gravados);
+        horarios.forEach((data, horas) -> horas.forEach(hora -> mesclados.add(new SlotVirtual(medicoId, data, hora))));
+        mesclados.sort((a, b) -> a.getData().equals(b.getData())
+                ? a.getHora().compareTo(b.getHora())
+                : a.getData().compareTo(b.getData()));
+        return mesclados;
+    }
+
+    /**
+     * Quantos horários do expediente ainda sem linha há em cada dia do período (dias sem nenhum ficam de fora).
+     * As linhas já entram nos contadores diários; estes são os livres que só existem no cálculo.
+     */
+    public NavigableMap<LocalDate, Integer> livresCalculadosPorDia(Long medicoId, LocalDate de, LocalDate ate) {
+        NavigableMap<LocalDate, Integer> porDia = new TreeMap<>();
+        horariosSemLinha(medicoId, de, ate).forEach((data, horas) -> {
+            if (!horas.isEmpty()) porDia.put(data, horas.size());
+        });
+        return porDia;
+    }
+
+    /**
+     * Primeiros horários do expediente ainda sem linha a partir de um instante, em ordem cronológica,
+     * procurando até HORIZONTE_BUSCA_DIAS dias à frente.
+     */
+    public List<SlotVirtual> primeirosLivres(Long medicoId, LocalDateTime aPartirDe, int quantidade) {
+        List<SlotVirtual> livres = new ArrayList<>();
+        if (quantidade < 1 || faixas(medicoId).isEmpty()) return livres;
+
+        LocalDate limite = aPartirDe.toLocalDate().plusDays(HORIZONTE_BUSCA_DIAS - 1);
+        for (LocalDate de = aPartirDe.toLocalDate(); !de.isAfter(limite); de = de.plusDays(BLOCO_BUSCA_DIAS)) {
+            LocalDate ate = de.plusDays(BLOCO_BUSCA_DIAS - 1);
+            if (ate.isAfter(limite)) ate = limite;
+
+            for (Map.Entry<LocalDate, TreeSet<LocalTime>> dia : horariosSemLinha(medicoId, de, ate).entrySet()) {
+                for (LocalTime hora : dia.getValue()) {
+                    if (LocalDateTime.of(dia.getKey(), hora).isBefore(aPartirDe)) continue;
+                    livres.add(new SlotVirtual(medicoId, dia.getKey(), hora));
+                    if (livres.size() == quantidade) return livres;
+                }
+            }
+        }
+        return livres;
+    }
+
+    // Médicos com alguma faixa vigente no período
+    public List<Long> medicosComExpediente(LocalDate de, LocalDate ate) {
+        return expedienteRepository.findMedicoIdsVigentesEntre(de, ate);
+    }
+
+    // Só lê as linhas do período quando o expediente tem algum horário nele
+    private NavigableMap<LocalDate, TreeSet<LocalTime>> horariosSemLinha(Long medicoId, LocalDate de, LocalDate ate) {
+        NavigableMap<LocalDate, TreeSet<LocalTime>> horarios = horariosDoExpediente(medicoId, de, ate);
+        if (!horarios.isEmpty()) {
+            descontarGravados(horarios, agendaSlotRepository.findResumosPorMedicoEPeriodo(medicoId, de, ate));
+        }
+        return horarios;
+    }
+
+    private static void descontarGravados(NavigableMap<LocalDate, TreeSet<LocalTime>> horarios, List<SlotResumo> gravados) {
+        for (SlotResumo slot : gravados) {
+            TreeSet<LocalTime> doDia = horarios.get(slot.getData());
+            if (doDia != null) doDia.remove(slot.getHora());
+        }
+    }
+
+    /**
+     * Garante a linha de um horário do expediente para poder ocupá-lo (agendamento) e devolve o id.
+     * Se a linha já existe ela é devolvida como está: quem chama decide se o slot ainda está livre.
+     * Dois pedidos simultâneos para o mesmo horário esbarram na unicidade (medico_id, data, hora) e um deles recebe 409.
+     */
+    @Transactional
+    public Long materializar(Long medicoId, LocalDate data, LocalTime hora) {
+        if (data == null || hora == null) {
+            throw new IllegalArgumentException("Informe a data e a hora.");
+        }
+
+        return agendaSlotRepository.findByMedicoIdAndDataAndHora(medicoId, data, hora)
+                .map(AgendaMedicaSlot::getId)
+                .orElseGet(() -> {
+                    if (faixas(medicoId).stream().noneMatch(f -> f.vale(data) && f.contem(hora))) {
+                        throw new IllegalArgumentException("Horário fora do expediente do médico.");
+                    }
+
+                    AgendaMedicaSlot slot;
+                    try {
+                        slot = agendaSlotRepository.saveAndFlush(AgendaMedicaSlot.builder()
+                                .medico(medicoRepository.getReferenceById(medicoId))
+                                .data(data)
+                                .hora(hora)
+                                .disponivel(true)
+                                .build());
+                    } catch (DataIntegrityViolationException e) {
+                        // Outra requisição gravou (e ocupou) o mesmo horário entre a leitura e o INSERT
+                        if (ViolacaoRestricao.violou(e, AgendaMedicaSlot.UK_MEDICO_DATA_HORA)) {
+                            throw new SlotIndisponivelException("Este horário acabou de ser agendado por outra requisição.");
+                        }
+                        throw e;
+                    }
+                    eventPublisher.publishEvent(AgendaSlotAlteradoEvent.criado(slot));
+                    return slot.getId();
+                });
+    }
+
+    private List<Faixa> faixas(Long medicoId) {
+        return cache.computeIfAbsent(medicoId, id -> expedienteRepository.findByMedicoIdOrderByVigenteDeAscHoraInicioAsc(id)
+                .stream()
+                .map(e -> new Faixa(e.getDiaSemana(), e.getHoraInicio().toSecondOfDay() / 60,
+                        e.getHoraFim().toSecondOfDay() / 60, e.getDuracaoMinutos(), e.getVigenteDe(), e.getVigenteAte()))
+                .collect(Collectors.toUnmodifiableList()));
+    }
+
+    // Descarta agora e de novo após o commit, para que uma leitura concorrente não deixe a versão antiga no cache
+    private void invalidar(Long medicoId) {
+        cache.remove(medicoId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.remove(medicoId);
+                }
+            });
+        }
+    }
+
+    private static void validar(CriarExpedienteRequest request) {
+        if (request.getVigenteDe() == null || request.getHoraInicio() == null || request.getHoraFim() == null) {
+            throw new IllegalArgumentException("Início da vigência, hora de início e hora de fim são obrigatórios.");
+        }
+        if (request.getDiasSemana() == null || request.getDiasSemana().isEmpty()) {
+            throw new IllegalArgumentException("Informe ao menos um dia da semana.");
+        }
+        if (request.getDuracaoMinutos() == null || request.getDuracaoMinutos() < 5 || request.getDuracaoMinutos() > 240) {
+            throw new IllegalArgumentException("A duração deve estar entre 5 e 240 minutos.");
+        }
+        if (!request.getHoraInicio().isBefore(request.getHoraFim())) {
+            throw new IllegalArgumentException("A hora de início deve ser anterior à hora de fim.");
+        }
+        int minutos = (request.getHoraFim().toSecondOfDay() - request.getHoraInicio().toSecondOfDay()) / 60;
+        if (minutos % request.getDuracaoMinutos() != 0) {
+            throw new IllegalArgumentException("O intervalo entre início e fim (" + minutos +
+                    " min) deve ser múltiplo da duração (" + request.getDuracaoMinutos() + " min).");
+        }
+        if (request.getVigenteAte() != null && request.getVigenteAte().isBefore(request.getVigenteDe())) {
+            throw new IllegalArgumentException("O fim da vigência deve ser posterior ao início.");
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.vidaplus.sghss_backend.service;
+
+import com.vidaplus.sghss_backend.model.Medico;
+import com.vidaplus.sghss_backend.model.enums.StatusConsulta;
+import com.vidaplus.sghss_backend.repository.AgendaMedicaSlotRepository;
+import com.vidaplus.sghss_backend.repository.projection.SlotCalendario;
+import com.vidaplus.sghss_backend.util.EscritorIcs;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Feed iCalendar da agenda de um médico. Os eventos são escritos direto na resposta à medida que o
+ * cursor sobre slots + consultas avança, sem montar a lista inteira em memória.
+ */
+@Service
+@RequiredArgsConstructor
+public class AgendaIcsService {
+
+    // Histórico recente continua no calendário do médico; o restante do passado fica de fora
+    private static final int DIAS_PASSADOS = 30;
+    private static final DateTimeFormatter DATA_HORA = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+    private final AgendaMedicaSlotRepository agendaSlotRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${consulta.duracao-minutos:30}")
+    private int duracaoMinutos;
+
+    // A escrita acontece depois que o controller retorna, por isso o cursor abre a própria transação (somente leitura)
+    public StreamingResponseBody feed(Medico medico) {
+        Long medicoId = medico.getId();
+        String medicoNome = medico.getNome();
+
+        return saida -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8), 16 * 1024);
+            EscritorIcs ics = new EscritorIcs(writer);
+            String carimbo = LocalDateTime.now(ZoneOffset.UTC).format(DATA_HORA) + "Z";
+
+            ics.linha("BEGIN", "VCALENDAR")
+                    .linha("VERSION", "2.0")
+                    .linha("PRODID", "-//VidaPlus//SGHSS//PT-BR")
+                    .linha("CALSCALE", "GREGORIAN")
+                    .linha("METHOD", "PUBLISH")
+                    .texto("X-WR-CALNAME", "Agenda - " + medicoNome);
+
+            TransactionTemplate leitura = new TransactionTemplate(transactionManager);
+            leitura.setReadOnly(true);
+            leitura.executeWithoutResult(status -> {
+                try (Stream<SlotCalendario> slots = agendaSlotRepository.streamCalendario(
+                        medicoId, LocalDate.now().minusDays(DIAS_PASSADOS))) {
+                    Iterator<SlotCalendario> cursor = slots.iterator();
+                    while (cursor.hasNext()) {
+                        escreverEvento(ics, cursor.next(), medicoId, carimbo);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            ics.linha("END", "VCALENDAR");
+            writer.flush();
+        };
+    }
+
+    // Horários calculados do expediente (sem linha na tabela) não entram: o feed mostra o que está gravado
+    private void escreverEvento(EscritorIcs ics, SlotCalendario slot, Long medicoId, String carimbo) throws IOException {
+        boolean comConsulta = slot.getConsultaId() != null;
+        boolean livre = !comConsulta && Boolean.TRUE.equals(slot.getDisponivel());
+
+        String resumo = comConsulta ? "Consulta - " + slot.getPacienteNome()
+                : livre ? "Horário livre"
+                : "Bloqueado";
+
+        ics.linha("BEGIN", "VEVENT")
+                .linha("UID", "slot-" + slot.getId() + "-medico-" + medicoId + "@vidaplus-sghss")
+                .linha("DTSTAMP", carimbo)
+                .linha("DTSTART", LocalDateTime.of(slot.getData(), slot.getHora()).format(DATA_HORA))
+                .linha("DURATION", "PT" + duracaoMinutos + "M")
+                .texto("SUMMARY", resumo)
+                .linha("TRANSP", livre ? "TRANSPARENT" : "OPAQUE")
+                .linha("STATUS", comConsulta && slot.getStatus() == StatusConsulta.CANCELADA ? "CANCELLED" : "CONFIRMED");
+        if (comConsulta) {
+            ics.texto("DESCRIPTION", "Consulta " + slot.getConsultaId() + " (" + slot.getStatus() + ")");
+        }
+        ics.linha("END", "VEVENT");
+    }
+}
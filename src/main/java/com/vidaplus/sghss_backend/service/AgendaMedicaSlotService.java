@@ -1,28 +1,62 @@
 package com.vidaplus.sghss_backend.service;
 
+import com.vidaplus.sghss_backend.event.AgendaSlotAlteradoEvent;
 import com.vidaplus.sghss_backend.model.AgendaMedicaSlot;
 import com.vidaplus.sghss_backend.model.Consulta;
 import com.vidaplus.sghss_backend.model.Medico;
 import com.vidaplus.sghss_backend.model.Usuario;
+import com.vidaplus.sghss_backend.model.enums.PerfilUsuario;
+import com.vidaplus.sghss_backend.repository.projection.SlotResumo;
 import com.vidaplus.sghss_backend.repository.AgendaMedicaSlotRepository;
 import com.vidaplus.sghss_backend.repository.MedicoRepository;
+import com.vidaplus.sghss_backend.util.ViolacaoRestricao;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import com.vidaplus.sghss_backend.dto.AgendaGradeDTO;
 import com.vidaplus.sghss_backend.dto.AgendaMedicaRespostaDTO;
+import com.vidaplus.sghss_backend.dto.AgendaRecorrenteRespostaDTO;
+import com.vidaplus.sghss_backend.dto.CriarAgendaRecorrenteRequest;
+import com.vidaplus.sghss_backend.dto.MedicoResumoDTO;
 import com.vidaplus.sghss_backend.mapper.AgendaMedicaSlotMapper;
 
 @Service
 @RequiredArgsConstructor
 public class AgendaMedicaSlotService {
 
+    // Deve acompanhar spring.jpa.properties.hibernate.jdbc.batch_size
+    private static final int TAMANHO_LOTE = 50;
+    private static final int MAX_SLOTS_RECORRENTES = 10_000;
+    private static final int MAX_DIAS_GRADE = 93;
+    private static final int MAX_PRIMEIROS_DISPONIVEIS = 100;
+
     private final AgendaMedicaSlotRepository agendaSlotRepository;
     private final MedicoRepository medicoRepository;
     private final AuditLogService auditLogService;
+    private final AgendaDisponibilidadeIndex disponibilidadeIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+    private final AgendaExpedienteService expedienteService;
 
     public List<AgendaMedicaRespostaDTO> listarSlots(Medico medico) {
         return agendaSlotRepository.findByMedico(medico)
@@ -32,12 +66,193 @@ public class AgendaMedicaSlotService {
     }
 
     public List<AgendaMedicaRespostaDTO> listarSlotsDisponiveis(Medico medico, LocalDate data) {
+        // Médico com expediente: slots gravados do dia + horários calculados que ainda não viraram linha (id nulo).
+        // Linhas com hold vigente entram como indisponíveis, para não serem ofertadas nem recalculadas como livres
+        if (expedienteService.possuiExpediente(medico.getId())) {
+            return expedienteService.mesclarComExpediente(medico.getId(), data, data,
+                            agendaSlotRepository.findResumosLivresDeHoldPorMedicoEPeriodo(medico.getId(), data, data,
+                                    LocalDateTime.now()))
+                    .stream()
+                    .filter(slot -> Boolean.TRUE.equals(slot.getDisponivel()))
+                    .map(slot -> AgendaMedicaSlotMapper.toDTOLivre(slot.getId(), data, slot.getHora(), medico))
+                    .toList();
+        }
+
+        // Respondido pelo índice em memória; o banco só é lido antes da carga inicial ou para datas passadas
+        if (disponibilidadeIndex.cobre(data)) {
+            return disponibilidadeIndex.listarLivres(medico.getId(), data)
+                    .stream()
+                    .map(livre -> AgendaMedicaSlotMapper.toDTOLivre(livre.id(), data, livre.hora(), medico))
+                    .toList();
+        }
+
         return agendaSlotRepository.findByMedicoAndDataAndDisponivelTrue(medico, data)
                 .stream()
                 .map(AgendaMedicaSlotMapper::toDTO)
                 .toList();
     }
 
+    /**
+     * Grade de horários livres e ocupados de um médico entre duas datas, montada a partir de
+     * uma única consulta por faixa (medico_id, data) com projeção enxuta, sem carregar entidades.
+     */
+    public AgendaGradeDTO montarGrade(Long medicoId, LocalDate de, LocalDate ate, Integer granularidadeMinutos,
+                                      Usuario usuarioLogado) {
+        if (usuarioLogado.getPerfil() == PerfilUsuario.MEDICO &&
+                (usuarioLogado.getMedico() == null || !usuarioLogado.getMedico().getId().equals(medicoId))) {
+            throw new AccessDeniedException("Médico só pode acessar sua própria agenda.");
+        }
+        if (de == null || ate == null || ate.isBefore(de)) {
+            throw new IllegalArgumentException("Informe um período válido (de <= ate).");
+        }
+        if (ChronoUnit.DAYS.between(de, ate) >= MAX_DIAS_GRADE) {
+            throw new IllegalArgumentException("O período máximo da grade é de " + MAX_DIAS_GRADE + " dias.");
+        }
+        if (granularidadeMinutos != null && (granularidadeMinutos < 5 || granularidadeMinutos > 1440)) {
+            throw new IllegalArgumentException("A granularidade deve estar entre 5 e 1440 minutos.");
+        }
+
+        // Slot com hold vigente aparece como ocupado, como na listagem de horários livres
+        List<SlotResumo> slots = expedienteService.mesclarComExpediente(medicoId, de, ate,
+                agendaSlotRepository.findResumosLivresDeHoldPorMedicoEPeriodo(medicoId, de, ate, LocalDateTime.now()));
+
+        // Só confirma a existência do médico quando não há nenhum slot no período
+        if (slots.isEmpty() && !medicoRepository.existsById(medicoId)) {
+            throw new IllegalArgumentException("Médico não encontrado.");
+        }
+
+        List<AgendaGradeDTO.Dia> dias = new ArrayList<>();
+        int inicio = 0;
+        while (inicio < slots.size()) {
+            LocalDate data = slots.get(inicio).getData();
+            int fim = inicio;
+            while (fim < slots.size() && slots.get(fim).getData().equals(data)) fim++;
+
+            dias.add(montarDia(data, slots.subList(inicio, fim), granularidadeMinutos));
+            inicio = fim;
+        }
+
+        return AgendaGradeDTO.builder()
+                .medicoId(medicoId)
+                .de(de)
+                .ate(ate)
+                .granularidadeMinutos(granularidadeMinutos)
+                .dias(dias)
+                .build();
+    }
+
+    // Slots de um único dia, já ordenados por hora
+    private AgendaGradeDTO.Dia montarDia(LocalDate data, List<SlotResumo> slotsDoDia, Integer granularidadeMinutos) {
+        List<AgendaGradeDTO.Celula> celulas = new ArrayList<>();
+        int livresDia = 0;
+
+        int faixaAtual = -1;
+        int livresFaixa = 0;
+        int ocupadosFaixa = 0;
+
+        for (SlotResumo slot : slotsDoDia) {
+            boolean livre = Boolean.TRUE.equals(slot.getDisponivel());
+            if (livre) livresDia++;
+
+            if (granularidadeMinutos == null) {
+                celulas.add(new AgendaGradeDTO.Celula(slot.getHora(), slot.getId(), livre ? 1 : 0, livre ? 0 : 1));
+                continue;
+            }
+
+            int minuto = slot.getHora().toSecondOfDay() / 60;
+            int faixa = minuto - minuto % granularidadeMinutos;
+            if (faixa != faixaAtual) {
+                if (faixaAtual >= 0) {
+                    celulas.add(new AgendaGradeDTO.Celula(LocalTime.of(faixaAtual / 60, faixaAtual % 60), null, livresFaixa, ocupadosFaixa));
+                }
+                faixaAtual = faixa;
+                livresFaixa = 0;
+                ocupadosFaixa = 0;
+            }
+            if (livre) livresFaixa++;
+            else ocupadosFaixa++;
+        }
+        if (faixaAtual >= 0) {
+            celulas.add(new AgendaGradeDTO.Celula(LocalTime.of(faixaAtual / 60, faixaAtual % 60), null, livresFaixa, ocupadosFaixa));
+        }
+
+        return new AgendaGradeDTO.Dia(data, livresDia, slotsDoDia.size() - livresDia, celulas);
+    }
+
+    /**
+     * N primeiros horários livres entre todos os médicos de uma especialidade.
+     * Cada médico fornece um cursor ordenado a partir do índice em memória e os cursores
+     * são intercalados por uma fila de prioridade (merge k-way), parando ao atingir a quantidade.
+     * Horários calculados de expediente (sem linha ainda) vêm com id nulo e são agendados por /expediente/agendar.
+     */
+    public List<AgendaMedicaRespostaDTO> buscarPrimeirosDisponiveis(String especialidade, LocalDateTime aPartirDe,
+                                                                    int quantidade) {
+        if (especialidade == null || especialidade.isBlank()) {
+            throw new IllegalArgumentException("Informe a especialidade.");
+        }
+        if (quantidade < 1 || quantidade > MAX_PRIMEIROS_DISPONIVEIS) {
+            throw new IllegalArgumentException("A quantidade deve estar entre 1 e " + MAX_PRIMEIROS_DISPONIVEIS + ".");
+        }
+
+        Map<Long, MedicoResumoDTO> medicos = medicoRepository.findResumosPorEspecialidade(especialidade)
+                .stream()
+                .collect(Collectors.toMap(MedicoResumoDTO::getId, Function.identity()));
+        if (medicos.isEmpty()) return List.of();
+
+        List<AgendaMedicaRespostaDTO> gravados = buscarPrimeirosGravados(especialidade, aPartirDe, quantidade, medicos);
+
+        // Médicos com expediente também têm horários livres que ainda não viraram linha (id nulo): os primeiros de
+        // cada um entram na disputa com os slots gravados
+        List<AgendaMedicaRespostaDTO> calculados = medicos.keySet().stream()
+                .filter(expedienteService::possuiExpediente)
+                .flatMap(medicoId -> expedienteService.primeirosLivres(medicoId, aPartirDe, quantidade).stream())
+                .map(s -> AgendaMedicaSlotMapper.toDTOLivre(null, s.data(), s.hora(), s.medicoId(),
+                        medicos.get(s.medicoId()).getNome()))
+                .toList();
+        if (calculados.isEmpty()) return gravados;
+
+        List<AgendaMedicaRespostaDTO> todos = new ArrayList<>(gravados.size() + calculados.size());
+        todos.addAll(gravados);
+        todos.addAll(calculados);
+        todos.sort(Comparator.comparing(AgendaMedicaRespostaDTO::getData)
+                .thenComparing(AgendaMedicaRespostaDTO::getHora)
+                .thenComparing(AgendaMedicaRespostaDTO::getMedicoId));
+        return todos.size() > quantidade ? todos.subList(0, quantidade) : todos;
+    }
+
+    private List<AgendaMedicaRespostaDTO> buscarPrimeirosGravados(String especialidade, LocalDateTime aPartirDe,
+                                                                  int quantidade, Map<Long, MedicoResumoDTO> medicos) {
+        // Antes da carga do índice (ou para instantes no passado) a busca vai direto ao banco
+        if (!disponibilidadeIndex.cobre(aPartirDe.toLocalDate())) {
+            return agendaSlotRepository.findPrimeirosLivresPorEspecialidade(
+                            especialidade, aPartirDe.toLocalDate(), aPartirDe.toLocalTime(), LocalDateTime.now(),
+                            PageRequest.of(0, quantidade))
+                    .stream()
+                    .map(s -> AgendaMedicaSlotMapper.toDTOLivre(s.getId(), s.getData(), s.getHora(),
+                            s.getMedicoId(), medicos.get(s.getMedicoId()).getNome()))
+                    .toList();
+        }
+
+        PriorityQueue<AgendaDisponibilidadeIndex.CursorLivres> fila = new PriorityQueue<>(medicos.size(),
+                (a, b) -> AgendaDisponibilidadeIndex.HorarioLivre.ORDEM_CRONOLOGICA.compare(a.atual(), b.atual()));
+        for (Long medicoId : medicos.keySet()) {
+            AgendaDisponibilidadeIndex.CursorLivres cursor = disponibilidadeIndex.cursorLivres(medicoId, aPartirDe);
+            if (cursor.atual() != null) fila.add(cursor);
+        }
+
+        List<AgendaMedicaRespostaDTO> resultado = new ArrayList<>(quantidade);
+        while (!fila.isEmpty() && resultado.size() < quantidade) {
+            AgendaDisponibilidadeIndex.CursorLivres cursor = fila.poll();
+            AgendaDisponibilidadeIndex.HorarioLivre horario = cursor.atual();
+
+            resultado.add(AgendaMedicaSlotMapper.toDTOLivre(horario.slotId(), horario.data(), horario.hora(),
+                    horario.medicoId(), medicos.get(horario.medicoId()).getNome()));
+
+            if (cursor.avancar()) fila.add(cursor);
+        }
+        return resultado;
+    }
+
     public List<AgendaMedicaRespostaDTO> listarTodosSlots() {
         return agendaSlotRepository.findAll()
                 .stream()
@@ -45,6 +260,7 @@ public class AgendaMedicaSlotService {
                 .toList();
     }
 
+    @Transactional
     public AgendaMedicaRespostaDTO criarSlot(Medico medico, LocalDate data, LocalTime hora, Usuario usuarioLogado) {
         if (agendaSlotRepository.existsByMedicoAndDataAndHora(medico, data, hora)) {
             throw new IllegalArgumentException("Slot já existe para essa data e hora.");
@@ -57,7 +273,17 @@ public class AgendaMedicaSlotService {
                 .disponivel(true)
                 .build();
 
-        AgendaMedicaSlot salvo = agendaSlotRepository.save(slot);
+        AgendaMedicaSlot salvo;
+        try {
+            salvo = agendaSlotRepository.saveAndFlush(slot);
+        } catch (DataIntegrityViolationException e) {
+            // Mesmo slot criado em paralelo depois da verificação acima
+            if (ViolacaoRestricao.violou(e, AgendaMedicaSlot.UK_MEDICO_DATA_HORA)) {
+                throw new IllegalArgumentException("Slot já existe para essa data e hora.");
+            }
+            throw e;
+        }
+        eventPublisher.publishEvent(AgendaSlotAlteradoEvent.criado(salvo));
 
         auditLogService.registrarAcao(
                 usuarioLogado.getId(),
@@ -72,12 +298,127 @@ public class AgendaMedicaSlotService {
         return AgendaMedicaSlotMapper.toDTO(salvo);
     }
 
+    /**
+     * Expande um modelo semanal em slots. Os horários já existentes no período são lidos
+     * em uma única consulta e ignorados; os novos são inseridos em lotes (JDBC batch).
+     */
+    @Transactional
+    public AgendaRecorrenteRespostaDTO criarAgendaRecorrente(Medico medico, CriarAgendaRecorrenteRequest request,
+                                                             Usuario usuarioLogado) {
+        validarModeloRecorrente(request);
+
+        LocalDate inicio = request.getDataInicio();
+        LocalDate fim = inicio.plusWeeks(request.getSemanas()).minusDays(1);
+        int minutoInicial = request.getHoraInicio().toSecondOfDay() / 60;
+        int minutoFinal = request.getHoraFim().toSecondOfDay() / 60;
+
+        Set<LocalDateTime> existentes = agendaSlotRepository.findResumosPorMedicoEPeriodo(medico.getId(), inicio, fim)
+                .stream()
+                .map(s -> LocalDateTime.of(s.getData(), s.getHora()))
+                .collect(Collectors.toSet());
+
+        List<AgendaMedicaSlot> lote = new ArrayList<>(TAMANHO_LOTE);
+        int criados = 0;
+        int ignorados = 0;
+
+        for (LocalDate data = inicio; !data.isAfter(fim); data = data.plusDays(1)) {
+            if (!request.getDiasSemana().contains(data.getDayOfWeek())) continue;
+
+            for (int minuto = minutoInicial; minuto < minutoFinal; minuto += request.getIntervaloMinutos()) {
+                LocalTime hora = LocalTime.of(minuto / 60, minuto % 60);
+                if (existentes.contains(LocalDateTime.of(data, hora))) {
+                    ignorados++;
+                    continue;
+                }
+
+                lote.add(AgendaMedicaSlot.builder()
+                        .medico(medico)
+                        .data(data)
+                        .hora(hora)
+                        .disponivel(true)
+                        .build());
+
+                if (lote.size() == TAMANHO_LOTE) {
+                    criados += salvarLote(lote);
+                }
+            }
+        }
+        criados += salvarLote(lote);
+
+        auditLogService.registrarAcao(
+                usuarioLogado.getId(),
+                usuarioLogado.getEmail(),
+                usuarioLogado.getPerfil().name(),
+                "CRIAR_AGENDA_RECORRENTE",
+                "AgendaMedicaSlot",
+                null,
+                "Médico: " + medico.getNome() + ", Período: " + inicio + " a " + fim +
+                        ", Dias: " + request.getDiasSemana() + ", Horário: " + request.getHoraInicio() +
+                        "-" + request.getHoraFim() + " a cada " + request.getIntervaloMinutos() + " min" +
+                        ", Criados: " + criados + ", Ignorados: " + ignorados
+        );
+
+        return AgendaRecorrenteRespostaDTO.builder()
+                .medicoId(medico.getId())
+                .dataInicio(inicio)
+                .dataFim(fim)
+                .slotsCriados(criados)
+                .slotsIgnorados(ignorados)
+                .build();
+    }
+
+    // Envia o lote ao banco e limpa o contexto de persistência para manter a memória estável
+    private int salvarLote(List<AgendaMedicaSlot> lote) {
+        if (lote.isEmpty()) return 0;
+
+        agendaSlotRepository.saveAll(lote);
+        entityManager.flush();
+        lote.forEach(slot -> eventPublisher.publishEvent(AgendaSlotAlteradoEvent.criado(slot)));
+        entityManager.clear();
+
+        int quantidade = lote.size();
+        lote.clear();
+        return quantidade;
+    }
+
+    private void validarModeloRecorrente(CriarAgendaRecorrenteRequest request) {
+        if (request.getDataInicio() == null || request.getHoraInicio() == null || request.getHoraFim() == null) {
+            throw new IllegalArgumentException("Data de início, hora de início e hora de fim são obrigatórias.");
+        }
+        if (request.getDiasSemana() == null || request.getDiasSemana().isEmpty()) {
+            throw new IllegalArgumentException("Informe ao menos um dia da semana.");
+        }
+        if (request.getSemanas() == null || request.getSemanas() < 1 || request.getSemanas() > 52) {
+            throw new IllegalArgumentException("A quantidade de semanas deve estar entre 1 e 52.");
+        }
+        if (request.getIntervaloMinutos() == null || request.getIntervaloMinutos() < 5 || request.getIntervaloMinutos() > 240) {
+            throw new IllegalArgumentException("O intervalo deve estar entre 5 e 240 minutos.");
+        }
+        if (!request.getHoraInicio().isBefore(request.getHoraFim())) {
+            throw new IllegalArgumentException("A hora de início deve ser anterior à hora de fim.");
+        }
+
+        long minutosPorDia = Duration.between(request.getHoraInicio(), request.getHoraFim()).toMinutes();
+        long slotsPorDia = (minutosPorDia + request.getIntervaloMinutos() - 1) / request.getIntervaloMinutos();
+        long totalEstimado = slotsPorDia * request.getDiasSemana().size() * request.getSemanas();
+        if (totalEstimado > MAX_SLOTS_RECORRENTES) {
+            throw new IllegalArgumentException("O modelo geraria " + totalEstimado +
+                    " slots; o máximo por requisição é " + MAX_SLOTS_RECORRENTES + ".");
+        }
+    }
+
+    @Transactional
     public AgendaMedicaRespostaDTO setDisponivel(Long slotId, boolean disponivel, Usuario usuarioLogado) {
         AgendaMedicaSlot slot = agendaSlotRepository.findById(slotId)
                 .orElseThrow(() -> new IllegalArgumentException("Slot não encontrado."));
+        boolean alterado = slot.isDisponivel() != disponivel;
         slot.setDisponivel(disponivel);
         AgendaMedicaSlot salvo = agendaSlotRepository.save(slot);
 
+        if (alterado) {
+            eventPublisher.publishEvent(AgendaSlotAlteradoEvent.disponibilidadeAlterada(salvo));
+        }
+
         auditLogService.registrarAcao(
                 usuarioLogado.getId(),
                 usuarioLogado.getEmail(),
@@ -92,8 +433,11 @@ public class AgendaMedicaSlotService {
     }
 
     public AgendaMedicaRespostaDTO buscarPorId(Long slotId) {
-        AgendaMedicaSlot slot = agendaSlotRepository.findById(slotId)
+        return AgendaMedicaSlotMapper.toDTO(buscarEntidadePorId(slotId));
+    }
+
+    public AgendaMedicaSlot buscarEntidadePorId(Long slotId) {
+        return agendaSlotRepository.findById(slotId)
                 .orElseThrow(() -> new IllegalArgumentException("Slot não encontrado."));
-        return AgendaMedicaSlotMapper.toDTO(slot);
     }
 }
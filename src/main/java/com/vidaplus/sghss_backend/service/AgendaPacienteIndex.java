@@ -0,0 +1,188 @@
+package com.vidaplus.sghss_backend.service;
+
+import com.vidaplus.sghss_backend.exception.ConsultaSobrepostaException;
+import com.vidaplus.sghss_backend.repository.ConsultaRepository;
+import com.vidaplus.sghss_backend.repository.projection.ConsultaHorario;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Índice em memória das consultas agendadas de cada paciente, ordenadas pelo início.
+ * Como todas as consultas têm a mesma duração, dois intervalos se sobrepõem exatamente quando os inícios
+ * distam menos que a duração, então a busca de conflito é um higher() + poucos passos (O(log n)) no conjunto do paciente.
+ * Cada alteração é aplicada na hora (reserva provisória, barrando uma segunda marcação concorrente)
+ * e desfeita se a transação não for confirmada.
+ */
+@Component
+@RequiredArgsConstructor
+public class AgendaPacienteIndex {
+
+    private final ConsultaRepository consultaRepository;
+
+    @Value("${consulta.duracao-minutos:30}")
+    private int duracaoMinutos;
+
+    private final Map<Long, TreeSet<Ocupacao>> porPaciente = new ConcurrentHashMap<>();
+    private final Map<Long, Ocupacao> porConsulta = new ConcurrentHashMap<>();
+
+    // Consultas alteradas durante a carga inicial: a carga não sobrescreve o que já foi aplicado
+    private final Set<Long> alteradasNaCarga = ConcurrentHashMap.newKeySet();
+    private volatile boolean carregando = true;
+    private volatile LocalDate inicioCarga = LocalDate.MAX;
+
+    public record Ocupacao(Long consultaId, Long pacienteId, LocalDateTime inicio) {
+
+        static final Comparator<Ocupacao> ORDEM = Comparator
+                .comparing(Ocupacao::inicio)
+                .thenComparing(Ocupacao::consultaId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void carregar() {
+        LocalDate inicio = LocalDate.now();
+        inicioCarga = inicio;
+
+        try (Stream<ConsultaHorario> consultas = consultaRepository.streamAgendadasAPartirDe(inicio)) {
+            consultas.forEach(c -> {
+                synchronized (doPaciente(c.getPacienteId())) {
+                    if (alteradasNaCarga.contains(c.getId())) return;
+                    aplicar(c.getId(), new Ocupacao(c.getId(), c.getPacienteId(), LocalDateTime.of(c.getData(), c.getHora())));
+                }
+            });
+        }
+
+        carregando = false;
+        alteradasNaCarga.clear();
+    }
+
+    // Datas anteriores à carga não estão no índice; para elas a verificação não se aplica
+    public boolean cobre(LocalDate data) {
+        return !data.isBefore(inicioCarga);
+    }
+
+    public int getDuracaoMinutos() {
+        return duracaoMinutos;
+    }
+
+    /**
+     * Consultas agendadas do paciente que se sobrepõem a [data hora, + duração), exceto a informada
+     * (para remarcação). Vazio quando a data está fora do índice.
+     */
+    public List<Ocupacao> conflitos(Long pacienteId, LocalDate data, LocalTime hora, Long ignorarConsultaId) {
+        if (pacienteId == null || data == null || hora == null || !cobre(data)) return List.of();
+
+        TreeSet<Ocupacao> ocupacoes = porPaciente.get(pacienteId);
+        if (ocupacoes == null) return List.of();
+
+        LocalDateTime inicio = LocalDateTime.of(data, hora);
+        LocalDateTime limite = inicio.plusMinutes(duracaoMinutos);
+        List<Ocupacao> conflitos = new ArrayList<>(1);
+
+        synchronized (ocupacoes) {
+            // Primeira consulta que começa depois de (inicio - duração): as anteriores terminam antes do novo início
+            Ocupacao atual = ocupacoes.higher(new Ocupacao(Long.MAX_VALUE, pacienteId, inicio.minusMinutes(duracaoMinutos)));
+            while (atual != null && atual.inicio().isBefore(limite)) {
+                if (!atual.consultaId().equals(ignorarConsultaId)) conflitos.add(atual);
+                atual = ocupacoes.higher(atual);
+            }
+        }
+        return conflitos;
+    }
+
+    /**
+     * Registra (ou move) a consulta no horário informado, falhando com 409 se o paciente já tiver outra
+     * consulta sobreposta. Deve ser chamado dentro da transação que grava a consulta.
+     */
+    public void ocupar(Long consultaId, Long pacienteId, LocalDate data, LocalTime hora) {
+        if (pacienteId == null || data == null || hora == null || !cobre(data)) {
+            liberar(consultaId);
+            return;
+        }
+
+        Ocupacao nova = new Ocupacao(consultaId, pacienteId, LocalDateTime.of(data, hora));
+        TreeSet<Ocupacao> ocupacoes = doPaciente(pacienteId);
+
+        // Verificação e inserção sob a mesma trava: duas marcações simultâneas do mesmo paciente não passam juntas
+        synchronized (ocupacoes) {
+            List<Ocupacao> conflitos = conflitos(pacienteId, data, hora, consultaId);
+            if (!conflitos.isEmpty()) {
+                Ocupacao conflito = conflitos.get(0);
+                throw new ConsultaSobrepostaException("O paciente já tem consulta em " + conflito.inicio().toLocalDate() +
+                        " às " + conflito.inicio().toLocalTime() + " (consulta " + conflito.consultaId() + ").");
+            }
+            alterar(consultaId, nova);
+        }
+    }
+
+    // Consulta cancelada, excluída ou fora do status AGENDADA
+    public void liberar(Long consultaId) {
+        if (consultaId == null) return;
+        if (carregando) alteradasNaCarga.add(consultaId);
+
+        Ocupacao atual = porConsulta.get(consultaId);
+        if (atual == null) return;
+        synchronized (doPaciente(atual.pacienteId())) {
+            alterar(consultaId, null);
+        }
+    }
+
+    // Chamado com a trava do paciente
+    private void alterar(Long consultaId, Ocupacao nova) {
+        if (carregando) alteradasNaCarga.add(consultaId);
+        Ocupacao anterior = aplicar(consultaId, nova);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        aplicar(consultaId, anterior);
+                    }
+                }
+            });
+        }
+    }
+
+    // Troca a ocupação atual da consulta pela nova (null remove) e devolve a anterior
+    private Ocupacao aplicar(Long consultaId, Ocupacao nova) {
+        Ocupacao anterior = nova != null ? porConsulta.put(consultaId, nova) : porConsulta.remove(consultaId);
+
+        if (anterior != null) {
+            TreeSet<Ocupacao> ocupacoes = doPaciente(anterior.pacienteId());
+            synchronized (ocupacoes) {
+                ocupacoes.remove(anterior);
+            }
+        }
+        if (nova != null) {
+            TreeSet<Ocupacao> ocupacoes = doPaciente(nova.pacienteId());
+            synchronized (ocupacoes) {
+                ocupacoes.add(nova);
+            }
+        }
+        return anterior;
+    }
+
+    // O próprio conjunto serve de trava para as leituras e escritas de um paciente
+    private TreeSet<Ocupacao> doPaciente(Long pacienteId) {
+        return porPaciente.computeIfAbsent(pacienteId, id -> new TreeSet<>(Ocupacao.ORDEM));
+    }
+}
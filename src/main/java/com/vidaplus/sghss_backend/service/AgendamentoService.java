@@ -1,51 +1,291 @@
 package com.vidaplus.sghss_backend.service;
 
 import com.vidaplus.sghss_backend.dto.AgendaMedicaRespostaDTO;
+import com.vidaplus.sghss_backend.dto.AgendamentoSerieRespostaDTO;
+import com.vidaplus.sghss_backend.dto.AgendarSerieRequest;
 import com.vidaplus.sghss_backend.dto.CriarConsultaRequest;
 import com.vidaplus.sghss_backend.dto.VincularConsultaRequest;
-import com.vidaplus.sghss_backend.model.Consulta;
+import com.vidaplus.sghss_backend.event.AgendaSlotAlteradoEvent;
+import com.vidaplus.sghss_backend.exception.SlotIndisponivelException;
+import com.vidaplus.sghss_backend.model.AgendaMedicaSlot;
 import com.vidaplus.sghss_backend.model.Medico;
+import com.vidaplus.sghss_backend.model.Paciente;
 import com.vidaplus.sghss_backend.model.Usuario;
+import com.vidaplus.sghss_backend.model.enums.PerfilUsuario;
+import com.vidaplus.sghss_backend.model.enums.StatusConsulta;
+import com.vidaplus.sghss_backend.repository.AgendaMedicaSlotRepository;
+import com.vidaplus.sghss_backend.repository.MedicoRepository;
+import com.vidaplus.sghss_backend.repository.PacienteRepository;
+import com.vidaplus.sghss_backend.repository.projection.SlotResumo;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @Service
 @RequiredArgsConstructor
 public class AgendamentoService {
 
+    private static final int MAX_SESSOES_SERIE = 52;
+
+    private static final String SQL_INSERIR_CONSULTA =
+            "INSERT INTO consultas (data, hora, status, paciente_id, medico_id, valor) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SQL_VINCULAR_SLOT =
+            "UPDATE agenda_medica_slots SET consulta_id = ? WHERE id = ?";
+
     private final AgendaMedicaSlotService agendaSlotService;
     private final ConsultaService consultaService;
-    private final MedicoService medicoService;
     private final AuditLogService auditLogService;
+    private final AgendaMedicaSlotRepository agendaSlotRepository;
+    private final PacienteRepository pacienteRepository;
+    private final MedicoRepository medicoRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AgendaExpedienteService expedienteService;
+    private final AgendaPacienteIndex agendaPacienteIndex;
 
     /**
-     * Agendar uma consulta usando um slot já existente
+     * Agendar uma consulta usando um slot já existente.
+     * A disputa pelo slot é resolvida no UPDATE condicional de ConsultaService.criarConsulta,
+     * dentro da mesma transação: quem perde recebe 409 e nada é gravado.
+     * Se o usuário tiver um hold no slot (POST /agenda-medica/{slotId}/reserva), esta chamada o confirma.
      */
+    @Transactional
     public AgendaMedicaRespostaDTO vincularConsulta(Long slotId, CriarConsultaRequest request, Usuario usuarioLogado) {
 
-        // 1️⃣ Buscar slot existente
-        AgendaMedicaRespostaDTO slotDTO = agendaSlotService.buscarPorId(slotId);
+        // 1️⃣ Buscar slot existente (falha rápida se já estiver ocupado)
+        AgendaMedicaSlot slot = agendaSlotService.buscarEntidadePorId(slotId);
 
-        if (!slotDTO.isDisponivel()) {
-            throw new IllegalStateException("Este slot já está ocupado.");
+        if (!slot.isDisponivel()) {
+            throw new SlotIndisponivelException("Este slot já está ocupado.");
+        }
+        if (slot.isReservadoPorOutro(usuarioLogado.getId(), LocalDateTime.now())) {
+            throw new SlotIndisponivelException("Este slot está reservado temporariamente por outro usuário.");
         }
 
         // 2️⃣ Garantir autorização
-        Medico medico = medicoService.buscarEntidadePorId(slotDTO.getMedicoId(), usuarioLogado);
+        Medico medico = slot.getMedico();
 
         if (usuarioLogado.getPerfil() == com.vidaplus.sghss_backend.model.enums.PerfilUsuario.MEDICO &&
                 !medico.getUsuario().getId().equals(usuarioLogado.getId())) {
             throw new AccessDeniedException("Médico só pode agendar em seus próprios slots.");
         }
 
-        // 3️⃣ Configurar request para incluir o slot
+        // 3️⃣ Configurar request a partir do slot (médico, data e hora vêm da agenda)
         request.setAgendaSlotId(slotId);
+        request.setMedicoId(medico.getId());
+        request.setData(slot.getData());
+        request.setHora(slot.getHora());
 
-        // 4️⃣ Criar consulta (vai vincular o slot automaticamente)
-        Consulta consulta = consultaService.criarConsulta(request, usuarioLogado);
+        // 4️⃣ Criar consulta (reserva o slot de forma atômica)
+        consultaService.criarConsulta(request, usuarioLogado);
 
         // 5️⃣ Retornar DTO atualizado do slot
         return agendaSlotService.buscarPorId(slotId);
     }
+
+    /**
+     * Agendar um horário do expediente do médico (slot calculado, sem id). A linha do slot é criada
+     * e ocupada na mesma transação: se o agendamento falhar, nenhum slot livre fica gravado.
+     */
+    @Transactional
+    public AgendaMedicaRespostaDTO agendarHorario(Long medicoId, LocalDate data, LocalTime hora,
+                                                  CriarConsultaRequest request, Usuario usuarioLogado) {
+        Long slotId = expedienteService.materializar(medicoId, data, hora);
+        return vincularConsulta(slotId, request, usuarioLogado);
+    }
+
+    /**
+     * Agenda uma série de sessões (ex.: fisioterapia semanal) de uma vez, tudo ou nada:
+     * um único UPDATE condicional ocupa todos os slots, as consultas entram num INSERT em lote
+     * e os vínculos slot → consulta em outro lote. Se algum slot não estiver livre, nada é gravado (409).
+     */
+    @Transactional
+    public AgendamentoSerieRespostaDTO agendarSerie(AgendarSerieRequest request, Usuario usuarioLogado) {
+        if (usuarioLogado.getPerfil() != PerfilUsuario.ADMIN &&
+                usuarioLogado.getPerfil() != PerfilUsuario.MEDICO) {
+            throw new AccessDeniedException("Usuário não autorizado para criar consultas.");
+        }
+        if (request.getPacienteId() == null) {
+            throw new IllegalArgumentException("Informe o paciente da série.");
+        }
+
+        // 1️⃣ Slots da série (lista explícita ou regra de recorrência)
+        List<SlotResumo> slots = resolverSlotsDaSerie(request);
+
+        Set<Long> medicos = slots.stream().map(SlotResumo::getMedicoId).collect(Collectors.toSet());
+        if (medicos.size() != 1) {
+            throw new IllegalArgumentException("Todas as sessões da série devem ser com o mesmo médico.");
+        }
+        Long medicoId = medicos.iterator().next();
+
+        // 2️⃣ Autorização e paciente (uma leitura de cada)
+        Medico medico = medicoRepository.findById(medicoId)
+                .orElseThrow(() -> new EntityNotFoundException("Médico não encontrado."));
+        if (usuarioLogado.getPerfil() == PerfilUsuario.MEDICO &&
+                (medico.getUsuario() == null || !medico.getUsuario().getId().equals(usuarioLogado.getId()))) {
+            throw new AccessDeniedException("Médico só pode agendar em seus próprios slots.");
+        }
+        Paciente paciente = pacienteRepository.findById(request.getPacienteId())
+                .orElseThrow(() -> new EntityNotFoundException("Paciente não encontrado."));
+
+        // 3️⃣ Ocupa todos os slots num único UPDATE; se algum já estava ocupado, a transação é desfeita
+        List<Long> slotIds = slots.stream().map(SlotResumo::getId).toList();
+        if (ocuparSlots(slotIds, usuarioLogado.getId()) != slotIds.size()) {
+            throw new SlotIndisponivelException("Um ou mais slots da série já estão ocupados ou reservados por outro usuário.");
+        }
+
+        // 4️⃣ Consultas em lote e vínculo de cada slot com sua consulta
+        BigDecimal valor = request.getValor() != null ? request.getValor() : BigDecimal.ZERO;
+        List<Long> consultaIds = inserirConsultas(slots, paciente.getId(), medicoId, valor);
+        for (int i = 0; i < slots.size(); i++) {
+            agendaPacienteIndex.ocupar(consultaIds.get(i), paciente.getId(), slots.get(i).getData(), slots.get(i).getHora());
+        }
+
+        List<Object[]> vinculos = new ArrayList<>(slots.size());
+        for (int i = 0; i < slots.size(); i++) {
+            vinculos.add(new Object[]{consultaIds.get(i), slotIds.get(i)});
+        }
+        jdbcTemplate.batchUpdate(SQL_VINCULAR_SLOT, vinculos);
+
+        List<AgendamentoSerieRespostaDTO.Sessao> sessoes = new ArrayList<>(slots.size());
+        for (int i = 0; i < slots.size(); i++) {
+            SlotResumo slot = slots.get(i);
+            sessoes.add(new AgendamentoSerieRespostaDTO.Sessao(consultaIds.get(i), slot.getId(), slot.getData(), slot.getHora()));
+            eventPublisher.publishEvent(AgendaSlotAlteradoEvent.disponibilidadeAlterada(
+                    slot.getId(), medicoId, slot.getData(), slot.getHora(), false));
+        }
+
+        auditLogService.registrarAcao(
+                usuarioLogado.getId(),
+                usuarioLogado.getEmail(),
+                usuarioLogado.getPerfil().name(),
+                "AGENDAR_SERIE",
+                "Consulta",
+                consultaIds.get(0),
+                "Paciente: " + paciente.getNome() + ", Médico: " + medico.getNome() +
+                        ", Sessões: " + sessoes.size() + " (" + slots.get(0).getData() + " a " +
+                        slots.get(slots.size() - 1).getData() + "), Consultas: " + consultaIds
+        );
+
+        return AgendamentoSerieRespostaDTO.builder()
+                .pacienteId(paciente.getId())
+                .medicoId(medicoId)
+                .sessoes(sessoes)
+                .build();
+    }
+
+    private List<SlotResumo> resolverSlotsDaSerie(AgendarSerieRequest request) {
+        boolean porLista = request.getSlotIds() != null && !request.getSlotIds().isEmpty();
+
+        if (porLista) {
+            Set<Long> ids = new LinkedHashSet<>(request.getSlotIds());
+            if (ids.size() != request.getSlotIds().size()) {
+                throw new IllegalArgumentException("A lista de slots contém repetições.");
+            }
+            validarQuantidade(ids.size());
+
+            List<SlotResumo> slots = agendaSlotRepository.findResumosPorIds(ids);
+            if (slots.size() != ids.size()) {
+                throw new EntityNotFoundException("Um ou mais slots da série não foram encontrados.");
+            }
+            return slots;
+        }
+
+        if (request.getMedicoId() == null || request.getDataInicio() == null ||
+                request.getHora() == null || request.getSessoes() == null) {
+            throw new IllegalArgumentException("Informe os slots ou a regra da série (médico, dataInicio, hora e sessões).");
+        }
+        validarQuantidade(request.getSessoes());
+        int intervalo = request.getIntervaloDias() != null ? request.getIntervaloDias() : 7;
+        if (intervalo < 1) {
+            throw new IllegalArgumentException("O intervalo entre sessões deve ser de pelo menos 1 dia.");
+        }
+
+        List<LocalDate> datas = new ArrayList<>(request.getSessoes());
+        for (int i = 0; i < request.getSessoes(); i++) {
+            datas.add(request.getDataInicio().plusDays((long) i * intervalo));
+        }
+
+        List<SlotResumo> slots = agendaSlotRepository.findResumosPorMedicoHoraEDatas(
+                request.getMedicoId(), request.getHora(), datas);
+        if (slots.size() != datas.size()) {
+            Set<LocalDate> encontradas = slots.stream().map(SlotResumo::getData).collect(Collectors.toSet());
+            List<LocalDate> faltando = datas.stream().filter(d -> !encontradas.contains(d)).toList();
+            throw new IllegalArgumentException("Não há slot na agenda às " + request.getHora() + " em: " + faltando);
+        }
+        return slots;
+    }
+
+    private static void validarQuantidade(int sessoes) {
+        if (sessoes < 1 || sessoes > MAX_SESSOES_SERIE) {
+            throw new IllegalArgumentException("Uma série deve ter entre 1 e " + MAX_SESSOES_SERIE + " sessões.");
+        }
+    }
+
+    // UPDATE único para todos os slots; as linhas são travadas na ordem da chave primária
+    private int ocuparSlots(List<Long> slotIds, Long usuarioId) {
+        String marcadores = slotIds.stream().map(id -> "?").collect(Collectors.joining(", "));
+        String sql = "UPDATE agenda_medica_slots SET disponivel = FALSE, reserva_expira_em = NULL, reservado_por_id = NULL " +
+                "WHERE id IN (" + marcadores + ") AND disponivel = TRUE AND consulta_id IS NULL " +
+                "AND (reserva_expira_em IS NULL OR reserva_expira_em <= ? OR reservado_por_id = ?)";
+
+        List<Object> parametros = new ArrayList<>(slotIds);
+        parametros.add(Timestamp.valueOf(LocalDateTime.now()));
+        parametros.add(usuarioId);
+        return jdbcTemplate.update(sql, parametros.toArray());
+    }
+
+    private List<Long> inserirConsultas(List<SlotResumo> slots, Long pacienteId, Long medicoId, BigDecimal valor) {
+        KeyHolder chaves = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(SQL_INSERIR_CONSULTA, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        SlotResumo slot = slots.get(i);
+                        ps.setDate(1, Date.valueOf(slot.getData()));
+                        ps.setTime(2, Time.valueOf(slot.getHora()));
+                        ps.setString(3, StatusConsulta.AGENDADA.name());
+                        ps.setLong(4, pacienteId);
+                        ps.setLong(5, medicoId);
+                        ps.setBigDecimal(6, valor);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return slots.size();
+                    }
+                },
+                chaves);
+
+        List<Long> ids = new ArrayList<>(slots.size());
+        for (Map<String, Object> chave : chaves.getKeyList()) {
+            ids.add(((Number) chave.values().iterator().next()).longValue());
+        }
+        return ids;
+    }
 }
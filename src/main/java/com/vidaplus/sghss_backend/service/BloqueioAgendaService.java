@@ -0,0 +1,206 @@
+package com.vidaplus.sghss_backend.service;
+
+import com.vidaplus.sghss_backend.dto.BloqueioAgendaRespostaDTO;
+import com.vidaplus.sghss_backend.dto.BloquearAgendaRequest;
+import com.vidaplus.sghss_backend.event.AgendaSlotAlteradoEvent;
+import com.vidaplus.sghss_backend.model.AgendaMedicaSlot;
+import com.vidaplus.sghss_backend.model.Medico;
+import com.vidaplus.sghss_backend.model.Notificacao;
+import com.vidaplus.sghss_backend.model.Usuario;
+import com.vidaplus.sghss_backend.model.enums.PerfilUsuario;
+import com.vidaplus.sghss_backend.model.enums.StatusConsulta;
+import com.vidaplus.sghss_backend.model.enums.TipoNotificacao;
+import com.vidaplus.sghss_backend.repository.AgendaMedicaSlotRepository;
+import com.vidaplus.sghss_backend.repository.NotificacaoRepository;
+import com.vidaplus.sghss_backend.repository.PacienteRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bloqueio de um período inteiro da agenda de um médico.
+ * Os slots do período são lidos e travados numa única consulta, os livres são fechados num único UPDATE
+ * e os pacientes com consulta no período recebem a notificação pelo NotificacaoRepository, numa só chamada.
+ * Horários de expediente ainda sem linha são gravados já bloqueados.
+ */
+@Service
+@RequiredArgsConstructor
+public class BloqueioAgendaService {
+
+    private static final int MAX_DIAS_BLOQUEIO = 366;
+    private static final DateTimeFormatter DATA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter HORA = DateTimeFormatter.ofPattern("HH:mm");
+
+    private static final int TAMANHO_MENSAGEM = 255; // coluna mensagem de notificacao (padrão do Hibernate)
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditLogService auditLogService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AgendaMedicaSlotRepository agendaSlotRepository;
+    private final AgendaExpedienteService expedienteService;
+    private final NotificacaoRepository notificacaoRepository;
+    private final PacienteRepository pacienteRepository;
+
+    private record SlotDoPeriodo(Long id, LocalDate data, LocalTime hora, boolean disponivel,
+                                 Long consultaId, String statusConsulta, Long pacienteId, String pacienteNome) {}
+
+    @Transactional
+    public BloqueioAgendaRespostaDTO bloquearPeriodo(Medico medico, BloquearAgendaRequest request, Usuario usuarioLogado) {
+        if (usuarioLogado.getPerfil() == PerfilUsuario.PACIENTE) {
+            throw new AccessDeniedException("Paciente não pode bloquear a agenda.");
+        }
+        if (usuarioLogado.getPerfil() == PerfilUsuario.MEDICO &&
+                !medico.getUsuario().getId().equals(usuarioLogado.getId())) {
+            throw new AccessDeniedException("Médico só pode bloquear a própria agenda.");
+        }
+        validar(request);
+
+        // Critério do período, o mesmo na leitura e no UPDATE
+        StringBuilder filtro = new StringBuilder("s.medico_id = ? AND s.data BETWEEN ? AND ?");
+        List<Object> parametros = new ArrayList<>(List.of(medico.getId(), Date.valueOf(request.getDe()), Date.valueOf(request.getAte())));
+        if (request.getHoraInicio() != null) {
+            filtro.append(" AND s.hora >= ? AND s.hora < ?");
+            parametros.add(Time.valueOf(request.getHoraInicio()));
+            parametros.add(Time.valueOf(request.getHoraFim()));
+        }
+
+        // 1️⃣ Slots do período com a consulta vinculada, travados até o fim da transação
+        List<SlotDoPeriodo> slots = jdbcTemplate.query(
+                "SELECT s.id, s.data, s.hora, s.disponivel, c.id AS consulta_id, c.status, p.id AS paciente_id, p.nome " +
+                        "FROM agenda_medica_slots s " +
+                        "LEFT JOIN consultas c ON c.id = s.consulta_id " +
+                        "LEFT JOIN pacientes p ON p.id = c.paciente_id " +
+                        "WHERE " + filtro + " ORDER BY s.id FOR UPDATE OF s",
+                (rs, i) -> new SlotDoPeriodo(
+                        rs.getLong("id"),
+                        rs.getDate("data").toLocalDate(),
+                        rs.getTime("hora").toLocalTime(),
+                        rs.getBoolean("disponivel"),
+                        rs.getObject("consulta_id", Long.class),
+                        rs.getString("status"),
+                        rs.getObject("paciente_id", Long.class),
+                        rs.getString("nome")),
+                parametros.toArray());
+
+        // 2️⃣ Um único UPDATE fecha todos os slots livres do período
+        int bloqueados = jdbcTemplate.update(
+                "UPDATE agenda_medica_slots s SET s.disponivel = FALSE " +
+                        "WHERE " + filtro + " AND s.disponivel = TRUE AND s.consulta_id IS NULL",
+                parametros.toArray());
+
+        // Horários do expediente no período que ainda não tinham linha passam a existir como bloqueados
+        bloqueados += materializarBloqueados(medico, request, slots);
+
+        List<BloqueioAgendaRespostaDTO.ConsultaAfetada> afetadas = new ArrayList<>();
+        for (SlotDoPeriodo slot : slots) {
+            if (slot.disponivel() && slot.consultaId() == null) {
+                eventPublisher.publishEvent(AgendaSlotAlteradoEvent.disponibilidadeAlterada(
+                        slot.id(), medico.getId(), slot.data(), slot.hora(), false));
+            } else if (slot.consultaId() != null && StatusConsulta.AGENDADA.name().equals(slot.statusConsulta())) {
+                afetadas.add(new BloqueioAgendaRespostaDTO.ConsultaAfetada(
+                        slot.consultaId(), slot.id(), slot.pacienteId(), slot.pacienteNome(), slot.data(), slot.hora()));
+            }
+        }
+
+        // 3️⃣ Avisos aos pacientes afetados, na mesma tabela lida por /pacientes/notificacoes
+        if (!afetadas.isEmpty()) {
+            LocalDateTime agora = LocalDateTime.now();
+            List<Notificacao> notificacoes = afetadas.stream()
+                    .map(c -> Notificacao.builder()
+                            .paciente(pacienteRepository.getReferenceById(c.pacienteId()))
+                            .mensagem(mensagem(medico, c, request.getMotivo()))
+                            .tipo(TipoNotificacao.AGENDA_BLOQUEADA)
+                            .dataCriacao(agora)
+                            .lida(false)
+                            .build())
+                    .toList();
+            notificacaoRepository.saveAll(notificacoes);
+        }
+
+        auditLogService.registrarAcao(
+                usuarioLogado.getId(),
+                usuarioLogado.getEmail(),
+                usuarioLogado.getPerfil().name(),
+                "BLOQUEAR_AGENDA",
+                "AgendaMedicaSlot",
+                null,
+                "Médico: " + medico.getNome() + ", Período: " + request.getDe() + " a " + request.getAte() +
+                        (request.getHoraInicio() != null ? " (" + request.getHoraInicio() + "-" + request.getHoraFim() + ")" : "") +
+                        ", Slots bloqueados: " + bloqueados + ", Consultas afetadas: " + afetadas.size() +
+                        (request.getMotivo() != null ? ", Motivo: " + request.getMotivo() : "")
+        );
+
+        return BloqueioAgendaRespostaDTO.builder()
+                .medicoId(medico.getId())
+                .de(request.getDe())
+                .ate(request.getAte())
+                .slotsBloqueados(bloqueados)
+                .consultasAfetadas(afetadas)
+                .build();
+    }
+
+    private int materializarBloqueados(Medico medico, BloquearAgendaRequest request, List<SlotDoPeriodo> gravados) {
+        Set<LocalDateTime> existentes = gravados.stream()
+                .map(slot -> LocalDateTime.of(slot.data(), slot.hora()))
+                .collect(Collectors.toSet());
+
+        List<AgendaMedicaSlot> novos = new ArrayList<>();
+        expedienteService.horariosDoExpediente(medico.getId(), request.getDe(), request.getAte()).forEach((data, horas) -> {
+            for (LocalTime hora : horas) {
+                if (request.getHoraInicio() != null &&
+                        (hora.isBefore(request.getHoraInicio()) || !hora.isBefore(request.getHoraFim()))) continue;
+                if (existentes.contains(LocalDateTime.of(data, hora))) continue;
+
+                novos.add(AgendaMedicaSlot.builder()
+                        .medico(medico)
+                        .data(data)
+                        .hora(hora)
+                        .disponivel(false)
+                        .build());
+            }
+        });
+        if (novos.isEmpty()) return 0;
+
+        agendaSlotRepository.saveAllAndFlush(novos);
+        novos.forEach(slot -> eventPublisher.publishEvent(AgendaSlotAlteradoEvent.criado(slot)));
+        return novos.size();
+    }
+
+    private static void validar(BloquearAgendaRequest request) {
+        if (request.getDe() == null || request.getAte() == null || request.getAte().isBefore(request.getDe())) {
+            throw new IllegalArgumentException("Informe um período válido (de <= ate).");
+        }
+        if (ChronoUnit.DAYS.between(request.getDe(), request.getAte()) >= MAX_DIAS_BLOQUEIO) {
+            throw new IllegalArgumentException("O período máximo de bloqueio é de " + MAX_DIAS_BLOQUEIO + " dias.");
+        }
+        if ((request.getHoraInicio() == null) != (request.getHoraFim() == null)) {
+            throw new IllegalArgumentException("Informe horaInicio e horaFim juntos (ou nenhum dos dois).");
+        }
+        if (request.getHoraInicio() != null && !request.getHoraInicio().isBefore(request.getHoraFim())) {
+            throw new IllegalArgumentException("A hora inicial deve ser anterior à hora final.");
+        }
+    }
+
+    private static String mensagem(Medico medico, BloqueioAgendaRespostaDTO.ConsultaAfetada consulta, String motivo) {
+        String texto = "Sua consulta de " + consulta.data().format(DATA) + " às " + consulta.hora().format(HORA) +
+                " com " + medico.getNome() + " foi afetada por um bloqueio na agenda do médico" +
+                (motivo != null && !motivo.isBlank() ? " (" + motivo + ")" : "") +
+                ". Entraremos em contato para remarcar.";
+        return texto.length() > TAMANHO_MENSAGEM ? texto.substring(0, TAMANHO_MENSAGEM) : texto;
+    }
+}
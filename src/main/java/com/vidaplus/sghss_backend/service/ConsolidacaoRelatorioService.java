@@ -0,0 +1,199 @@
+package com.vidaplus.sghss_backend.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vidaplus.sghss_backend.dto.AdminRespostaDTO;
+import com.vidaplus.sghss_backend.model.Relatorio;
+import com.vidaplus.sghss_backend.model.Usuario;
+import com.vidaplus.sghss_backend.model.enums.PerfilUsuario;
+import com.vidaplus.sghss_backend.repository.RelatorioRepository;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Visão consolidada de um relatório incremental: o relatório completo da base mais todos os deltas da cadeia,
+ * com cada registro na versão mais recente. As seções de todos os relatórios estão ordenadas por id, então a
+ * junção é um merge de K listas ordenadas (fila de prioridade por id; no empate vence o relatório mais novo),
+ * lendo um item de cada arquivo por vez: a memória depende do tamanho da cadeia, não do número de linhas.
+ * Exclusões não aparecem nos deltas, então um registro removido continua na visão com a última versão conhecida.
+ */
+@Service
+@RequiredArgsConstructor
+public class ConsolidacaoRelatorioService {
+
+    private static final List<String> SECOES = List.of("pacientes", "medicos", "consultas", "prontuarios", "slots");
+    // Uma cadeia de um ano de deltas diários ainda cabe; acima disso vale gerar um novo relatório completo
+    private static final int MAX_CADEIA = 400;
+    private static final int BUFFER_GZIP = 64 * 1024;
+
+    private final RelatorioRepository relatorioRepository;
+    private final RelatorioService relatorioService;
+    private final ObjectMapper objectMapper;
+
+    public StreamingResponseBody consolidar(Long relatorioId, Usuario usuarioLogado) {
+        if (usuarioLogado.getPerfil() != PerfilUsuario.ADMIN) {
+            throw new AccessDeniedException("Apenas administradores podem acessar relatórios.");
+        }
+
+        List<Relatorio> cadeia = montarCadeia(relatorioId);
+        return saida -> escreverConsolidado(cadeia, usuarioLogado, saida);
+    }
+
+    // Do relatório completo (primeiro) ao delta pedido (último)
+    private List<Relatorio> montarCadeia(Long relatorioId) {
+        Deque<Relatorio> cadeia = new ArrayDeque<>();
+        Relatorio atual = buscar(relatorioId);
+        while (true) {
+            if (atual.getMarcaDagua() == null) {
+                throw new IllegalArgumentException("O relatório " + atual.getId() +
+                        " não tem marca d'água (não é um relatório completo ou incremental).");
+            }
+            cadeia.addFirst(atual);
+            if (atual.getBaseRelatorioId() == null) break;
+
+            if (cadeia.size() >= MAX_CADEIA) {
+                throw new IllegalArgumentException("Cadeia com mais de " + MAX_CADEIA +
+                        " relatórios; gere um novo relatório completo.");
+            }
+            atual = buscar(atual.getBaseRelatorioId());
+        }
+        return new ArrayList<>(cadeia);
+    }
+
+    private Relatorio buscar(Long id) {
+        return relatorioRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Relatório " + id + " não encontrado."));
+    }
+
+    private void escreverConsolidado(List<Relatorio> cadeia, Usuario usuarioLogado, OutputStream saida) throws IOException {
+        List<Path> arquivos = new ArrayList<>();
+        List<JsonParser> leitores = new ArrayList<>();
+        try {
+            // Cada conteúdo é copiado (ainda em gzip) para um arquivo antes do merge: uma conexão por vez, não K abertas
+            for (Relatorio relatorio : cadeia) {
+                Path arquivo = Files.createTempFile("consolidado-" + relatorio.getId() + "-", ".json.gz");
+                arquivos.add(arquivo);
+                try (OutputStream copia = new BufferedOutputStream(Files.newOutputStream(arquivo))) {
+                    relatorioService.escreverConteudo(relatorio.getId(), copia, true);
+                }
+            }
+            for (Path arquivo : arquivos) {
+                JsonParser leitor = objectMapper.getFactory().createParser(
+                        new GZIPInputStream(new BufferedInputStream(Files.newInputStream(arquivo)), BUFFER_GZIP));
+                leitores.add(leitor);
+                if (leitor.nextToken() != JsonToken.START_OBJECT) {
+                    throw new IOException("Conteúdo de relatório inválido.");
+                }
+            }
+
+            Relatorio ultimo = cadeia.get(cadeia.size() - 1);
+            JsonGenerator json = objectMapper.getFactory().createGenerator(saida);
+            json.writeStartObject();
+            json.writeStringField("tipo", "CONSOLIDADO");
+            json.writeObjectField("marcaDagua", ultimo.getMarcaDagua());
+            json.writeArrayFieldStart("relatorios");
+            for (Relatorio relatorio : cadeia) {
+                json.writeNumber(relatorio.getId());
+            }
+            json.writeEndArray();
+
+            for (String secao : SECOES) {
+                mesclarSecao(secao, leitores, json);
+            }
+
+            json.writeObjectField("adminGerador", new AdminRespostaDTO(
+                    usuarioLogado.getId(),
+                    usuarioLogado.getEmail(),
+                    usuarioLogado.getPerfil().toString()
+            ));
+            json.writeEndObject();
+            json.flush();
+        } finally {
+            for (JsonParser leitor : leitores) {
+                leitor.close();
+            }
+            for (Path arquivo : arquivos) {
+                Files.deleteIfExists(arquivo);
+            }
+        }
+    }
+
+    private void mesclarSecao(String secao, List<JsonParser> leitores, JsonGenerator json) throws IOException {
+        PriorityQueue<Cursor> fila = new PriorityQueue<>(Comparator
+                .comparingLong((Cursor c) -> c.id)
+                .thenComparing(c -> c.ordem, Comparator.reverseOrder()));
+
+        for (int ordem = 0; ordem < leitores.size(); ordem++) {
+            JsonParser leitor = leitores.get(ordem);
+            if (avancarParaSecao(leitor, secao)) {
+                Cursor cursor = new Cursor(ordem, leitor);
+                if (cursor.avancar()) fila.add(cursor);
+            }
+        }
+
+        json.writeArrayFieldStart(secao);
+        Long ultimoId = null;
+        while (!fila.isEmpty()) {
+            Cursor cursor = fila.poll();
+            // O mesmo id em relatórios mais antigos sai logo depois e é descartado
+            if (ultimoId == null || cursor.id != ultimoId) {
+                json.writeTree(cursor.atual);
+                ultimoId = cursor.id;
+            }
+            if (cursor.avancar()) fila.add(cursor);
+        }
+        json.writeEndArray();
+    }
+
+    // Pula os campos do objeto raiz até o array da seção; as seções aparecem na mesma ordem em todos os relatórios
+    private boolean avancarParaSecao(JsonParser leitor, String secao) throws IOException {
+        while (leitor.nextToken() == JsonToken.FIELD_NAME) {
+            String campo = leitor.currentName();
+            JsonToken valor = leitor.nextToken();
+            if (campo.equals(secao) && valor == JsonToken.START_ARRAY) return true;
+            leitor.skipChildren();
+        }
+        return false;
+    }
+
+    // Item atual de uma seção num dos relatórios da cadeia (ordem maior = relatório mais novo)
+    private static final class Cursor {
+
+        private final int ordem;
+        private final JsonParser leitor;
+        private JsonNode atual;
+        private long id;
+
+        Cursor(int ordem, JsonParser leitor) {
+            this.ordem = ordem;
+            this.leitor = leitor;
+        }
+
+        boolean avancar() throws IOException {
+            if (leitor.nextToken() != JsonToken.START_OBJECT) return false;
+            atual = leitor.readValueAsTree();
+            id = atual.get("id").asLong();
+            return true;
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.vidaplus.sghss_backend.service;
 
 import com.vidaplus.sghss_backend.dto.*;
+import com.vidaplus.sghss_backend.event.AgendaSlotAlteradoEvent;
+import com.vidaplus.sghss_backend.event.ConsultaAlteradaEvent;
+import com.vidaplus.sghss_backend.exception.SlotIndisponivelException;
 import com.vidaplus.sghss_backend.model.*;
 import com.vidaplus.sghss_backend.model.enums.PerfilUsuario;
 import com.vidaplus.sghss_backend.model.enums.StatusConsulta;
@@ -8,12 +11,19 @@ import com.vidaplus.sghss_backend.repository.AgendaMedicaSlotRepository;
 import com.vidaplus.sghss_backend.repository.ConsultaRepository;
 import com.vidaplus.sghss_backend.repository.MedicoRepository;
 import com.vidaplus.sghss_backend.repository.PacienteRepository;
+import com.vidaplus.sghss_backend.repository.projection.ConsultaCancelamento;
+import com.vidaplus.sghss_backend.repository.projection.SlotResumo;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.List;
 
 @Service
@@ -25,17 +35,47 @@ public class ConsultaService {
     private final MedicoRepository medicoRepository;
     private final AuditLogService auditLogService; // ← audit logs
     private final AgendaMedicaSlotRepository agendaMedicaSlotRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AgendaPacienteIndex agendaPacienteIndex;
 
     /**
      * Criar nova consulta
      * ADMIN ou MEDICO podem criar
      */
+    @Transactional
     public Consulta criarConsulta(CriarConsultaRequest request, Usuario usuarioLogado) {
         if (usuarioLogado.getPerfil() != PerfilUsuario.ADMIN &&
                 usuarioLogado.getPerfil() != PerfilUsuario.MEDICO) {
             throw new AccessDeniedException("Usuário não autorizado para criar consultas.");
         }
 
+        return salvarConsulta(request, usuarioLogado);
+    }
+
+    /**
+     * Aceite de uma oferta da lista de espera: o próprio paciente agenda o slot reservado em seu nome.
+     */
+    @Transactional
+    public Consulta criarConsultaPorOferta(CriarConsultaRequest request, Usuario pacienteLogado) {
+        Paciente paciente = pacienteRepository.findById(request.getPacienteId())
+                .orElseThrow(() -> new EntityNotFoundException("Paciente não encontrado."));
+
+        if (pacienteLogado.getPerfil() != PerfilUsuario.PACIENTE || paciente.getUsuario() == null ||
+                !paciente.getUsuario().getId().equals(pacienteLogado.getId())) {
+            throw new AccessDeniedException("Somente o paciente da oferta pode aceitá-la.");
+        }
+        if (request.getAgendaSlotId() == null) {
+            throw new IllegalArgumentException("A oferta precisa de um slot de agenda.");
+        }
+
+        return salvarConsulta(request, pacienteLogado);
+    }
+
+    private Consulta salvarConsulta(CriarConsultaRequest request, Usuario usuarioLogado) {
+        if (request.getAgendaSlotId() != null) {
+            aplicarDadosDoSlot(request);
+        }
+
         Paciente paciente = pacienteRepository.findById(request.getPacienteId())
                 .orElseThrow(() -> new EntityNotFoundException("Paciente não encontrado."));
         Medico medico = medicoRepository.findById(request.getMedicoId())
@@ -50,23 +90,16 @@ public class ConsultaService {
                 .valor(request.getValor() != null ? request.getValor() : BigDecimal.ZERO) // 🔑 garante não-nulo
                 .build();
 
-        // Se o request tiver um slot de agenda
-        if (request.getAgendaSlotId() != null) {
-            AgendaMedicaSlot slot = agendaMedicaSlotRepository.findById(request.getAgendaSlotId())
-                    .orElseThrow(() -> new EntityNotFoundException("Slot de agenda não encontrado."));
+        Consulta salvo = consultaRepository.save(consulta);
 
-            if (!slot.isDisponivel()) {
-                throw new IllegalStateException("Este slot já está ocupado.");
-            }
+        // Sobreposição com outra consulta do paciente (índice em memória, sem ida ao banco)
+        agendaPacienteIndex.ocupar(salvo.getId(), paciente.getId(), salvo.getData(), salvo.getHora());
 
-            // Faz o vínculo bidirecional
-            slot.setConsulta(consulta);
-            slot.setDisponivel(false); // marca slot como indisponível
-            consulta.setAgendaSlot(slot);
+        // Se o request tiver um slot de agenda, ocupa o slot com um UPDATE condicional
+        if (request.getAgendaSlotId() != null) {
+            reservarSlot(request.getAgendaSlotId(), salvo, usuarioLogado);
         }
 
-        Consulta salvo = consultaRepository.save(consulta);
-
         auditLogService.registrarAcao(
                 usuarioLogado.getId(),
                 usuarioLogado.getEmail(),
@@ -81,6 +114,46 @@ public class ConsultaService {
         return salvo;
     }
 
+    /**
+     * Com slot informado, médico, data e hora da consulta são os do slot. Valores enviados no corpo
+     * são opcionais, mas se vierem precisam coincidir (evita consulta num horário e slot ocupado em outro).
+     */
+    private void aplicarDadosDoSlot(CriarConsultaRequest request) {
+        SlotResumo slot = agendaMedicaSlotRepository.findResumoPorId(request.getAgendaSlotId())
+                .orElseThrow(() -> new EntityNotFoundException("Slot de agenda não encontrado."));
+
+        if ((request.getMedicoId() != null && !request.getMedicoId().equals(slot.getMedicoId())) ||
+                (request.getData() != null && !request.getData().equals(slot.getData())) ||
+                (request.getHora() != null && !request.getHora().equals(slot.getHora()))) {
+            throw new IllegalArgumentException("Médico, data e hora informados não correspondem ao slot de agenda.");
+        }
+
+        request.setMedicoId(slot.getMedicoId());
+        request.setData(slot.getData());
+        request.setHora(slot.getHora());
+    }
+
+    /**
+     * Vincula o slot à consulta já inserida. Se outra requisição ocupou o slot antes,
+     * o UPDATE não afeta nenhuma linha e a transação inteira é desfeita (inclusive o INSERT da consulta).
+     * Um hold vigente de outro usuário também bloqueia; o hold do próprio usuário é confirmado e limpo.
+     */
+    private void reservarSlot(Long slotId, Consulta consulta, Usuario usuarioLogado) {
+        int atualizados = agendaMedicaSlotRepository.reservarSeDisponivel(
+                slotId, consulta, usuarioLogado.getId(), LocalDateTime.now());
+
+        if (atualizados == 0) {
+            if (!agendaMedicaSlotRepository.existsById(slotId)) {
+                throw new EntityNotFoundException("Slot de agenda não encontrado.");
+            }
+            throw new SlotIndisponivelException("Este slot já está ocupado ou reservado por outro usuário.");
+        }
+
+        // Recarrega o slot já atualizado para devolver o vínculo na resposta
+        AgendaMedicaSlot slot = agendaMedicaSlotRepository.findById(slotId).orElseThrow();
+        consulta.setAgendaSlot(slot);
+        eventPublisher.publishEvent(AgendaSlotAlteradoEvent.disponibilidadeAlterada(slot));
+    }
 
     /**
      * Listar consultas
@@ -127,6 +200,39 @@ public class ConsultaService {
         return ConsultaDTO.from(consulta);
     }
 
+    /**
+     * Verifica se o horário se sobrepõe a outra consulta agendada do paciente (mesma checagem do agendamento).
+     * Paciente só consulta os próprios horários.
+     */
+    public ConflitoConsultaDTO verificarConflitos(Long pacienteId, LocalDate data, LocalTime hora,
+                                                  Long ignorarConsultaId, Usuario usuarioLogado) {
+        if (pacienteId == null || data == null || hora == null) {
+            throw new IllegalArgumentException("Informe paciente, data e hora.");
+        }
+        if (usuarioLogado.getPerfil() == PerfilUsuario.PACIENTE) {
+            Paciente paciente = pacienteRepository.findById(pacienteId)
+                    .orElseThrow(() -> new EntityNotFoundException("Paciente não encontrado."));
+            if (paciente.getUsuario() == null || !paciente.getUsuario().getId().equals(usuarioLogado.getId())) {
+                throw new AccessDeniedException("Pacientes só podem verificar os próprios horários.");
+            }
+        }
+
+        List<ConflitoConsultaDTO.Conflito> conflitos = agendaPacienteIndex.conflitos(pacienteId, data, hora, ignorarConsultaId)
+                .stream()
+                .map(o -> new ConflitoConsultaDTO.Conflito(o.consultaId(), o.inicio().toLocalDate(), o.inicio().toLocalTime()))
+                .toList();
+
+        return ConflitoConsultaDTO.builder()
+                .pacienteId(pacienteId)
+                .data(data)
+                .hora(hora)
+                .duracaoMinutos(agendaPacienteIndex.getDuracaoMinutos())
+                .verificado(agendaPacienteIndex.cobre(data))
+                .conflitos(conflitos)
+                .build();
+    }
+
+    @Transactional
     public Consulta atualizarConsulta(Long id, AtualizarConsultaRequest request, Usuario usuarioLogado) {
         if (usuarioLogado.getPerfil() != PerfilUsuario.ADMIN) {
             throw new AccessDeniedException("Apenas administradores podem atualizar consultas.");
@@ -135,24 +241,61 @@ public class ConsultaService {
         Consulta consultaExistente = consultaRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Consulta não encontrada."));
 
-        // Atualiza apenas campos permitidos
-        consultaExistente.setData(request.getData());
-        consultaExistente.setHora(request.getHora());
-        consultaExistente.setStatus(request.getStatus());
+        AgendaMedicaSlot slotAtual = consultaExistente.getAgendaSlot();
+        Long medicoAnteriorId = consultaExistente.getMedico() != null ? consultaExistente.getMedico().getId() : null;
+        boolean trocaDeSlot = request.getAgendaSlotId() != null &&
+                (slotAtual == null || !slotAtual.getId().equals(request.getAgendaSlotId()));
+        // Cancelamento pelo PUT segue o mesmo caminho de cancelarConsulta: o slot volta para a agenda
+        boolean cancelamento = request.getStatus() == StatusConsulta.CANCELADA &&
+                consultaExistente.getStatus() == StatusConsulta.AGENDADA;
+
+        if (trocaDeSlot) {
+            // Data, hora e médico passam a ser os do novo slot (troca atômica, ver remarcarConsulta)
+            ConsultaCancelamento atual = consultaRepository.findParaCancelamento(id).orElseThrow();
+            trocarSlot(atual, request.getAgendaSlotId(), usuarioLogado);
+
+            consultaExistente = consultaRepository.findById(id).orElseThrow();
+            if (request.getStatus() != null && !cancelamento) {
+                consultaExistente.setStatus(request.getStatus());
+            }
+        } else {
+            // Atualiza apenas campos permitidos
+            consultaExistente.setData(request.getData());
+            consultaExistente.setHora(request.getHora());
+            if (!cancelamento) {
+                consultaExistente.setStatus(request.getStatus());
+            }
 
-        if (request.getMedicoId() != null) {
-            Medico medico = medicoRepository.findById(request.getMedicoId())
-                    .orElseThrow(() -> new EntityNotFoundException("Médico não encontrado."));
-            consultaExistente.setMedico(medico);
+            if (request.getMedicoId() != null) {
+                Medico medico = medicoRepository.findById(request.getMedicoId())
+                        .orElseThrow(() -> new EntityNotFoundException("Médico não encontrado."));
+                consultaExistente.setMedico(medico);
+            }
         }
 
-        if (request.getAgendaSlotId() != null) {
-            AgendaMedicaSlot slot = agendaMedicaSlotRepository.findById(request.getAgendaSlotId())
-                    .orElseThrow(() -> new EntityNotFoundException("Slot de agenda não encontrado."));
-            consultaExistente.setAgendaSlot(slot);
+        Consulta salvo = consultaRepository.save(consultaExistente);
+
+        if (cancelamento) {
+            ConsultaCancelamento atual = consultaRepository.findParaCancelamento(id).orElseThrow();
+            if (consultaRepository.atualizarStatusSe(id, StatusConsulta.AGENDADA, StatusConsulta.CANCELADA) == 0) {
+                throw new IllegalArgumentException("Apenas consultas agendadas podem ser canceladas.");
+            }
+            liberarSlot(atual.getSlotId(), id, atual.getMedicoId(), atual.getSlotData(), atual.getSlotHora());
+            // O UPDATE condicional limpa o contexto: a entidade é relida já com o status gravado
+            salvo = consultaRepository.findById(id).orElseThrow();
         }
 
-        Consulta salvo = consultaRepository.save(consultaExistente);
+        if (salvo.getStatus() == StatusConsulta.AGENDADA) {
+            agendaPacienteIndex.ocupar(salvo.getId(), salvo.getPaciente().getId(), salvo.getData(), salvo.getHora());
+        } else {
+            agendaPacienteIndex.liberar(salvo.getId());
+        }
+
+        // Status e médico editados aqui não passam pelos eventos de slot (feed iCalendar dos dois médicos)
+        eventPublisher.publishEvent(new ConsultaAlteradaEvent(salvo.getId(), medicoAnteriorId));
+        if (salvo.getMedico() != null && !salvo.getMedico().getId().equals(medicoAnteriorId)) {
+            eventPublisher.publishEvent(new ConsultaAlteradaEvent(salvo.getId(), salvo.getMedico().getId()));
+        }
 
         // Registrar log
         auditLogService.registrarAcao(
@@ -244,6 +387,141 @@ public class ConsultaService {
         return total;
     }
 
+    /**
+     * Cancela a consulta e reabre o slot vinculado na mesma transação:
+     * uma leitura de projeção e dois UPDATEs condicionais, sem carregar as entidades.
+     * ADMIN cancela qualquer consulta; médico e paciente, apenas as suas.
+     */
+    @Transactional
+    public void cancelarConsulta(Long id, Usuario usuarioLogado) {
+        ConsultaCancelamento consulta = consultaRepository.findParaCancelamento(id)
+                .orElseThrow(() -> new EntityNotFoundException("Consulta não encontrada."));
+
+        switch (usuarioLogado.getPerfil()) {
+            case MEDICO -> {
+                if (!usuarioLogado.getId().equals(consulta.getMedicoUsuarioId())) {
+                    throw new AccessDeniedException("Médicos só podem cancelar suas próprias consultas.");
+                }
+            }
+            case PACIENTE -> {
+                if (!usuarioLogado.getId().equals(consulta.getPacienteUsuarioId())) {
+                    throw new AccessDeniedException("Pacientes só podem cancelar suas próprias consultas.");
+                }
+            }
+            case ADMIN -> { /* acesso liberado */ }
+            default -> throw new AccessDeniedException("Perfil desconhecido.");
+        }
+
+        if (consulta.getStatus() != StatusConsulta.AGENDADA ||
+                consultaRepository.atualizarStatusSe(id, StatusConsulta.AGENDADA, StatusConsulta.CANCELADA) == 0) {
+            throw new IllegalArgumentException("Apenas consultas agendadas podem ser canceladas.");
+        }
+
+        liberarSlot(consulta.getSlotId(), id, consulta.getMedicoId(), consulta.getSlotData(), consulta.getSlotHora());
+        agendaPacienteIndex.liberar(id);
+
+        auditLogService.registrarAcao(
+                usuarioLogado.getId(),
+                usuarioLogado.getEmail(),
+                usuarioLogado.getPerfil().name(),
+                "CANCELAR_CONSULTA",
+                "Consulta",
+                id,
+                consulta.getSlotId() != null ? "Slot liberado: " + consulta.getSlotId() : "Consulta sem slot de agenda"
+        );
+    }
+
+    /**
+     * Remarca a consulta para outro slot numa única transação: a consulta é atualizada primeiro
+     * (mesma ordem do cancelamento), depois os dois slots são travados em ordem crescente de id,
+     * o novo é ocupado com UPDATE condicional e o antigo é reaberto. Se o novo slot não estiver livre,
+     * nada muda (409).
+     */
+    @Transactional
+    public Consulta remarcarConsulta(Long id, Long novoSlotId, Usuario usuarioLogado) {
+        if (usuarioLogado.getPerfil() != PerfilUsuario.ADMIN &&
+                usuarioLogado.getPerfil() != PerfilUsuario.MEDICO) {
+            throw new AccessDeniedException("Usuário não autorizado para remarcar consultas.");
+        }
+
+        ConsultaCancelamento consulta = consultaRepository.findParaCancelamento(id)
+                .orElseThrow(() -> new EntityNotFoundException("Consulta não encontrada."));
+
+        if (usuarioLogado.getPerfil() == PerfilUsuario.MEDICO &&
+                !usuarioLogado.getId().equals(consulta.getMedicoUsuarioId())) {
+            throw new AccessDeniedException("Médicos só podem remarcar suas próprias consultas.");
+        }
+
+        SlotResumo novoSlot = trocarSlot(consulta, novoSlotId, usuarioLogado);
+
+        auditLogService.registrarAcao(
+                usuarioLogado.getId(),
+                usuarioLogado.getEmail(),
+                usuarioLogado.getPerfil().name(),
+                "REMARCAR_CONSULTA",
+                "Consulta",
+                id,
+                "Slot anterior: " + (consulta.getSlotId() != null ? consulta.getSlotId() : "N/A") +
+                        ", Novo slot: " + novoSlotId + " (" + novoSlot.getData() + " " + novoSlot.getHora() + ")"
+        );
+
+        return consultaRepository.findById(id).orElseThrow();
+    }
+
+    private SlotResumo trocarSlot(ConsultaCancelamento consulta, Long novoSlotId, Usuario usuarioLogado) {
+        Long id = consulta.getId();
+        Long slotAnteriorId = consulta.getSlotId();
+
+        if (novoSlotId.equals(slotAnteriorId)) {
+            throw new IllegalArgumentException("A consulta já está neste slot.");
+        }
+
+        SlotResumo novoSlot = agendaMedicaSlotRepository.findResumoPorId(novoSlotId)
+                .orElseThrow(() -> new EntityNotFoundException("Slot de agenda não encontrado."));
+
+        if (usuarioLogado.getPerfil() == PerfilUsuario.MEDICO && !novoSlot.getMedicoId().equals(consulta.getMedicoId())) {
+            throw new AccessDeniedException("Médico só pode remarcar para seus próprios slots.");
+        }
+
+        // O paciente não pode ter outra consulta no novo horário
+        agendaPacienteIndex.ocupar(id, consulta.getPacienteId(), novoSlot.getData(), novoSlot.getHora());
+
+        // 1️⃣ Consulta (trava a linha e confirma que ainda está agendada)
+        int atualizadas = consultaRepository.remarcarSeAgendada(
+                id, medicoRepository.getReferenceById(novoSlot.getMedicoId()), novoSlot.getData(), novoSlot.getHora());
+        if (atualizadas == 0) {
+            throw new IllegalArgumentException("Apenas consultas agendadas podem ser remarcadas.");
+        }
+
+        // 2️⃣ Slots envolvidos, sempre do menor para o maior id
+        agendaMedicaSlotRepository.findByIdInOrderByIdAsc(
+                slotAnteriorId != null ? List.of(slotAnteriorId, novoSlotId) : List.of(novoSlotId));
+
+        // 3️⃣ Ocupa o novo slot (respeitando holds de outros usuários) e reabre o antigo
+        int ocupados = agendaMedicaSlotRepository.reservarSeDisponivel(
+                novoSlotId, consultaRepository.getReferenceById(id), usuarioLogado.getId(), LocalDateTime.now());
+        if (ocupados == 0) {
+            throw new SlotIndisponivelException("O novo slot já está ocupado ou reservado por outro usuário.");
+        }
+        eventPublisher.publishEvent(AgendaSlotAlteradoEvent.disponibilidadeAlterada(
+                novoSlotId, novoSlot.getMedicoId(), novoSlot.getData(), novoSlot.getHora(), false));
+
+        liberarSlot(slotAnteriorId, id, consulta.getMedicoId(), consulta.getSlotData(), consulta.getSlotHora());
+
+        return novoSlot;
+    }
+
+    // Reabre o slot da consulta e avisa índice, contadores e lista de espera
+    private void liberarSlot(Long slotId, Long consultaId, Long medicoId, LocalDate data, LocalTime hora) {
+        if (slotId == null) return;
+
+        if (agendaMedicaSlotRepository.liberarDaConsulta(slotId, consultaId) > 0) {
+            eventPublisher.publishEvent(
+                    AgendaSlotAlteradoEvent.disponibilidadeAlterada(slotId, medicoId, data, hora, true));
+        }
+    }
+
+    @Transactional
     public void deletarConsulta(Long id, Usuario usuarioLogado) {
         if (usuarioLogado.getPerfil() != PerfilUsuario.ADMIN) {
             throw new AccessDeniedException("Apenas administradores podem deletar consultas.");
@@ -252,7 +530,14 @@ public class ConsultaService {
         Consulta consulta = consultaRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Consulta não encontrada."));
 
-        consultaRepository.delete(consulta);
+        // O slot vinculado volta para a agenda (antes ficava ocupado e apontando para a consulta apagada)
+        AgendaMedicaSlot slot = consulta.getAgendaSlot();
+        if (slot != null) {
+            liberarSlot(slot.getId(), id, slot.getMedico().getId(), slot.getData(), slot.getHora());
+        }
+
+        consultaRepository.deleteById(id);
+        agendaPacienteIndex.liberar(id);
 
         // Registrar log
         auditLogService.registrarAcao(
@@ -0,0 +1,23 @@
+package com.vidaplus.sghss_backend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Avança a roda de expiração a cada segundo; só abre transação quando algum hold venceu
+@Component
+@RequiredArgsConstructor
+public class ExpiracaoReservasJob {
+
+    private final ReservaSlotService reservaSlotService;
+
+    @Scheduled(fixedDelay = 1000)
+    public void liberarReservasVencidas() {
+        List<Long> vencidas = reservaSlotService.vencidasAte(System.currentTimeMillis());
+        if (!vencidas.isEmpty()) {
+            reservaSlotService.liberarVencidas(vencidas);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.vidaplus.sghss_backend.service;
+
+import com.vidaplus.sghss_backend.repository.AgendaMedicaSlotRepository;
+import com.vidaplus.sghss_backend.repository.ConsultaRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * Modo opcional (agenda.faixas-escrita.habilitado) em que todas as escritas de agenda de um médico
+ * passam por uma única thread ("faixa"), escolhida pelo id do médico. Sem disputa de locks entre escritas
+ * do mesmo médico, as que chegam juntas são gravadas numa só transação; se alguma falhar, o lote é desfeito
+ * e cada escrita é repetida em transação própria, para que só a que falhou receba o erro.
+ * Dentro do lote, cada escrita começa com o contexto de persistência vazio (flush + clear entre elas): os UPDATEs
+ * com clearAutomatically de uma não desanexam entidades que outra carregou, e cada uma relê o que altera.
+ * Desabilitado, executar(...) apenas roda a escrita na thread de quem chamou.
+ */
+@Component
+@RequiredArgsConstructor
+public class FaixasEscritaAgenda {
+
+    private static final ThreadLocal<Boolean> NA_FAIXA = ThreadLocal.withInitial(() -> false);
+
+    private final PlatformTransactionManager transactionManager;
+    private final AgendaMedicaSlotRepository agendaSlotRepository;
+    private final ConsultaRepository consultaRepository;
+    private final EntityManager entityManager;
+
+    @Value("${agenda.faixas-escrita.habilitado:false}")
+    private boolean habilitado;
+
+    @Value("${agenda.faixas-escrita.quantidade:8}")
+    private int quantidade;
+
+    @Value("${agenda.faixas-escrita.lote-maximo:32}")
+    private int loteMaximo;
+
+    private Faixa[] faixas;
+    private TransactionTemplate transacao;
+
+    private record Tarefa(Supplier<?> escrita, CompletableFuture<Object> resultado) {}
+
+    @PostConstruct
+    void iniciar() {
+        if (!habilitado) return;
+        if (quantidade < 1 || loteMaximo < 1) {
+            throw new IllegalArgumentException("agenda.faixas-escrita: quantidade e lote-maximo devem ser positivos.");
+        }
+
+        transacao = new TransactionTemplate(transactionManager);
+        faixas = new Faixa[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            faixas[i] = new Faixa(i);
+            faixas[i].start();
+        }
+    }
+
+    @PreDestroy
+    void encerrar() {
+        if (faixas == null) return;
+        for (Faixa faixa : faixas) {
+            faixa.interrupt();
+        }
+    }
+
+    public <T> T executar(Long medicoId, Supplier<T> escrita) {
+        // Escritas aninhadas já estão na faixa certa (e esperar por ela mesma travaria a thread);
+        // sem médico, a própria escrita rejeita a requisição
+        if (!habilitado || NA_FAIXA.get() || medicoId == null) {
+            return escrita.get();
+        }
+
+        Tarefa tarefa = new Tarefa(escrita, new CompletableFuture<>());
+        faixa(medicoId).fila.add(tarefa);
+        return aguardar(tarefa.resultado());
+    }
+
+    // Escritas esperando na fila da faixa do médico, sem contar o lote em execução (usado nos testes)
+    int pendentes(Long medicoId) {
+        return faixa(medicoId).fila.size();
+    }
+
+    private Faixa faixa(Long medicoId) {
+        return faixas[Math.floorMod(medicoId.hashCode(), faixas.length)];
+    }
+
+    // Para rotas que só conhecem o slot: o médico é resolvido pela chave primária antes de entrar na faixa
+    public <T> T executarPorSlot(Long slotId, Supplier<T> escrita) {
+        if (!habilitado || NA_FAIXA.get()) {
+            return escrita.get();
+        }
+
+        Long medicoId = agendaSlotRepository.findMedicoIdPorSlot(slotId)
+                .orElseThrow(() -> new EntityNotFoundException("Slot de agenda não encontrado."));
+        return executar(medicoId, escrita);
+    }
+
+    public <T> T executarPorConsulta(Long consultaId, Supplier<T> escrita) {
+        if (!habilitado || NA_FAIXA.get()) {
+            return escrita.get();
+        }
+
+        Long medicoId = consultaRepository.findMedicoIdPorConsulta(consultaId)
+                .orElseThrow(() -> new EntityNotFoundException("Consulta não encontrada."));
+        return executar(medicoId, escrita);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T aguardar(CompletableFuture<Object> resultado) {
+        try {
+            return (T) resultado.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    private final class Faixa extends Thread {
+
+        private final BlockingQueue<Tarefa> fila = new LinkedBlockingQueue<>();
+
+        Faixa(int indice) {
+            super("agenda-faixa-" + indice);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            NA_FAIXA.set(true);
+            List<Tarefa> lote = new ArrayList<>(loteMaximo);
+            try {
+                while (!isInterrupted()) {
+                    lote.add(fila.take());
+                    fila.drainTo(lote, loteMaximo - 1);
+                    processar(lote);
+                    lote.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            // Encerramento: quem ainda espera na fila recebe erro em vez de ficar bloqueado
+            fila.drainTo(lote);
+            lote.forEach(tarefa -> tarefa.resultado().completeExceptionally(
+                    new IllegalStateException("Faixa de escrita da agenda encerrada.")));
+        }
+
+        private void processar(List<Tarefa> lote) {
+            if (lote.size() == 1) {
+                individual(lote.get(0));
+                return;
+            }
+
+            List<Object> resultados = new ArrayList<>(lote.size());
+            try {
+                transacao.executeWithoutResult(status -> {
+                    for (Tarefa tarefa : lote) {
+                        resultados.add(tarefa.escrita().get());
+                        entityManager.flush();
+                        entityManager.clear();
+                    }
+                });
+            } catch (RuntimeException e) {
+                // Alguma escrita falhou e o lote inteiro foi desfeito: repete uma a uma
+                lote.forEach(this::individual);
+                return;
+            } catch (Throwable e) {
+                // Error (ex.: falta de memória): o lote foi desfeito e não é repetido; todos recebem o erro,
+                // nenhuma requisição fica esperando e a faixa continua atendendo a fila
+                lote.forEach(tarefa -> tarefa.resultado().completeExceptionally(e));
+                return;
+            }
+
+            for (int i = 0; i < lote.size(); i++) {
+                lote.get(i).resultado().complete(resultados.get(i));
+            }
+        }
+
+        private void individual(Tarefa tarefa) {
+            try {
+                tarefa.resultado().complete(transacao.execute(status -> tarefa.escrita().get()));
+            } catch (Throwable e) {
+                tarefa.resultado().completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.vidaplus.sghss_backend.service;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Filas de prioridade da lista de espera, uma por médico e uma por especialidade.
+ * Ficam em memória (carregadas do banco na inicialização) para que a liberação de um slot
+ * encontre o próximo paciente sem consultar a tabela.
+ */
+@Component
+public class FilasListaEspera {
+
+    public record Inscricao(
+            Long id,
+            Long pacienteId,
+            Long pacienteUsuarioId,
+            Long medicoId,
+            String especialidade,
+            LocalDate dataInicio,
+            LocalDate dataFim,
+            int prioridade,
+            LocalDateTime criadoEm
+    ) {
+        public static final Comparator<Inscricao> ORDEM_ATENDIMENTO = Comparator
+                .comparingInt(Inscricao::prioridade).reversed()
+                .thenComparing(Inscricao::criadoEm)
+                .thenComparing(Inscricao::id);
+
+        boolean aceita(LocalDate data) {
+            return !data.isBefore(dataInicio) && !data.isAfter(dataFim);
+        }
+    }
+
+    private final Map<Long, NavigableSet<Inscricao>> porMedico = new ConcurrentHashMap<>();
+    private final Map<String, NavigableSet<Inscricao>> porEspecialidade = new ConcurrentHashMap<>();
+
+    public void adicionar(Inscricao inscricao) {
+        fila(inscricao).add(inscricao);
+    }
+
+    public void remover(Inscricao inscricao) {
+        fila(inscricao).remove(inscricao);
+    }
+
+    public void limpar() {
+        porMedico.clear();
+        porEspecialidade.clear();
+    }
+
+    /**
+     * Próximo paciente para um slot do médico na data: o melhor entre a fila do médico e a da especialidade.
+     * Inscrições com período já encerrado são descartadas no caminho.
+     */
+    public Optional<Inscricao> proximaPara(Long medicoId, String especialidade, LocalDate data) {
+        Inscricao doMedico = primeiraQueAceita(porMedico.get(medicoId), data);
+        Inscricao daEspecialidade = especialidade != null
+                ? primeiraQueAceita(porEspecialidade.get(especialidade), data)
+                : null;
+
+        if (doMedico == null) return Optional.ofNullable(daEspecialidade);
+        if (daEspecialidade == null) return Optional.of(doMedico);
+        return Optional.of(Inscricao.ORDEM_ATENDIMENTO.compare(doMedico, daEspecialidade) <= 0 ? doMedico : daEspecialidade);
+    }
+
+    private static Inscricao primeiraQueAceita(NavigableSet<Inscricao> fila, LocalDate data) {
+        if (fila == null) return null;
+
+        LocalDate hoje = LocalDate.now();
+        for (Inscricao inscricao : fila) {
+            if (inscricao.dataFim().isBefore(hoje)) {
+                fila.remove(inscricao);
+            } else if (inscricao.aceita(data)) {
+                return inscricao;
+            }
+        }
+        return null;
+    }
+
+    private NavigableSet<Inscricao> fila(Inscricao inscricao) {
+        if (inscricao.medicoId() != null) {
+            return porMedico.computeIfAbsent(inscricao.medicoId(),
+                    id -> new ConcurrentSkipListSet<>(Inscricao.ORDEM_ATENDIMENTO));
+        }
+        return porEspecialidade.computeIfAbsent(inscricao.especialidade(),
+                e -> new ConcurrentSkipListSet<>(Inscricao.ORDEM_ATENDIMENTO));
+    }
+}
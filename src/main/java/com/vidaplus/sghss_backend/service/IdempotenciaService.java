@@ -0,0 +1,139 @@
+package com.vidaplus.sghss_backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vidaplus.sghss_backend.exception.RequisicaoEmAndamentoException;
+import com.vidaplus.sghss_backend.model.Usuario;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Suporte ao header Idempotency-Key nas rotas de agendamento.
+ * Guarda a primeira resposta de cada chave (por usuário e operação) e a devolve para as repetições
+ * dentro da janela configurada. Repetições simultâneas aguardam a execução original em vez de gravar de novo.
+ * O armazenamento é em memória, limitado por quantidade (LRU) e por tempo; falhas não são guardadas.
+ * O conteúdo é comparado pelo SHA-256 do corpo serializado em JSON, e a espera por uma execução em andamento
+ * é limitada: passado o prazo a chave é descartada e a repetição recebe 409.
+ */
+@Service
+@RequiredArgsConstructor
+public class IdempotenciaService {
+
+    private static final int TAMANHO_MAXIMO_CHAVE = 255;
+
+    @Value("${idempotencia.janela-minutos:60}")
+    private long janelaMinutos;
+
+    @Value("${idempotencia.max-chaves:10000}")
+    private int maxChaves;
+
+    @Value("${idempotencia.espera-segundos:30}")
+    private long esperaSegundos;
+
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, Entrada> entradas = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entrada> eldest) {
+            return size() > maxChaves;
+        }
+    };
+
+    private record Entrada(byte[] impressao, long expiraEmMillis, CompletableFuture<Object> resposta) {
+        boolean expirada(long agoraMillis) {
+            return agoraMillis >= expiraEmMillis;
+        }
+    }
+
+    /**
+     * Executa a ação uma única vez por chave. Sem chave, apenas executa.
+     * "conteudo" identifica o corpo da requisição: a mesma chave com outro conteúdo é rejeitada.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T executar(String chave, Usuario usuarioLogado, String operacao, Object conteudo, Supplier<T> acao) {
+        if (chave == null || chave.isBlank()) {
+            return acao.get();
+        }
+        if (chave.length() > TAMANHO_MAXIMO_CHAVE) {
+            throw new IllegalArgumentException("Idempotency-Key deve ter no máximo " + TAMANHO_MAXIMO_CHAVE + " caracteres.");
+        }
+
+        String id = usuarioLogado.getId() + ":" + operacao + ":" + chave;
+        long agora = System.currentTimeMillis();
+        Entrada nova = new Entrada(impressao(conteudo), agora + janelaMinutos * 60_000, new CompletableFuture<>());
+        Entrada existente;
+
+        synchronized (entradas) {
+            existente = entradas.get(id);
+            if (existente != null && existente.expirada(agora)) {
+                existente = null;
+            }
+            if (existente == null) {
+                entradas.put(id, nova);
+            }
+        }
+
+        if (existente != null) {
+            if (!MessageDigest.isEqual(existente.impressao(), nova.impressao())) {
+                throw new IllegalArgumentException("Idempotency-Key já utilizada com outro conteúdo de requisição.");
+            }
+            return (T) aguardar(id, existente);
+        }
+
+        try {
+            T resultado = acao.get();
+            nova.resposta().complete(resultado);
+            return resultado;
+        } catch (RuntimeException | Error e) {
+            // Falha não é memorizada: a próxima tentativa com a mesma chave executa de novo
+            synchronized (entradas) {
+                entradas.remove(id, nova);
+            }
+            nova.resposta().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // Espera limitada pela execução original; se ela travou ou não termina, a chave é liberada
+    private Object aguardar(String id, Entrada existente) {
+        try {
+            return existente.resposta().get(esperaSegundos, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            synchronized (entradas) {
+                entradas.remove(id, existente);
+            }
+            throw new RequisicaoEmAndamentoException(
+                    "A requisição original com esta Idempotency-Key ainda não terminou; tente novamente.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RequisicaoEmAndamentoException("Espera pela requisição original interrompida.");
+        }
+    }
+
+    // SHA-256 do conteúdo serializado pelo mesmo ObjectMapper da aplicação (ordem de campos fixa por classe)
+    private byte[] impressao(Object conteudo) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(conteudo));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Conteúdo de requisição inválido para Idempotency-Key.", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.vidaplus.sghss_backend.service;
+
+import com.vidaplus.sghss_backend.dto.ReservaSlotDTO;
+import com.vidaplus.sghss_backend.event.AgendaSlotAlteradoEvent;
+import com.vidaplus.sghss_backend.event.ExpedienteCriadoEvent;
+import com.vidaplus.sghss_backend.exception.SlotIndisponivelException;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Casa slots liberados com a lista de espera. Cada liberação (slot reaberto, cancelamento,
+ * reserva vencida) é tratada depois do commit, numa única thread, na ordem em que aconteceu:
+ * o slot é reservado em nome do próximo paciente da fila e a oferta é registrada e notificada.
+ * Se a oferta falhar no meio, o paciente volta para a fila e o hold é desfeito; a liberação que esse
+ * desfazer gera não é ofertada de novo (evita repetir sem fim uma falha persistente).
+ * Expediente novo não gera liberação de slot: os horários calculados que têm alguém esperando são gravados
+ * como linha e seguem o mesmo caminho de um slot reaberto.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ListaEsperaMotor {
+
+    // Horários do expediente novo avaliados por evento (os primeiros a partir de agora)
+    private static final int MAX_HORARIOS_EXPEDIENTE = 200;
+
+    private final ListaEsperaService listaEsperaService;
+    private final ReservaSlotService reservaSlotService;
+    private final FilasListaEspera filas;
+    private final FaixasEscritaAgenda faixasEscrita;
+    private final AgendaExpedienteService expedienteService;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(tarefa -> {
+        Thread thread = new Thread(tarefa, "lista-espera-motor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${lista-espera.oferta-ttl-segundos:900}")
+    private long ttlOfertaSegundos;
+
+    // Slots cujo hold foi desfeito após uma oferta com falha; só a thread do motor acessa
+    private final Set<Long> holdsDesfeitos = new HashSet<>();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarSlot(AgendaSlotAlteradoEvent evento) {
+        boolean liberado = evento.disponivel() &&
+                (evento.tipo() == AgendaSlotAlteradoEvent.Tipo.DISPONIBILIDADE_ALTERADA ||
+                        evento.tipo() == AgendaSlotAlteradoEvent.Tipo.RESERVA_LIBERADA);
+        if (liberado) {
+            executor.execute(() -> ofertar(evento));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoCriarExpediente(ExpedienteCriadoEvent evento) {
+        executor.execute(() -> ofertarExpediente(evento.medicoId()));
+    }
+
+    @PreDestroy
+    void encerrar() {
+        executor.shutdownNow();
+    }
+
+    private void ofertar(AgendaSlotAlteradoEvent evento) {
+        FilasListaEspera.Inscricao inscricao = null;
+        boolean foraDaFila = false;
+        boolean comHold = false;
+        try {
+            if (evento.tipo() == AgendaSlotAlteradoEvent.Tipo.RESERVA_LIBERADA) {
+                listaEsperaService.encerrarOfertas(evento.slotId());
+                if (holdsDesfeitos.remove(evento.slotId())) {
+                    return;
+                }
+            }
+            if (LocalDateTime.of(evento.data(), evento.hora()).isBefore(LocalDateTime.now())) {
+                return;
+            }
+
+            String especialidade = listaEsperaService.especialidadeDoMedico(evento.medicoId());
+            Optional<FilasListaEspera.Inscricao> proxima = filas.proximaPara(evento.medicoId(), especialidade, evento.data());
+            if (proxima.isEmpty()) {
+                return;
+            }
+
+            inscricao = proxima.get();
+            Long pacienteUsuarioId = inscricao.pacienteUsuarioId();
+            filas.remover(inscricao);
+            foraDaFila = true;
+
+            ReservaSlotDTO reserva;
+            try {
+                reserva = faixasEscrita.executar(evento.medicoId(), () -> reservaSlotService.reservarPara(
+                        evento.slotId(), pacienteUsuarioId, ttlOfertaSegundos));
+            } catch (SlotIndisponivelException e) {
+                // Alguém ocupou o slot antes: o paciente continua na fila
+                filas.adicionar(inscricao);
+                return;
+            }
+            comHold = true;
+
+            boolean ofertado = listaEsperaService.registrarOferta(inscricao.id(), evento.slotId(), reserva.getExpiraEm());
+            // Daqui em diante a inscrição não aguarda mais: ou recebeu a oferta ou foi cancelada
+            foraDaFila = false;
+            if (!ofertado) {
+                // Inscrição cancelada nesse meio tempo: a liberação gera um novo evento para o próximo da fila
+                reservaSlotService.liberarPara(evento.slotId(), pacienteUsuarioId);
+            }
+            comHold = false;
+        } catch (RuntimeException e) {
+            // A falha de uma oferta não pode parar o motor
+            log.error("Falha ao ofertar o slot {} (médico {}) da lista de espera, inscrição {}",
+                    evento.slotId(), evento.medicoId(), inscricao != null ? inscricao.id() : "nenhuma", e);
+            desfazer(evento, inscricao, foraDaFila, comHold);
+        }
+    }
+
+    private void ofertarExpediente(Long medicoId) {
+        try {
+            String especialidade = listaEsperaService.especialidadeDoMedico(medicoId);
+            for (AgendaExpedienteService.SlotVirtual horario :
+                    expedienteService.primeirosLivres(medicoId, LocalDateTime.now(), MAX_HORARIOS_EXPEDIENTE)) {
+                if (filas.proximaPara(medicoId, especialidade, horario.data()).isEmpty()) continue;
+
+                Long slotId;
+                try {
+                    slotId = expedienteService.materializar(medicoId, horario.data(), horario.hora());
+                } catch (SlotIndisponivelException e) {
+                    continue; // agendado por outra requisição nesse meio tempo
+                }
+                ofertar(AgendaSlotAlteradoEvent.disponibilidadeAlterada(slotId, medicoId, horario.data(), horario.hora(), true));
+            }
+        } catch (RuntimeException e) {
+            log.error("Falha ao ofertar os horários do expediente do médico {} à lista de espera", medicoId, e);
+        }
+    }
+
+    // A inscrição continua AGUARDANDO no banco (registrarOferta não gravou): volta para a fila e o slot é solto
+    private void desfazer(AgendaSlotAlteradoEvent evento, FilasListaEspera.Inscricao inscricao,
+                          boolean foraDaFila, boolean comHold) {
+        if (foraDaFila) {
+            filas.adicionar(inscricao);
+        }
+        if (!comHold) {
+            return;
+        }
+        try {
+            holdsDesfeitos.add(evento.slotId());
+            if (!reservaSlotService.liberarPara(evento.slotId(), inscricao.pacienteUsuarioId())) {
+                holdsDesfeitos.remove(evento.slotId());
+            }
+        } catch (RuntimeException e) {
+            holdsDesfeitos.remove(evento.slotId());
+            log.error("Falha ao desfazer o hold do slot {} após oferta com falha; ele vence no prazo da oferta",
+                    evento.slotId(), e);
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.vidaplus.sghss_backend.service;
+
+import com.vidaplus.sghss_backend.dto.ConsultaDTO;
+import com.vidaplus.sghss_backend.dto.CriarConsultaRequest;
+import com.vidaplus.sghss_backend.dto.InscreverListaEsperaRequest;
+import com.vidaplus.sghss_backend.dto.ListaEsperaDTO;
+import com.vidaplus.sghss_backend.model.AgendaMedicaSlot;
+import com.vidaplus.sghss_backend.model.Consulta;
+import com.vidaplus.sghss_backend.model.ListaEspera;
+import com.vidaplus.sghss_backend.model.Medico;
+import com.vidaplus.sghss_backend.model.Paciente;
+import com.vidaplus.sghss_backend.model.Usuario;
+import com.vidaplus.sghss_backend.model.enums.PerfilUsuario;
+import com.vidaplus.sghss_backend.model.enums.StatusListaEspera;
+import com.vidaplus.sghss_backend.repository.ListaEsperaRepository;
+import com.vidaplus.sghss_backend.repository.MedicoRepository;
+import com.vidaplus.sghss_backend.repository.PacienteRepository;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Lista de espera: o paciente se inscreve para um médico ou especialidade e um período.
+ * Quando um slot é liberado, o ListaEsperaMotor reserva o slot em nome do próximo da fila
+ * e este serviço registra a oferta e avisa o paciente, que confirma pelo aceite.
+ */
+@Service
+@RequiredArgsConstructor
+public class ListaEsperaService {
+
+    private static final int MAX_DIAS_ESPERA = 180;
+    private static final DateTimeFormatter DATA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter HORA = DateTimeFormatter.ofPattern("HH:mm");
+
+    private final ListaEsperaRepository listaEsperaRepository;
+    private final PacienteRepository pacienteRepository;
+    private final MedicoRepository medicoRepository;
+    private final AgendaMedicaSlotService agendaSlotService;
+    private final ConsultaService consultaService;
+    private final ReservaSlotService reservaSlotService;
+    private final NotificacaoService notificacaoService;
+    private final AuditLogService auditLogService;
+    private final FilasListaEspera filas;
+
+    @Transactional
+    public ListaEsperaDTO inscrever(InscreverListaEsperaRequest request, Usuario usuarioLogado) {
+        Paciente paciente = switch (usuarioLogado.getPerfil()) {
+            case PACIENTE -> pacienteRepository.findByUsuarioId(usuarioLogado.getId())
+                    .orElseThrow(() -> new EntityNotFoundException("Paciente não encontrado."));
+            case ADMIN -> {
+                if (request.getPacienteId() == null) {
+                    throw new IllegalArgumentException("Informe o paciente da inscrição.");
+                }
+                yield pacienteRepository.findById(request.getPacienteId())
+                        .orElseThrow(() -> new EntityNotFoundException("Paciente não encontrado."));
+            }
+            default -> throw new AccessDeniedException("Apenas pacientes e administradores usam a lista de espera.");
+        };
+
+        if (paciente.getUsuario() == null) {
+            throw new IllegalArgumentException("Paciente sem usuário não pode receber ofertas da lista de espera.");
+        }
+        validarInscricao(request);
+
+        Medico medico = request.getMedicoId() != null
+                ? medicoRepository.findById(request.getMedicoId())
+                        .orElseThrow(() -> new EntityNotFoundException("Médico não encontrado."))
+                : null;
+
+        ListaEspera inscricao = ListaEspera.builder()
+                .paciente(paciente)
+                .medico(medico)
+                .especialidade(medico == null ? request.getEspecialidade() : null)
+                .dataInicio(request.getDataInicio())
+                .dataFim(request.getDataFim())
+                .prioridade(usuarioLogado.getPerfil() == PerfilUsuario.ADMIN && request.getPrioridade() != null
+                        ? request.getPrioridade() : 0)
+                .status(StatusListaEspera.AGUARDANDO)
+                .criadoEm(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS)) // mesma precisão da coluna DATETIME
+                .build();
+
+        ListaEspera salvo = listaEsperaRepository.save(inscricao);
+        FilasListaEspera.Inscricao naFila = paraFila(salvo);
+
+        // Só entra na fila depois do commit, para o motor não ofertar a uma inscrição desfeita
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                filas.adicionar(naFila);
+            }
+        });
+
+        auditLogService.registrarAcao(
+                usuarioLogado.getId(),
+                usuarioLogado.getEmail(),
+                usuarioLogado.getPerfil().name(),
+                "INSCREVER_LISTA_ESPERA",
+                "ListaEspera",
+                salvo.getId(),
+                "Paciente: " + paciente.getNome() +
+                        (medico != null ? ", Médico: " + medico.getNome() : ", Especialidade: " + salvo.getEspecialidade()) +
+                        ", Período: " + salvo.getDataInicio() + " a " + salvo.getDataFim()
+        );
+
+        return ListaEsperaDTO.from(salvo);
+    }
+
+    public List<ListaEsperaDTO> listar(Usuario usuarioLogado) {
+        List<ListaEspera> inscricoes = switch (usuarioLogado.getPerfil()) {
+            case ADMIN -> listaEsperaRepository.findAll();
+            case PACIENTE -> listaEsperaRepository.findByPacienteUsuarioId(usuarioLogado.getId());
+            default -> throw new AccessDeniedException("Apenas pacientes e administradores usam a lista de espera.");
+        };
+
+        return inscricoes.stream()
+                .map(ListaEsperaDTO::from)
+                .toList();
+    }
+
+    /**
+     * O status muda por UPDATE condicional antes dos efeitos colaterais: liberar o slot ofertado passa por um
+     * UPDATE com clearAutomatically, que desanexaria a inscrição e faria um setStatus posterior se perder.
+     */
+    @Transactional
+    public void cancelar(Long id, Usuario usuarioLogado) {
+        ListaEspera inscricao = buscarComAcesso(id, usuarioLogado);
+        StatusListaEspera status = inscricao.getStatus();
+
+        if (status != StatusListaEspera.AGUARDANDO && status != StatusListaEspera.OFERTADO) {
+            throw new IllegalArgumentException("Esta inscrição não está mais ativa.");
+        }
+        FilasListaEspera.Inscricao naFila = status == StatusListaEspera.AGUARDANDO ? paraFila(inscricao) : null;
+        Long slotOfertadoId = inscricao.getSlotOfertadoId();
+        Long pacienteUsuarioId = inscricao.getPaciente().getUsuario().getId();
+
+        if (listaEsperaRepository.atualizarStatusSe(id, status, StatusListaEspera.CANCELADO) == 0) {
+            throw new IllegalArgumentException("Esta inscrição não está mais ativa.");
+        }
+
+        if (naFila != null) {
+            filas.remover(naFila);
+        } else {
+            // Devolve o slot ofertado para o próximo da fila
+            reservaSlotService.liberarPara(slotOfertadoId, pacienteUsuarioId);
+        }
+
+        auditLogService.registrarAcao(
+                usuarioLogado.getId(),
+                usuarioLogado.getEmail(),
+                usuarioLogado.getPerfil().name(),
+                "CANCELAR_LISTA_ESPERA",
+                "ListaEspera",
+                id,
+                null
+        );
+    }
+
+    // O paciente confirma a vaga ofertada (o slot já está reservado em seu nome)
+    @Transactional
+    public ConsultaDTO aceitarOferta(Long id, Usuario usuarioLogado) {
+        ListaEspera inscricao = buscarComAcesso(id, usuarioLogado);
+
+        if (inscricao.getStatus() != StatusListaEspera.OFERTADO) {
+            throw new IllegalArgumentException("Não há vaga ofertada para esta inscrição.");
+        }
+        if (inscricao.getOfertaExpiraEm().isBefore(LocalDateTime.now())) {
+            throw new IllegalArgumentException("O prazo para aceitar esta vaga terminou.");
+        }
+        Long pacienteId = inscricao.getPaciente().getId();
+        Long slotId = inscricao.getSlotOfertadoId();
+
+        // Atendida antes de ocupar o slot (mesmo motivo do cancelamento); se a consulta falhar, tudo é desfeito
+        if (listaEsperaRepository.atualizarStatusSe(id, StatusListaEspera.OFERTADO, StatusListaEspera.ATENDIDO) == 0) {
+            throw new IllegalArgumentException("Não há vaga ofertada para esta inscrição.");
+        }
+
+        AgendaMedicaSlot slot = agendaSlotService.buscarEntidadePorId(slotId);
+        CriarConsultaRequest request = CriarConsultaRequest.builder()
+                .pacienteId(pacienteId)
+                .medicoId(slot.getMedico().getId())
+                .agendaSlotId(slot.getId())
+                .data(slot.getData())
+                .hora(slot.getHora())
+                .build();
+
+        Consulta consulta = consultaService.criarConsultaPorOferta(request, usuarioLogado);
+
+        auditLogService.registrarAcao(
+                usuarioLogado.getId(),
+                usuarioLogado.getEmail(),
+                usuarioLogado.getPerfil().name(),
+                "ACEITAR_VAGA_LISTA_ESPERA",
+                "ListaEspera",
+                id,
+                "Consulta: " + consulta.getId() + ", Slot: " + slot.getId()
+        );
+
+        return ConsultaDTO.from(consulta);
+    }
+
+    /**
+     * Registra a oferta de um slot já reservado em nome do paciente e envia a notificação.
+     * Devolve false se a inscrição deixou de aguardar (ex.: cancelada) enquanto o slot era reservado.
+     */
+    @Transactional
+    public boolean registrarOferta(Long inscricaoId, Long slotId, LocalDateTime expiraEm) {
+        ListaEspera inscricao = listaEsperaRepository.findById(inscricaoId).orElse(null);
+        if (inscricao == null || inscricao.getStatus() != StatusListaEspera.AGUARDANDO) {
+            return false;
+        }
+
+        inscricao.setStatus(StatusListaEspera.OFERTADO);
+        inscricao.setSlotOfertadoId(slotId);
+        inscricao.setOfertaExpiraEm(expiraEm);
+
+        AgendaMedicaSlot slot = agendaSlotService.buscarEntidadePorId(slotId);
+        notificacaoService.enviarNotificacao(
+                inscricao.getPaciente(),
+                "Surgiu uma vaga com " + slot.getMedico().getNome() + " em " + slot.getData().format(DATA) +
+                        " às " + slot.getHora().format(HORA) + ". Ela está reservada para você até " +
+                        expiraEm.format(HORA) + "; confirme pela lista de espera (inscrição " + inscricaoId + ").",
+                "VAGA_DISPONIVEL",
+                null
+        );
+        return true;
+    }
+
+    // A reserva do slot terminou sem aceite: a oferta expira e o slot segue para o próximo da fila
+    @Transactional
+    public void encerrarOfertas(Long slotId) {
+        // UPDATE condicional: uma oferta aceita ou cancelada em paralelo não volta a ser marcada como expirada
+        listaEsperaRepository.expirarOfertas(slotId);
+    }
+
+    public String especialidadeDoMedico(Long medicoId) {
+        return medicoRepository.findById(medicoId)
+                .map(Medico::getEspecialidade)
+                .orElse(null);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void carregarFilas() {
+        listaEsperaRepository.expirarVencidas(LocalDate.now());
+
+        // Ofertas cuja reserva venceu com a aplicação parada não geram mais evento de liberação
+        LocalDateTime agora = LocalDateTime.now();
+        listaEsperaRepository.findByStatus(StatusListaEspera.OFERTADO).stream()
+                .filter(inscricao -> !inscricao.getOfertaExpiraEm().isAfter(agora))
+                .forEach(inscricao -> inscricao.setStatus(StatusListaEspera.OFERTA_EXPIRADA));
+
+        filas.limpar();
+        listaEsperaRepository.findByStatus(StatusListaEspera.AGUARDANDO).stream()
+                .filter(inscricao -> inscricao.getPaciente().getUsuario() != null)
+                .forEach(inscricao -> filas.adicionar(paraFila(inscricao)));
+    }
+
+    private ListaEspera buscarComAcesso(Long id, Usuario usuarioLogado) {
+        ListaEspera inscricao = listaEsperaRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Inscrição na lista de espera não encontrada."));
+
+        if (usuarioLogado.getPerfil() == PerfilUsuario.ADMIN) {
+            return inscricao;
+        }
+        Usuario dono = inscricao.getPaciente().getUsuario();
+        if (usuarioLogado.getPerfil() != PerfilUsuario.PACIENTE || dono == null || !dono.getId().equals(usuarioLogado.getId())) {
+            throw new AccessDeniedException("Pacientes só podem acessar suas próprias inscrições.");
+        }
+        return inscricao;
+    }
+
+    private static void validarInscricao(InscreverListaEsperaRequest request) {
+        boolean porMedico = request.getMedicoId() != null;
+        boolean porEspecialidade = request.getEspecialidade() != null && !request.getEspecialidade().isBlank();
+        if (porMedico == porEspecialidade) {
+            throw new IllegalArgumentException("Informe o médico ou a especialidade (apenas um dos dois).");
+        }
+        if (request.getDataInicio() == null || request.getDataFim() == null ||
+                request.getDataFim().isBefore(request.getDataInicio())) {
+            throw new IllegalArgumentException("Informe um período válido (dataInicio <= dataFim).");
+        }
+        if (request.getDataFim().isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("O período desejado já terminou.");
+        }
+        if (ChronoUnit.DAYS.between(request.getDataInicio(), request.getDataFim()) >= MAX_DIAS_ESPERA) {
+            throw new IllegalArgumentException("O período máximo de espera é de " + MAX_DIAS_ESPERA + " dias.");
+        }
+    }
+
+    private static FilasListaEspera.Inscricao paraFila(ListaEspera inscricao) {
+        return new FilasListaEspera.Inscricao(
+                inscricao.getId(),
+                inscricao.getPaciente().getId(),
+                inscricao.getPaciente().getUsuario().getId(),
+                inscricao.getMedico() != null ? inscricao.getMedico().getId() : null,
+                inscricao.getEspecialidade(),
+                inscricao.getDataInicio(),
+                inscricao.getDataFim(),
+                inscricao.getPrioridade(),
+                inscricao.getCriadoEm()
+        );
+    }
+}
@@ -0,0 +1,151 @@
+package com.vidaplus.sghss_backend.service;
+
+import com.vidaplus.sghss_backend.dto.MapaCalorAgendaDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mapa de calor da carga dos médicos (médico × dia da semana × hora).
+ * O banco agrupa slots e consultas por (médico, dia da semana, hora) e as linhas são lidas uma única vez
+ * direto para vetores int[] indexados pela posição do médico, sem entidades nem mapas de objetos.
+ * O resultado de cada janela fica em cache por alguns minutos (LRU pequeno).
+ */
+@Service
+@RequiredArgsConstructor
+public class MapaCalorAgendaService {
+
+    private static final int CELULAS = 7 * 24;
+    private static final int MAX_DIAS = 366 * 5;
+    private static final int MAX_JANELAS_EM_CACHE = 32;
+
+    private static final String SQL_MEDICOS = "SELECT id, nome FROM medicos ORDER BY id";
+
+    // WEEKDAY: 0 = segunda ... 6 = domingo
+    private static final String SQL_SLOTS =
+            "SELECT medico_id, WEEKDAY(data) AS dia, HOUR(hora) AS h, COUNT(*) AS total, " +
+                    "SUM(CASE WHEN disponivel THEN 0 ELSE 1 END) AS ocupados " +
+                    "FROM agenda_medica_slots WHERE data BETWEEN ? AND ? GROUP BY medico_id, dia, h";
+
+    private static final String SQL_CONSULTAS =
+            "SELECT medico_id, WEEKDAY(data) AS dia, HOUR(hora) AS h, " +
+                    "SUM(CASE WHEN status <> 'CANCELADA' THEN 1 ELSE 0 END) AS ativas, " +
+                    "SUM(CASE WHEN status = 'CANCELADA' THEN 1 ELSE 0 END) AS canceladas " +
+                    "FROM consultas WHERE data BETWEEN ? AND ? GROUP BY medico_id, dia, h";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${relatorios.mapa-calor.cache-segundos:300}")
+    private long cacheSegundos;
+
+    private record EmCache(MapaCalorAgendaDTO mapa, long expiraEmMillis) {}
+
+    private final Map<String, EmCache> cache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, EmCache> eldest) {
+            return size() > MAX_JANELAS_EM_CACHE;
+        }
+    };
+
+    public MapaCalorAgendaDTO gerar(LocalDate de, LocalDate ate) {
+        if (de == null || ate == null || ate.isBefore(de)) {
+            throw new IllegalArgumentException("Informe um período válido (de <= ate).");
+        }
+        if (ChronoUnit.DAYS.between(de, ate) >= MAX_DIAS) {
+            throw new IllegalArgumentException("O período máximo do mapa de calor é de " + MAX_DIAS + " dias.");
+        }
+
+        String chave = de + ":" + ate;
+        long agora = System.currentTimeMillis();
+        synchronized (cache) {
+            EmCache emCache = cache.get(chave);
+            if (emCache != null && agora < emCache.expiraEmMillis()) {
+                return emCache.mapa();
+            }
+        }
+
+        // Dois pedidos simultâneos da mesma janela podem calcular juntos; o último grava no cache
+        MapaCalorAgendaDTO mapa = calcular(de, ate);
+        synchronized (cache) {
+            cache.put(chave, new EmCache(mapa, agora + cacheSegundos * 1000));
+        }
+        return mapa;
+    }
+
+    private MapaCalorAgendaDTO calcular(LocalDate de, LocalDate ate) {
+        // Médicos em ordem de id: a posição no vetor é achada por busca binária
+        List<String> nomes = new ArrayList<>();
+        long[][] ids = {new long[64]}; // vetor que cresce dentro do callback
+        jdbcTemplate.query(SQL_MEDICOS, rs -> {
+            int posicao = nomes.size();
+            if (posicao == ids[0].length) ids[0] = Arrays.copyOf(ids[0], posicao * 2);
+            ids[0][posicao] = rs.getLong(1);
+            nomes.add(rs.getString(2));
+        });
+        int quantidade = nomes.size();
+        long[] medicoIds = Arrays.copyOf(ids[0], quantidade);
+
+        int[] slotsTotal = new int[quantidade * CELULAS];
+        int[] slotsOcupados = new int[quantidade * CELULAS];
+        int[] consultas = new int[quantidade * CELULAS];
+        int[] canceladas = new int[quantidade * CELULAS];
+
+        Date inicio = Date.valueOf(de);
+        Date fim = Date.valueOf(ate);
+
+        jdbcTemplate.query(SQL_SLOTS, rs -> {
+            int medico = Arrays.binarySearch(medicoIds, rs.getLong(1));
+            if (medico < 0) return;
+            int celula = medico * CELULAS + rs.getInt(2) * 24 + rs.getInt(3);
+            slotsTotal[celula] += rs.getInt(4);
+            slotsOcupados[celula] += rs.getInt(5);
+        }, inicio, fim);
+
+        jdbcTemplate.query(SQL_CONSULTAS, rs -> {
+            int medico = Arrays.binarySearch(medicoIds, rs.getLong(1));
+            if (medico < 0) return;
+            int celula = medico * CELULAS + rs.getInt(2) * 24 + rs.getInt(3);
+            consultas[celula] += rs.getInt(4);
+            canceladas[celula] += rs.getInt(5);
+        }, inicio, fim);
+
+        // Médicos sem nenhum slot ou consulta no período ficam de fora
+        List<MapaCalorAgendaDTO.Medico> medicos = new ArrayList<>();
+        for (int medico = 0; medico < quantidade; medico++) {
+            int primeira = medico * CELULAS;
+            int limite = primeira + CELULAS;
+            if (vazio(slotsTotal, primeira, limite) && vazio(consultas, primeira, limite) && vazio(canceladas, primeira, limite)) continue;
+
+            medicos.add(new MapaCalorAgendaDTO.Medico(medicoIds[medico], nomes.get(medico),
+                    Arrays.copyOfRange(slotsTotal, primeira, limite),
+                    Arrays.copyOfRange(slotsOcupados, primeira, limite),
+                    Arrays.copyOfRange(consultas, primeira, limite),
+                    Arrays.copyOfRange(canceladas, primeira, limite)));
+        }
+
+        return MapaCalorAgendaDTO.builder()
+                .de(de)
+                .ate(ate)
+                .geradoEm(LocalDateTime.now())
+                .medicos(medicos)
+                .build();
+    }
+
+    private static boolean vazio(int[] valores, int de, int ate) {
+        for (int i = de; i < ate; i++) {
+            if (valores[i] != 0) return false;
+        }
+        return true;
+    }
+}
@@ -1,6 +1,7 @@
 package com.vidaplus.sghss_backend.service;
 
 import com.vidaplus.sghss_backend.dto.*;
+import com.vidaplus.sghss_backend.event.AgendaSlotAlteradoEvent;
 import com.vidaplus.sghss_backend.model.Medico;
 import com.vidaplus.sghss_backend.model.Usuario;
 import com.vidaplus.sghss_backend.model.enums.PerfilUsuario;
@@ -9,6 +10,7 @@ import com.vidaplus.sghss_backend.repository.UsuarioRepository;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 
@@ -22,6 +24,7 @@ public class MedicoService {
     private final MedicoRepository medicoRepository;
     private final UsuarioRepository usuarioRepository;
     private final AuditLogService auditLogService; // ← audit logs
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Criar médico
@@ -211,6 +214,12 @@ public class MedicoService {
             medico.getConsultas().clear();
         }
 
+        // Slots são removidos em cascata junto com o médico
+        if (medico.getAgendaSlots() != null) {
+            medico.getAgendaSlots().forEach(slot ->
+                    eventPublisher.publishEvent(AgendaSlotAlteradoEvent.removido(slot)));
+        }
+
         medicoRepository.delete(medico);
 
         // Registrar log
@@ -0,0 +1,150 @@
+package com.vidaplus.sghss_backend.service;
+
+import com.vidaplus.sghss_backend.dto.PainelAgendaDTO;
+import com.vidaplus.sghss_backend.model.Medico;
+import com.vidaplus.sghss_backend.model.Usuario;
+import com.vidaplus.sghss_backend.model.enums.PerfilUsuario;
+import com.vidaplus.sghss_backend.model.enums.StatusConsulta;
+import com.vidaplus.sghss_backend.repository.MedicoRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Painel de semana/mês: consultas por dia e status e ocupação da agenda por dia e por médico,
+ * tudo numa única ida ao banco (três GROUP BY unidos por UNION ALL). A ocupação vem dos contadores
+ * diários (agenda_disponibilidade_diaria), sem percorrer os slots; médicos com expediente somam os horários
+ * calculados que ainda não viraram linha (uma leitura dos slots do período por médico com expediente).
+ */
+@Service
+@RequiredArgsConstructor
+public class PainelAgendaService {
+
+    private static final int MAX_DIAS_PAINEL = 93;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AgendaExpedienteService expedienteService;
+    private final MedicoRepository medicoRepository;
+
+    private static final class DiaParcial {
+        final Map<StatusConsulta, Long> consultas = new EnumMap<>(StatusConsulta.class);
+        long slotsTotal;
+        long slotsLivres;
+    }
+
+    public PainelAgendaDTO montarPainel(LocalDate de, LocalDate ate, Long medicoId, Usuario usuarioLogado) {
+        if (usuarioLogado.getPerfil() == PerfilUsuario.PACIENTE) {
+            throw new AccessDeniedException("Paciente não pode acessar o painel da agenda.");
+        }
+        if (usuarioLogado.getPerfil() == PerfilUsuario.MEDICO) {
+            if (usuarioLogado.getMedico() == null ||
+                    (medicoId != null && !usuarioLogado.getMedico().getId().equals(medicoId))) {
+                throw new AccessDeniedException("Médico só pode acessar sua própria agenda.");
+            }
+            medicoId = usuarioLogado.getMedico().getId();
+        }
+        if (de == null || ate == null || ate.isBefore(de)) {
+            throw new IllegalArgumentException("Informe um período válido (de <= ate).");
+        }
+        if (ChronoUnit.DAYS.between(de, ate) >= MAX_DIAS_PAINEL) {
+            throw new IllegalArgumentException("O período máximo do painel é de " + MAX_DIAS_PAINEL + " dias.");
+        }
+
+        String filtroConsultas = medicoId != null ? " AND c.medico_id = ?" : "";
+        String filtroContadores = medicoId != null ? " AND d.medico_id = ?" : "";
+        String sql =
+                "SELECT 'C' AS tipo, c.data AS data, NULL AS medico_id, NULL AS medico_nome, c.status AS status, " +
+                        "COUNT(*) AS quantidade, 0 AS livres " +
+                        "FROM consultas c WHERE c.data BETWEEN ? AND ?" + filtroConsultas + " GROUP BY c.data, c.status " +
+                "UNION ALL " +
+                "SELECT 'D', d.data, NULL, NULL, NULL, SUM(d.total), SUM(d.livres) " +
+                        "FROM agenda_disponibilidade_diaria d WHERE d.data BETWEEN ? AND ?" + filtroContadores +
+                        " GROUP BY d.data " +
+                "UNION ALL " +
+                "SELECT 'M', NULL, d.medico_id, m.nome, NULL, SUM(d.total), SUM(d.livres) " +
+                        "FROM agenda_disponibilidade_diaria d JOIN medicos m ON m.id = d.medico_id " +
+                        "WHERE d.data BETWEEN ? AND ?" + filtroContadores + " GROUP BY d.medico_id, m.nome";
+
+        List<Object> parametros = new ArrayList<>(9);
+        for (int i = 0; i < 3; i++) {
+            parametros.add(Date.valueOf(de));
+            parametros.add(Date.valueOf(ate));
+            if (medicoId != null) parametros.add(medicoId);
+        }
+
+        TreeMap<LocalDate, DiaParcial> dias = new TreeMap<>();
+        Map<Long, PainelAgendaDTO.OcupacaoMedico> medicos = new LinkedHashMap<>();
+
+        jdbcTemplate.query(sql, rs -> {
+            long quantidade = rs.getLong("quantidade");
+            long livres = rs.getLong("livres");
+            switch (rs.getString("tipo")) {
+                case "C" -> dias.computeIfAbsent(rs.getDate("data").toLocalDate(), d -> new DiaParcial())
+                        .consultas.merge(StatusConsulta.valueOf(rs.getString("status")), quantidade, Long::sum);
+                case "D" -> {
+                    DiaParcial dia = dias.computeIfAbsent(rs.getDate("data").toLocalDate(), d -> new DiaParcial());
+                    dia.slotsTotal = quantidade;
+                    dia.slotsLivres = livres;
+                }
+                default -> {
+                    if (quantidade == 0) return;
+                    long id = rs.getLong("medico_id");
+                    medicos.put(id, ocupacao(id, rs.getString("medico_nome"), quantidade, livres));
+                }
+            }
+        }, parametros.toArray());
+
+        List<Long> comExpediente = medicoId != null
+                ? (expedienteService.possuiExpediente(medicoId) ? List.of(medicoId) : List.of())
+                : expedienteService.medicosComExpediente(de, ate);
+        for (Long id : comExpediente) {
+            Map<LocalDate, Integer> calculados = expedienteService.livresCalculadosPorDia(id, de, ate);
+            if (calculados.isEmpty()) continue;
+
+            long somados = 0;
+            for (Map.Entry<LocalDate, Integer> dia : calculados.entrySet()) {
+                DiaParcial parcial = dias.computeIfAbsent(dia.getKey(), d -> new DiaParcial());
+                parcial.slotsTotal += dia.getValue();
+                parcial.slotsLivres += dia.getValue();
+                somados += dia.getValue();
+            }
+
+            PainelAgendaDTO.OcupacaoMedico atual = medicos.get(id);
+            String nome = atual != null ? atual.medicoNome()
+                    : medicoRepository.findById(id).map(Medico::getNome).orElse(null);
+            long total = (atual != null ? atual.slotsTotal() : 0) + somados;
+            long livres = (atual != null ? atual.slotsLivres() : 0) + somados;
+            medicos.put(id, ocupacao(id, nome, total, livres));
+        }
+
+        List<PainelAgendaDTO.OcupacaoMedico> ocupacoes = new ArrayList<>(medicos.values());
+        ocupacoes.sort((a, b) -> Double.compare(b.ocupacao(), a.ocupacao()));
+
+        return PainelAgendaDTO.builder()
+                .de(de)
+                .ate(ate)
+                .medicoId(medicoId)
+                .dias(dias.entrySet().stream()
+                        .filter(e -> !e.getValue().consultas.isEmpty() || e.getValue().slotsTotal > 0)
+                        .map(e -> new PainelAgendaDTO.Dia(e.getKey(), e.getValue().consultas,
+                                e.getValue().slotsTotal, e.getValue().slotsLivres))
+                        .toList())
+                .medicos(ocupacoes)
+                .build();
+    }
+
+    private static PainelAgendaDTO.OcupacaoMedico ocupacao(Long medicoId, String nome, long total, long livres) {
+        return new PainelAgendaDTO.OcupacaoMedico(medicoId, nome, total, livres, (double) (total - livres) / total);
+    }
+}
@@ -0,0 +1,22 @@
+package com.vidaplus.sghss_backend.service;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Acompanhamento da geração de um relatório: etapas concluídas (seções do PDF, coleções do JSON) e linhas escritas.
+ * Entre uma leitura e outra o gerador chama verificarCancelamento(), que interrompe a geração de um job cancelado.
+ */
+public interface ProgressoRelatorio {
+
+    ProgressoRelatorio NENHUM = new ProgressoRelatorio() {};
+
+    default void etapa(int concluidas, int total) {}
+
+    default void linhas(int quantidade) {}
+
+    default void verificarCancelamento() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Geração do relatório cancelada.");
+        }
+    }
+}
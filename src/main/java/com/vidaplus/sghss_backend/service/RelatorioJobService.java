@@ -0,0 +1,374 @@
+package com.vidaplus.sghss_backend.service;
+
+import com.vidaplus.sghss_backend.dto.RelatorioJobDTO;
+import com.vidaplus.sghss_backend.exception.FilaRelatoriosCheiaException;
+import com.vidaplus.sghss_backend.model.Usuario;
+import com.vidaplus.sghss_backend.model.enums.FormatoRelatorio;
+import com.vidaplus.sghss_backend.model.enums.PerfilUsuario;
+import com.vidaplus.sghss_backend.model.enums.StatusRelatorioJob;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Geração de relatórios em segundo plano. O pedido vira um job (id, status, progresso) e roda num executor
+ * próprio, com no máximo relatorios.jobs.concorrencia gerações simultâneas e uma fila limitada: threads do Tomcat
+ * e conexões do pool continuam livres para o restante do sistema, por mais relatórios que sejam pedidos.
+ * O estado dos jobs fica em memória e é descartado (com o arquivo gerado) depois de relatorios.jobs.retencao-minutos.
+ * As gerações síncronas (resposta escrita enquanto o relatório é gerado) passam por um semáforo próprio,
+ * limitado por relatorios.sincronos.concorrencia: sem vaga, o pedido é recusado na hora em vez de esperar.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RelatorioJobService {
+
+    private final RelatorioService relatorioService;
+    private final AuditLogService auditLogService;
+
+    @Value("${relatorios.jobs.concorrencia:2}")
+    private int concorrencia;
+
+    @Value("${relatorios.jobs.fila-maxima:20}")
+    private int filaMaxima;
+
+    @Value("${relatorios.jobs.retencao-minutos:60}")
+    private long retencaoMinutos;
+
+    @Value("${relatorios.sincronos.concorrencia:2}")
+    private int concorrenciaSincronos;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor executor;
+    private Semaphore vagasSincronos;
+
+    public record Download(String nomeArquivo, MediaType tipo, StreamingResponseBody corpo) {}
+
+    @PostConstruct
+    void iniciar() {
+        if (concorrencia < 1 || filaMaxima < 1) {
+            throw new IllegalArgumentException("relatorios.jobs: concorrencia e fila-maxima devem ser positivos.");
+        }
+        if (concorrenciaSincronos < 1) {
+            throw new IllegalArgumentException("relatorios.sincronos.concorrencia deve ser positivo.");
+        }
+        vagasSincronos = new Semaphore(concorrenciaSincronos);
+
+        AtomicInteger contador = new AtomicInteger();
+        executor = new ThreadPoolExecutor(concorrencia, concorrencia, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(filaMaxima), tarefa -> {
+            Thread thread = new Thread(tarefa, "relatorio-job-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void encerrar() {
+        executor.shutdownNow();
+        jobs.values().forEach(Job::apagarArquivo);
+    }
+
+    public RelatorioJobDTO enfileirar(FormatoRelatorio formato, Usuario usuarioLogado) {
+        verificarAdmin(usuarioLogado);
+        if (formato == null) {
+            throw new IllegalArgumentException("Informe o formato do relatório (JSON ou PDF).");
+        }
+
+        Job job = new Job(UUID.randomUUID().toString(), formato, usuarioLogado.getId());
+        jobs.put(job.id, job);
+        try {
+            job.futuro = executor.submit(() -> executar(job, usuarioLogado));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw new FilaRelatoriosCheiaException("Há relatórios demais na fila; tente novamente em alguns minutos.");
+        }
+
+        auditLogService.registrarAcao(
+                usuarioLogado.getId(),
+                usuarioLogado.getEmail(),
+                usuarioLogado.getPerfil().name(),
+                "ENFILEIRAR_RELATORIO",
+                "Relatorio",
+                null,
+                "Job " + job.id + " (" + formato + ") enfileirado."
+        );
+
+        return job.toDTO();
+    }
+
+    /**
+     * Reserva uma vaga de geração síncrona e devolve o corpo da resposta, que libera a vaga ao terminar de escrever
+     * (com sucesso ou erro). Sem vaga disponível lança FilaRelatoriosCheiaException (429).
+     */
+    public StreamingResponseBody limitarSincrono(Supplier<StreamingResponseBody> gerar) {
+        if (!vagasSincronos.tryAcquire()) {
+            throw new FilaRelatoriosCheiaException("Há relatórios demais sendo gerados; tente novamente em alguns minutos " +
+                    "ou use POST /relatorios/jobs.");
+        }
+
+        AtomicBoolean liberada = new AtomicBoolean();
+        Runnable liberar = () -> {
+            if (liberada.compareAndSet(false, true)) vagasSincronos.release();
+        };
+        try {
+            StreamingResponseBody corpo = gerar.get();
+            return saida -> {
+                try {
+                    corpo.writeTo(saida);
+                } finally {
+                    liberar.run();
+                }
+            };
+        } catch (RuntimeException | Error e) {
+            // Falhou antes de começar a escrever (permissão, base inexistente...): a vaga volta na hora
+            liberar.run();
+            throw e;
+        }
+    }
+
+    public RelatorioJobDTO consultar(String jobId, Usuario usuarioLogado) {
+        verificarAdmin(usuarioLogado);
+        return buscar(jobId).toDTO();
+    }
+
+    public List<RelatorioJobDTO> listar(Usuario usuarioLogado) {
+        verificarAdmin(usuarioLogado);
+        return jobs.values().stream()
+                .sorted(Comparator.comparing((Job j) -> j.solicitadoEm).reversed())
+                .map(Job::toDTO)
+                .toList();
+    }
+
+    public RelatorioJobDTO cancelar(String jobId, Usuario usuarioLogado) {
+        verificarAdmin(usuarioLogado);
+        Job job = buscar(jobId);
+
+        if (!job.cancelar()) {
+            throw new IllegalArgumentException("O job já foi finalizado (" + job.status + ").");
+        }
+        // Se ainda estava na fila, libera a vaga para o próximo pedido
+        if (job.futuro instanceof Runnable tarefa) {
+            executor.remove(tarefa);
+        }
+
+        auditLogService.registrarAcao(
+                usuarioLogado.getId(),
+                usuarioLogado.getEmail(),
+                usuarioLogado.getPerfil().name(),
+                "CANCELAR_RELATORIO",
+                "Relatorio",
+                null,
+                "Job " + job.id + " (" + job.formato + ") cancelado."
+        );
+
+        return job.toDTO();
+    }
+
+    public Download baixar(String jobId, Usuario usuarioLogado) {
+        verificarAdmin(usuarioLogado);
+        Job job = buscar(jobId);
+
+        if (job.status != StatusRelatorioJob.CONCLUIDO) {
+            throw new IllegalArgumentException("O relatório ainda não está pronto (" + job.status + ").");
+        }
+
+        if (job.formato == FormatoRelatorio.PDF) {
+            Path arquivo = job.arquivo;
+            return new Download("relatorio_completo_" + job.id + ".pdf", MediaType.APPLICATION_PDF,
+                    saida -> Files.copy(arquivo, saida));
+        }
+
+        Long relatorioId = job.relatorioId;
+        return new Download("relatorio_completo_" + relatorioId + ".json", MediaType.APPLICATION_JSON,
+                saida -> relatorioService.escreverConteudo(relatorioId, saida, false));
+    }
+
+    // Jobs finalizados há mais tempo que a retenção saem da memória e o arquivo temporário é apagado
+    @Scheduled(fixedDelay = 60_000)
+    public void descartarFinalizados() {
+        LocalDateTime limite = LocalDateTime.now().minusMinutes(retencaoMinutos);
+        jobs.values().removeIf(job -> {
+            boolean expirado = job.finalizadoEm != null && job.finalizadoEm.isBefore(limite);
+            if (expirado) job.apagarArquivo();
+            return expirado;
+        });
+    }
+
+    // Qualquer saída que não seja a conclusão normal termina em FALHOU (ou CANCELADO), e o arquivo temporário é apagado
+    private void executar(Job job, Usuario usuarioLogado) {
+        if (!job.iniciar()) return;
+
+        StatusRelatorioJob status = StatusRelatorioJob.FALHOU;
+        String erro = null;
+        try {
+            if (job.formato == FormatoRelatorio.PDF) {
+                job.arquivo = Files.createTempFile("relatorio-" + job.id, ".pdf");
+                try (OutputStream saida = new BufferedOutputStream(Files.newOutputStream(job.arquivo))) {
+                    relatorioService.escreverPdfRelatorioCompleto(saida, job);
+                }
+            } else {
+                job.relatorioId = relatorioService.gerarRelatorioCompleto(usuarioLogado, OutputStream.nullOutputStream(), job).getId();
+            }
+            status = job.cancelado ? StatusRelatorioJob.CANCELADO : StatusRelatorioJob.CONCLUIDO;
+        } catch (CancellationException e) {
+            status = StatusRelatorioJob.CANCELADO;
+        } catch (Throwable e) {
+            if (job.cancelado) {
+                status = StatusRelatorioJob.CANCELADO;
+            } else {
+                log.error("Falha no job de relatório {} ({})", job.id, job.formato, e);
+                erro = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            }
+        } finally {
+            job.finalizar(status, erro);
+        }
+    }
+
+    private Job buscar(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            throw new EntityNotFoundException("Job de relatório não encontrado.");
+        }
+        return job;
+    }
+
+    private void verificarAdmin(Usuario usuarioLogado) {
+        if (usuarioLogado.getPerfil() != PerfilUsuario.ADMIN) {
+            throw new AccessDeniedException("Apenas administradores podem gerar relatórios.");
+        }
+    }
+
+    // Estado de um job; as transições de status são sincronizadas, o progresso é só leitura/escrita volátil
+    private static final class Job implements ProgressoRelatorio {
+
+        private final String id;
+        private final FormatoRelatorio formato;
+        private final Long solicitadoPorId;
+        private final LocalDateTime solicitadoEm = LocalDateTime.now();
+
+        private volatile StatusRelatorioJob status = StatusRelatorioJob.NA_FILA;
+        private volatile boolean cancelado;
+        private volatile int etapasConcluidas;
+        private volatile int totalEtapas;
+        private volatile long linhasProcessadas;
+        private volatile LocalDateTime iniciadoEm;
+        private volatile LocalDateTime finalizadoEm;
+        private volatile Long relatorioId;
+        private volatile Path arquivo;
+        private volatile String erro;
+        private volatile Future<?> futuro;
+
+        Job(String id, FormatoRelatorio formato, Long solicitadoPorId) {
+            this.id = id;
+            this.formato = formato;
+            this.solicitadoPorId = solicitadoPorId;
+        }
+
+        synchronized boolean iniciar() {
+            if (status != StatusRelatorioJob.NA_FILA) return false;
+            status = StatusRelatorioJob.EXECUTANDO;
+            iniciadoEm = LocalDateTime.now();
+            return true;
+        }
+
+        synchronized boolean cancelar() {
+            if (status != StatusRelatorioJob.NA_FILA && status != StatusRelatorioJob.EXECUTANDO) return false;
+            cancelado = true;
+
+            if (status == StatusRelatorioJob.NA_FILA) {
+                // Ainda não começou: sai do estado na hora (a tarefa na fila não fará nada ao ser retirada)
+                status = StatusRelatorioJob.CANCELADO;
+                finalizadoEm = LocalDateTime.now();
+            }
+            if (futuro != null) futuro.cancel(true);
+            return true;
+        }
+
+        synchronized void finalizar(StatusRelatorioJob novoStatus, String mensagemErro) {
+            if (novoStatus != StatusRelatorioJob.CONCLUIDO) apagarArquivo();
+            status = novoStatus;
+            erro = mensagemErro;
+            finalizadoEm = LocalDateTime.now();
+        }
+
+        void apagarArquivo() {
+            Path atual = arquivo;
+            if (atual == null) return;
+            try {
+                Files.deleteIfExists(atual);
+            } catch (IOException ignorado) {
+                // Arquivo temporário: o sistema operacional limpa o que sobrar
+            }
+        }
+
+        @Override
+        public void etapa(int concluidas, int total) {
+            etapasConcluidas = concluidas;
+            totalEtapas = total;
+        }
+
+        @Override
+        public void linhas(int quantidade) {
+            linhasProcessadas += quantidade; // só a thread do job escreve
+        }
+
+        @Override
+        public void verificarCancelamento() {
+            if (cancelado || Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Geração do relatório cancelada.");
+            }
+        }
+
+        RelatorioJobDTO toDTO() {
+            int total = totalEtapas;
+            return RelatorioJobDTO.builder()
+                    .id(id)
+                    .formato(formato)
+                    .status(status)
+                    .etapasConcluidas(etapasConcluidas)
+                    .totalEtapas(total)
+                    .percentual(status == StatusRelatorioJob.CONCLUIDO ? 100
+                            : total == 0 ? 0 : etapasConcluidas * 100 / total)
+                    .linhasProcessadas(linhasProcessadas)
+                    .solicitadoPorId(solicitadoPorId)
+                    .solicitadoEm(solicitadoEm)
+                    .iniciadoEm(iniciadoEm)
+                    .finalizadoEm(finalizadoEm)
+                    .relatorioId(relatorioId)
+                    .erro(erro)
+                    .build();
+        }
+    }
+}
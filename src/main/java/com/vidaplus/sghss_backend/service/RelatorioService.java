@@ -1,207 +1,660 @@
 package com.vidaplus.sghss_backend.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vidaplus.sghss_backend.dto.AdminRespostaDTO;
-import com.vidaplus.sghss_backend.dto.AgendaMedicaRespostaDTO;
-import com.vidaplus.sghss_backend.dto.RelatorioCompletoDTO;
+import com.vidaplus.sghss_backend.dto.RelatorioResumoDTO;
 import com.vidaplus.sghss_backend.model.*;
 import com.vidaplus.sghss_backend.model.enums.PerfilUsuario;
+import com.vidaplus.sghss_backend.repository.AgendaMedicaSlotRepository;
+import com.vidaplus.sghss_backend.repository.ConsultaRepository;
+import com.vidaplus.sghss_backend.repository.MedicoRepository;
+import com.vidaplus.sghss_backend.repository.PacienteRepository;
+import com.vidaplus.sghss_backend.repository.ProntuarioRepository;
 import com.vidaplus.sghss_backend.repository.RelatorioRepository;
+import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageContentStream;
-import org.apache.pdfbox.pdmodel.font.PDType1Font;
-
-import java.io.ByteArrayOutputStream;
-
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import com.vidaplus.sghss_backend.util.EscritorPdf;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class RelatorioService {
 
-    private final PacienteService pacienteService;
-    private final MedicoService medicoService;
     private final ConsultaService consultaService;
-    private final ProntuarioService prontuarioService;
-    private final AgendaMedicaSlotService agendaSlotService;
     private final RelatorioRepository relatorioRepository;
+    private final PacienteRepository pacienteRepository;
+    private final MedicoRepository medicoRepository;
+    private final ConsultaRepository consultaRepository;
+    private final ProntuarioRepository prontuarioRepository;
+    private final AgendaMedicaSlotRepository agendaSlotRepository;
     private final ObjectMapper objectMapper;
     private final AuditLogService auditLogService; // ← Adicionado
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    private static final int TAMANHO_PAGINA_LEITURA = 1000;
+    private static final int MAX_CARACTERES_REGISTRO = 500;
+    // Acima disso as páginas do PDF vão para arquivo temporário
+    private static final long MEMORIA_MAXIMA_PDF_BYTES = 8L * 1024 * 1024;
+    private static final int SECOES_PDF = 5;
+    private static final int ETAPAS_JSON = 6; // 5 tabelas + gravação
+    private static final int BUFFER_GZIP = 64 * 1024;
+    private static final int TAMANHO_MAXIMO_PAGINA_LISTAGEM = 100;
+    // Filtro de atualizado_em que inclui todas as linhas (relatório completo)
+    private static final LocalDateTime LEITURA_COMPLETA = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    // Deltas releem esta janela antes da marca da base: cobre transações que gravaram atualizado_em antes da marca
+    // mas só confirmaram depois da leitura. Linhas repetidas entre deltas são resolvidas pelo id na consolidação.
+    @Value("${relatorios.delta.margem-segundos:300}")
+    private long margemDeltaSegundos;
+
+    /**
+     * Relatório completo em JSON, escrito direto na resposta. As cinco tabelas são lidas por cursores (streams
+     * de projeções, sem entidades na sessão) e cada linha vai para o JsonGenerator assim que chega; o mesmo fluxo
+     * é copiado para um arquivo temporário, gravado no relatório ao final. Sem String intermediária nem segunda
+     * serialização, o heap usado depende do buffer, não do tamanho do banco.
+     */
+    public StreamingResponseBody gerarRelatorioCompleto(Usuario usuarioLogado) {
+        verificarAdmin(usuarioLogado);
+        return saida -> gerarRelatorioCompleto(usuarioLogado, saida, ProgressoRelatorio.NENHUM);
+    }
 
-    public Relatorio gerarRelatorioCompleto(Usuario usuarioLogado) {
-        if (usuarioLogado.getPerfil() != PerfilUsuario.ADMIN) {
-            throw new AccessDeniedException("Apenas administradores podem gerar relatórios.");
+    public Relatorio gerarRelatorioCompleto(Usuario usuarioLogado, OutputStream saida, ProgressoRelatorio progresso)
+            throws IOException {
+        verificarAdmin(usuarioLogado);
+        return gerarRelatorioJson(usuarioLogado, null, saida, progresso);
+    }
+
+    /**
+     * Relatório incremental: mesmo formato do completo, mas só com as linhas criadas ou alteradas (atualizado_em)
+     * desde a marca d'água do relatório base, lidas pelos índices de atualizado_em. Sem base informada, parte do
+     * relatório mais recente que tem marca. Deltas sucessivos formam uma cadeia até um relatório completo,
+     * que GET /relatorios/{id}/consolidado junta numa visão só.
+     */
+    public StreamingResponseBody gerarRelatorioDelta(Long baseRelatorioId, Usuario usuarioLogado) {
+        verificarAdmin(usuarioLogado);
+        Relatorio base = resolverBase(baseRelatorioId);
+        return saida -> gerarRelatorioJson(usuarioLogado, base, saida, ProgressoRelatorio.NENHUM);
+    }
+
+    private Relatorio resolverBase(Long baseRelatorioId) {
+        if (baseRelatorioId == null) {
+            return relatorioRepository.findFirstByMarcaDaguaIsNotNullOrderByMarcaDaguaDesc()
+                    .orElseThrow(() -> new IllegalArgumentException(
+                            "Nenhum relatório com marca d'água; gere primeiro um relatório completo."));
         }
 
-        // Buscar dados do sistema
-        List<Paciente> pacientes = pacienteService.listarTodosPacientes();
-        List<Medico> medicos = medicoService.listarTodosMedicos();
-        List<Consulta> consultas = consultaService.listarTodasConsultas();
-        List<Prontuario> prontuarios = prontuarioService.listarTodosProntuarios();
-        List<AgendaMedicaRespostaDTO> slots = agendaSlotService.listarTodosSlots();
+        Relatorio base = relatorioRepository.findById(baseRelatorioId)
+                .orElseThrow(() -> new EntityNotFoundException("Relatório base não encontrado."));
+        if (base.getMarcaDagua() == null) {
+            throw new IllegalArgumentException("O relatório " + baseRelatorioId +
+                    " não tem marca d'água (não é um relatório completo ou incremental).");
+        }
+        return base;
+    }
 
-        // Criar DTO seguro do usuário que gerou o relatório (somente id, email e perfil)
-        AdminRespostaDTO adminDTO = new AdminRespostaDTO(
-                usuarioLogado.getId(),
-                usuarioLogado.getEmail(),
-                usuarioLogado.getPerfil().toString()
-        );
+    // base == null: relatório completo; senão, delta desde a marca da base (menos a margem de segurança)
+    private Relatorio gerarRelatorioJson(Usuario usuarioLogado, Relatorio base, OutputStream saida,
+                                         ProgressoRelatorio progresso) throws IOException {
+        LocalDateTime desde = base != null ? base.getMarcaDagua().minusSeconds(margemDeltaSegundos) : null;
 
-        // Criar DTO do relatório completo
-        RelatorioCompletoDTO relatorioDTO = new RelatorioCompletoDTO(
-                pacientes,
-                medicos,
-                consultas,
-                prontuarios,
-                slots,
-                adminDTO // garante que senha do admin não será exposta
-        );
+        Path copia = Files.createTempFile("relatorio-", ".json.gz");
+        try {
+            ContagemRelatorio contagem;
+            long tamanhoBytes;
+            try (SaidaGzip arquivo = new SaidaGzip(copia);
+                 JsonGenerator json = objectMapper.getFactory().createGenerator(new SaidaDupla(saida, arquivo))) {
+                contagem = escreverJsonRelatorioCompleto(json, usuarioLogado, progresso, base, desde);
+                json.flush();
+                tamanhoBytes = arquivo.getBytesEscritos();
+            }
+
+            String nome = base == null
+                    ? "Relatório completo - " + LocalDateTime.now()
+                    : "Relatório incremental desde o relatório " + base.getId() + " - " + LocalDateTime.now();
+            Relatorio salvo = gravarRelatorio(novoRelatorio(nome, usuarioLogado)
+                    .tamanhoBytes(tamanhoBytes)
+                    .totalRegistros(contagem.total())
+                    .marcaDagua(contagem.marcaDagua())
+                    .baseRelatorioId(base != null ? base.getId() : null)
+                    .desde(desde)
+                    .build(), copia);
+
+            // Registrar log de auditoria
+            auditLogService.registrarAcao(
+                    usuarioLogado.getId(),
+                    usuarioLogado.getEmail(),
+                    usuarioLogado.getPerfil().name(),
+                    base == null ? "GERAR_RELATORIO_COMPLETO" : "GERAR_RELATORIO_DELTA",
+                    "Relatorio",
+                    salvo.getId(),
+                    (base == null ? "Relatório gerado com " : "Delta desde " + desde + " com ") +
+                            contagem.pacientes() + " pacientes, " +
+                            contagem.medicos() + " médicos, " +
+                            contagem.consultas() + " consultas, " +
+                            contagem.prontuarios() + " prontuários, " +
+                            contagem.slots() + " slots de agenda."
+            );
 
-        // Converter DTO para JSON
-        String conteudoJson;
+            progresso.etapa(ETAPAS_JSON, ETAPAS_JSON);
+            return salvo;
+        } finally {
+            Files.deleteIfExists(copia);
+        }
+    }
+
+    private record ContagemRelatorio(int pacientes, int medicos, int consultas, int prontuarios, int slots,
+                                     LocalDateTime marcaDagua) {
+
+        long total() {
+            return (long) pacientes + medicos + consultas + prontuarios + slots;
+        }
+    }
+
+    @FunctionalInterface
+    private interface EscritorItem<T> {
+        void escrever(JsonGenerator json, T item) throws IOException;
+    }
+
+    // Os cursores do MySQL só ficam abertos dentro de uma transação; uma por relatório, somente leitura
+    private ContagemRelatorio escreverJsonRelatorioCompleto(JsonGenerator json, Usuario usuarioLogado,
+                                                           ProgressoRelatorio progresso, Relatorio base,
+                                                           LocalDateTime desde) throws IOException {
+        LocalDateTime filtro = desde != null ? desde : LEITURA_COMPLETA;
+        TransactionTemplate leitura = new TransactionTemplate(transactionManager);
+        leitura.setReadOnly(true);
         try {
-            conteudoJson = objectMapper.writeValueAsString(relatorioDTO);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Erro ao gerar JSON do relatório.", e);
+            return leitura.execute(status -> {
+                try {
+                    // Relógio do banco, o mesmo que preenche atualizado_em, lido antes das tabelas
+                    LocalDateTime marcaDagua = jdbcTemplate.queryForObject("SELECT NOW(6)", LocalDateTime.class);
+
+                    json.writeStartObject();
+                    json.writeStringField("tipo", base == null ? "COMPLETO" : "DELTA");
+                    json.writeObjectField("marcaDagua", marcaDagua);
+                    if (base != null) {
+                        json.writeNumberField("baseRelatorioId", base.getId());
+                        json.writeObjectField("desde", desde);
+                    }
+
+                    int pacientes = escreverSecaoJson(json, "pacientes", pacienteRepository.streamRelatorio(filtro), progresso, 1,
+                            (j, p) -> {
+                                j.writeNumberField("id", p.getId());
+                                j.writeStringField("nome", p.getNome());
+                                j.writeStringField("cpf", p.getCpf());
+                                j.writeObjectField("dataNascimento", p.getDataNascimento());
+                                j.writeStringField("endereco", p.getEndereco());
+                                j.writeStringField("telefone", p.getTelefone());
+                                j.writeStringField("teleconsultaInfo", p.getTeleconsultaInfo());
+                                j.writeObjectField("usuarioId", p.getUsuarioId());
+                            });
+
+                    int medicos = escreverSecaoJson(json, "medicos", medicoRepository.streamRelatorio(filtro), progresso, 2,
+                            (j, m) -> {
+                                j.writeNumberField("id", m.getId());
+                                j.writeStringField("nome", m.getNome());
+                                j.writeStringField("crm", m.getCrm());
+                                j.writeStringField("especialidade", m.getEspecialidade());
+                                j.writeObjectField("usuarioId", m.getUsuarioId());
+                            });
+
+                    int consultas = escreverSecaoJson(json, "consultas", consultaRepository.streamRelatorio(filtro), progresso, 3,
+                            (j, c) -> {
+                                j.writeNumberField("id", c.getId());
+                                j.writeObjectField("data", c.getData());
+                                j.writeObjectField("hora", c.getHora());
+                                j.writeObjectField("status", c.getStatus());
+                                j.writeObjectField("valor", c.getValor());
+                                j.writeNumberField("pacienteId", c.getPacienteId());
+                                j.writeNumberField("medicoId", c.getMedicoId());
+                            });
+
+                    int prontuarios = escreverSecaoJson(json, "prontuarios", prontuarioRepository.streamRelatorio(filtro), progresso, 4,
+                            (j, p) -> {
+                                j.writeNumberField("id", p.getId());
+                                j.writeStringField("registros", p.getRegistros());
+                                j.writeStringField("prescricoes", p.getPrescricoes());
+                                j.writeNumberField("pacienteId", p.getPacienteId());
+                                j.writeNumberField("medicoId", p.getMedicoId());
+                            });
+
+                    int slots = escreverSecaoJson(json, "slots", agendaSlotRepository.streamRelatorio(filtro), progresso, 5,
+                            (j, s) -> {
+                                j.writeNumberField("id", s.getId());
+                                j.writeObjectField("data", s.getData());
+                                j.writeObjectField("hora", s.getHora());
+                                j.writeBooleanField("disponivel", Boolean.TRUE.equals(s.getDisponivel()));
+                                j.writeNumberField("medicoId", s.getMedicoId());
+                                j.writeStringField("medicoNome", s.getMedicoNome());
+                                j.writeObjectField("consultaId", s.getConsultaId());
+                                j.writeStringField("pacienteNome", s.getPacienteNome());
+                            });
+
+                    // Somente id, email e perfil de quem gerou (a senha nunca entra no relatório)
+                    json.writeObjectField("adminGerador", new AdminRespostaDTO(
+                            usuarioLogado.getId(),
+                            usuarioLogado.getEmail(),
+                            usuarioLogado.getPerfil().toString()
+                    ));
+                    json.writeEndObject();
+
+                    return new ContagemRelatorio(pacientes, medicos, consultas, prontuarios, slots, marcaDagua);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private <T> int escreverSecaoJson(JsonGenerator json, String campo, Stream<T> linhas, ProgressoRelatorio progresso,
+                                      int etapa, EscritorItem<T> escritor) throws IOException {
+        int quantidade = 0;
+        json.writeArrayFieldStart(campo);
+        try (linhas) {
+            Iterator<T> cursor = linhas.iterator();
+            while (cursor.hasNext()) {
+                json.writeStartObject();
+                escritor.escrever(json, cursor.next());
+                json.writeEndObject();
+
+                if (++quantidade % TAMANHO_PAGINA_LEITURA == 0) {
+                    progresso.linhas(TAMANHO_PAGINA_LEITURA);
+                    progresso.verificarCancelamento();
+                }
+            }
         }
+        json.writeEndArray();
+
+        progresso.linhas(quantidade % TAMANHO_PAGINA_LEITURA);
+        progresso.etapa(etapa, ETAPAS_JSON);
+        progresso.verificarCancelamento();
+        return quantidade;
+    }
+
+    // Cria o registro (só metadados) e copia o gzip do arquivo para relatorio_conteudos por stream
+    private Relatorio gravarRelatorio(Relatorio relatorio, Path conteudoGzip) throws IOException {
+        long tamanhoComprimido = Files.size(conteudoGzip);
+        relatorio.setTamanhoComprimido(tamanhoComprimido);
+
+        TransactionTemplate escrita = new TransactionTemplate(transactionManager);
+        return escrita.execute(status -> {
+            Relatorio salvo = relatorioRepository.save(relatorio);
+            inserirConteudo(salvo.getId(), conteudoGzip, tamanhoComprimido);
+            return salvo;
+        });
+    }
 
-        // Criar entidade Relatorio (salva usuário completo internamente, sem expor senha no JSON)
-        Relatorio relatorio = Relatorio.builder()
-                .nome("Relatório completo - " + LocalDateTime.now())
-                .conteudoJson(conteudoJson)
+    private Relatorio.RelatorioBuilder novoRelatorio(String nome, Usuario usuarioLogado) {
+        return Relatorio.builder()
+                .nome(nome)
                 .dataGeracao(LocalDateTime.now())
                 .geradoPorId(usuarioLogado.getId())
                 .geradoPorEmail(usuarioLogado.getEmail())
-                .geradoPorPerfil(usuarioLogado.getPerfil().toString())
-                .build();
-
-        Relatorio salvo = relatorioRepository.save(relatorio);
+                .geradoPorPerfil(usuarioLogado.getPerfil().toString());
+    }
 
-        // Registrar log de auditoria
-        auditLogService.registrarAcao(
-                usuarioLogado.getId(),
-                usuarioLogado.getEmail(),
-                usuarioLogado.getPerfil().name(),
-                "GERAR_RELATORIO_COMPLETO",
-                "Relatorio",
-                salvo.getId(),
-                "Relatório gerado com " + pacientes.size() + " pacientes, " +
-                        medicos.size() + " médicos, " +
-                        consultas.size() + " consultas, " +
-                        prontuarios.size() + " prontuários, " +
-                        slots.size() + " slots de agenda."
-        );
+    private void inserirConteudo(Long relatorioId, Path conteudoGzip, long tamanhoComprimido) {
+        try (InputStream conteudo = new BufferedInputStream(Files.newInputStream(conteudoGzip))) {
+            jdbcTemplate.update("INSERT INTO relatorio_conteudos (relatorio_id, compressao, conteudo) VALUES (?, 'gzip', ?)", ps -> {
+                ps.setLong(1, relatorioId);
+                ps.setBinaryStream(2, conteudo, tamanhoComprimido);
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        return salvo;
+    // Relatórios menores (montados em memória): serializa direto no gzip, sem passar por String
+    private Relatorio salvarJson(String nome, Usuario usuarioLogado, Object conteudo, long totalRegistros) throws IOException {
+        Path copia = Files.createTempFile("relatorio-", ".json.gz");
+        try {
+            long tamanhoBytes;
+            try (SaidaGzip arquivo = new SaidaGzip(copia)) {
+                objectMapper.writeValue(arquivo, conteudo);
+                tamanhoBytes = arquivo.getBytesEscritos();
+            }
+            return gravarRelatorio(novoRelatorio(nome, usuarioLogado)
+                    .tamanhoBytes(tamanhoBytes)
+                    .totalRegistros(totalRegistros)
+                    .build(), copia);
+        } finally {
+            Files.deleteIfExists(copia);
+        }
     }
 
-    public List<Relatorio> listarRelatorios(Usuario usuarioLogado) {
+    /**
+     * Download do conteúdo de um relatório. Com comprimido = true o gzip gravado vai como está (o cliente
+     * descompacta pelo Content-Encoding); senão é descompactado enquanto é copiado para a saída.
+     */
+    public StreamingResponseBody baixarConteudo(Long relatorioId, boolean comprimido, Usuario usuarioLogado) {
         if (usuarioLogado.getPerfil() != PerfilUsuario.ADMIN) {
             throw new AccessDeniedException("Apenas administradores podem acessar relatórios.");
         }
 
-        return relatorioRepository.findAll(); // ou findByGeradoPor(usuarioLogado) se quiser histórico por usuário
+        Integer existe = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM relatorio_conteudos WHERE relatorio_id = ?", Integer.class, relatorioId);
+        if (existe == null || existe == 0) {
+            throw new EntityNotFoundException("Conteúdo do relatório não encontrado.");
+        }
+        return saida -> escreverConteudo(relatorioId, saida, comprimido);
     }
 
-    public Relatorio buscarPorId(Long id, Usuario usuarioLogado) {
-        if (usuarioLogado.getPerfil() != PerfilUsuario.ADMIN) {
-            throw new AccessDeniedException("Apenas administradores podem acessar relatórios.");
+    public void escreverConteudo(Long relatorioId, OutputStream saida, boolean comprimido) throws IOException {
+        consultarEmStreaming("SELECT conteudo FROM relatorio_conteudos WHERE relatorio_id = ?", relatorioId, rs -> {
+            if (!rs.next()) {
+                throw new EntityNotFoundException("Conteúdo do relatório não encontrado.");
+            }
+            try (InputStream conteudo = rs.getBinaryStream(1)) {
+                if (comprimido) {
+                    conteudo.transferTo(saida);
+                } else {
+                    new GZIPInputStream(conteudo, BUFFER_GZIP).transferTo(saida);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        });
+        saida.flush();
+    }
+
+    // MySQL só entrega a coluna em partes com fetch size Integer.MIN_VALUE; sem isso o BLOB inteiro vem para o heap
+    private void consultarEmStreaming(String sql, Long id, ResultSetExtractor<?> extrator) throws IOException {
+        try {
+            jdbcTemplate.query(conexao -> {
+                PreparedStatement ps = conexao.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(Integer.MIN_VALUE);
+                ps.setLong(1, id);
+                return ps;
+            }, extrator);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
+    }
 
-        return relatorioRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Relatório não encontrado."));
+    /**
+     * Relatórios gravados antes da tabela relatorio_conteudos têm o JSON em relatorios.conteudo_json (coluna que
+     * o Hibernate criou e não remove). Na subida, cada um é comprimido para a tabela nova e a coluna antiga é zerada;
+     * um relatório que falhar continua como está e é tentado de novo na próxima subida. Falhas não impedem a
+     * aplicação de subir: cada uma é registrada no log com o id e o total sai num resumo ao final.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrarConteudosLegados() {
+        Integer coluna = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.columns " +
+                "WHERE table_schema = DATABASE() AND table_name = 'relatorios' AND column_name = 'conteudo_json'", Integer.class);
+        if (coluna == null || coluna == 0) return;
+
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM relatorios WHERE conteudo_json IS NOT NULL ORDER BY id", Long.class);
+        if (ids.isEmpty()) return;
+
+        int falhas = 0;
+        for (Long id : ids) {
+            try {
+                migrarConteudoLegado(id);
+            } catch (IOException | RuntimeException e) {
+                falhas++;
+                log.error("Falha ao migrar o conteúdo legado do relatório {}; será tentado de novo na próxima subida", id, e);
+            }
+        }
+
+        if (falhas > 0) {
+            log.warn("Migração de conteúdos legados de relatórios: {} de {} falharam", falhas, ids.size());
+        } else {
+            log.info("Migração de conteúdos legados de relatórios: {} migrados", ids.size());
+        }
     }
 
-    public byte[] gerarPdfRelatorioCompleto() {
-        try (PDDocument doc = new PDDocument();
-             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+    private void migrarConteudoLegado(Long relatorioId) throws IOException {
+        Path copia = Files.createTempFile("relatorio-" + relatorioId + "-", ".json.gz");
+        try {
+            long tamanhoBytes;
+            try (SaidaGzip arquivo = new SaidaGzip(copia)) {
+                Writer escritor = new OutputStreamWriter(arquivo, StandardCharsets.UTF_8);
+                consultarEmStreaming("SELECT conteudo_json FROM relatorios WHERE id = ?", relatorioId, rs -> {
+                    if (!rs.next()) return null;
+                    try (Reader leitor = rs.getCharacterStream(1)) {
+                        if (leitor != null) leitor.transferTo(escritor);
+                        escritor.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return null;
+                });
+                tamanhoBytes = arquivo.getBytesEscritos();
+            }
 
-            PDPage page = new PDPage();
-            doc.addPage(page);
-            PDPageContentStream content = new PDPageContentStream(doc, page);
+            long tamanhoComprimido = Files.size(copia);
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                inserirConteudo(relatorioId, copia, tamanhoComprimido);
+                jdbcTemplate.update("UPDATE relatorios SET tamanho_bytes = ?, tamanho_comprimido = ?, conteudo_json = NULL " +
+                        "WHERE id = ?", tamanhoBytes, tamanhoComprimido, relatorioId);
+            });
+        } finally {
+            Files.deleteIfExists(copia);
+        }
+    }
 
-            int y = 750; // posição inicial
+    // Gzip em arquivo que conta os bytes originais (tamanho descompactado do relatório)
+    private static final class SaidaGzip extends OutputStream {
 
-            // Método auxiliar para quebrar página se necessário
-            y = escreverLinha(content, y, "Relatório Completo do Sistema", PDType1Font.HELVETICA_BOLD, 18);
+        private final GZIPOutputStream gzip;
+        private long bytesEscritos;
 
-            // Pacientes
-            y = escreverLinha(content, y - 20, "Pacientes:", PDType1Font.HELVETICA_BOLD, 14);
-            List<Paciente> pacientes = pacienteService.listarTodosPacientes();
-            for (Paciente p : pacientes) {
-                y = escreverLinhaComQuebraPagina(doc, content, y, "- " + p.getNome() + " | CPF: " + p.getCpf() + " | Telefone: " + p.getTelefone(), PDType1Font.HELVETICA, 12);
-            }
+        SaidaGzip(Path arquivo) throws IOException {
+            this.gzip = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(arquivo), BUFFER_GZIP), BUFFER_GZIP);
+        }
 
-            // Médicos
-            y = escreverLinha(content, y - 20, "Médicos:", PDType1Font.HELVETICA_BOLD, 14);
-            List<Medico> medicos = medicoService.listarTodosMedicos();
-            for (Medico m : medicos) {
-                y = escreverLinhaComQuebraPagina(doc, content, y, "- " + m.getNome() + " | CRM: " + m.getCrm() + " | Especialidade: " + m.getEspecialidade(), PDType1Font.HELVETICA, 12);
-            }
+        long getBytesEscritos() {
+            return bytesEscritos;
+        }
 
-            // Consultas
-            y = escreverLinha(content, y - 20, "Consultas:", PDType1Font.HELVETICA_BOLD, 14);
-            List<Consulta> consultas = consultaService.listarTodasConsultas();
-            for (Consulta c : consultas) {
-                y = escreverLinhaComQuebraPagina(doc, content, y, "- Paciente: " + c.getPaciente().getNome() +
-                        " | Médico: " + c.getMedico().getNome() +
-                        " | Data: " + c.getData() +
-                        " | Hora: " + c.getHora() +
-                        " | Status: " + c.getStatus(), PDType1Font.HELVETICA, 12);
-            }
+        @Override
+        public void write(int b) throws IOException {
+            gzip.write(b);
+            bytesEscritos++;
+        }
 
-            // Prontuários
-            y = escreverLinha(content, y - 20, "Prontuários:", PDType1Font.HELVETICA_BOLD, 14);
-            List<Prontuario> prontuarios = prontuarioService.listarTodosProntuarios();
-            for (Prontuario p : prontuarios) {
-                y = escreverLinhaComQuebraPagina(doc, content, y, "- Paciente: " + p.getPaciente().getNome() + " | Registros: " + p.getRegistros(), PDType1Font.HELVETICA, 12);
-            }
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            gzip.write(b, off, len);
+            bytesEscritos += len;
+        }
 
-            // Agenda Médica
-            y = escreverLinha(content, y - 20, "Agenda Médica:", PDType1Font.HELVETICA_BOLD, 14);
-            List<AgendaMedicaRespostaDTO> slots = agendaSlotService.listarTodosSlots();
-            for (AgendaMedicaRespostaDTO s : slots) {
-                y = escreverLinhaComQuebraPagina(doc, content, y, "- Médico: " + s.getMedicoNome() +
-                        " | Data: " + s.getData() +
-                        " | Hora: " + s.getHora(), PDType1Font.HELVETICA, 12);
-            }
+        @Override
+        public void flush() throws IOException {
+            gzip.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            gzip.close();
+        }
+    }
+
+    // Escreve na resposta e na cópia ao mesmo tempo; fechar não fecha a resposta (quem fecha é o Spring)
+    private static final class SaidaDupla extends OutputStream {
+
+        private final OutputStream principal;
+        private final OutputStream copia;
+
+        SaidaDupla(OutputStream principal, OutputStream copia) {
+            this.principal = principal;
+            this.copia = copia;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            principal.write(b);
+            copia.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            principal.write(b, off, len);
+            copia.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            principal.flush();
+            copia.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    private void verificarAdmin(Usuario usuarioLogado) {
+        if (usuarioLogado.getPerfil() != PerfilUsuario.ADMIN) {
+            throw new AccessDeniedException("Apenas administradores podem gerar relatórios.");
+        }
+    }
 
-            content.close();
-            doc.save(baos);
-            return baos.toByteArray();
+    public List<RelatorioResumoDTO> listarRelatorios(int pagina, int tamanho, Usuario usuarioLogado) {
+        if (usuarioLogado.getPerfil() != PerfilUsuario.ADMIN) {
+            throw new AccessDeniedException("Apenas administradores podem acessar relatórios.");
+        }
+        if (pagina < 0 || tamanho < 1 || tamanho > TAMANHO_MAXIMO_PAGINA_LISTAGEM) {
+            throw new IllegalArgumentException("Página deve ser >= 0 e tamanho entre 1 e " + TAMANHO_MAXIMO_PAGINA_LISTAGEM + ".");
+        }
 
-        } catch (Exception e) {
-            throw new RuntimeException("Erro ao gerar PDF do relatório completo", e);
+        // Só metadados: o conteúdo fica em relatorio_conteudos e é lido apenas no download
+        return relatorioRepository.listarResumos(PageRequest.of(pagina, tamanho));
+    }
+
+    public Relatorio buscarPorId(Long id, Usuario usuarioLogado) {
+        if (usuarioLogado.getPerfil() != PerfilUsuario.ADMIN) {
+            throw new AccessDeniedException("Apenas administradores podem acessar relatórios.");
         }
+
+        return relatorioRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Relatório não encontrado."));
     }
 
-    // Escreve uma linha e retorna o novo y
-    private int escreverLinha(PDPageContentStream content, int y, String texto, PDType1Font fonte, int tamanho) throws Exception {
-        content.setFont(fonte, tamanho);
-        content.beginText();
-        content.newLineAtOffset(50, y);
-        content.showText(texto);
-        content.endText();
-        return y - (tamanho + 5);
+    /**
+     * PDF do relatório completo, escrito direto na resposta HTTP. Cada seção é lida em páginas de
+     * TAMANHO_PAGINA_LEITURA linhas por chave (id > último lido), sem carregar entidades, e as páginas do PDF
+     * vão para um arquivo temporário assim que enchem: o heap usado não cresce com o tamanho do relatório.
+     */
+    public StreamingResponseBody gerarPdfRelatorioCompleto() {
+        return saida -> escreverPdfRelatorioCompleto(saida, ProgressoRelatorio.NENHUM);
     }
 
-    // Escreve uma linha e cria nova página se y < 50
-    private int escreverLinhaComQuebraPagina(PDDocument doc, PDPageContentStream content, int y, String texto, PDType1Font fonte, int tamanho) throws Exception {
-        if (y < 50) {
-            content.close();
-            PDPage page = new PDPage();
-            doc.addPage(page);
-            content = new PDPageContentStream(doc, page);
-            y = 750;
+    public void escreverPdfRelatorioCompleto(OutputStream saida, ProgressoRelatorio progresso) throws IOException {
+        try (PDDocument doc = new PDDocument(MemoryUsageSetting.setupMixed(MEMORIA_MAXIMA_PDF_BYTES))) {
+            try (EscritorPdf pdf = new EscritorPdf(doc)) {
+                pdf.titulo("Relatório Completo do Sistema");
+                pdf.linha("Gerado em " + LocalDateTime.now().withNano(0));
+
+                escreverSecao(pdf, progresso, "Pacientes:",
+                        "SELECT p.id, p.nome, p.cpf, p.telefone FROM pacientes p " +
+                                "WHERE p.id > ? ORDER BY p.id LIMIT ?",
+                        rs -> "- " + rs.getString("nome") + " | CPF: " + rs.getString("cpf") +
+                                " | Telefone: " + rs.getString("telefone"));
+                progresso.etapa(1, SECOES_PDF);
+
+                escreverSecao(pdf, progresso, "Médicos:",
+                        "SELECT m.id, m.nome, m.crm, m.especialidade FROM medicos m " +
+                                "WHERE m.id > ? ORDER BY m.id LIMIT ?",
+                        rs -> "- " + rs.getString("nome") + " | CRM: " + rs.getString("crm") +
+                                " | Especialidade: " + rs.getString("especialidade"));
+                progresso.etapa(2, SECOES_PDF);
+
+                escreverSecao(pdf, progresso, "Consultas:",
+                        "SELECT c.id, p.nome AS paciente, m.nome AS medico, c.data, c.hora, c.status FROM consultas c " +
+                                "JOIN pacientes p ON p.id = c.paciente_id JOIN medicos m ON m.id = c.medico_id " +
+                                "WHERE c.id > ? ORDER BY c.id LIMIT ?",
+                        rs -> "- Paciente: " + rs.getString("paciente") + " | Médico: " + rs.getString("medico") +
+                                " | Data: " + rs.getDate("data").toLocalDate() + " | Hora: " + rs.getTime("hora").toLocalTime() +
+                                " | Status: " + rs.getString("status"));
+                progresso.etapa(3, SECOES_PDF);
+
+                // Registros longos são cortados já no banco; o texto completo continua no prontuário
+                escreverSecao(pdf, progresso, "Prontuários:",
+                        "SELECT pr.id, p.nome AS paciente, SUBSTRING(pr.registros, 1, " + MAX_CARACTERES_REGISTRO + ") AS registros " +
+                                "FROM prontuarios pr JOIN pacientes p ON p.id = pr.paciente_id " +
+                                "WHERE pr.id > ? ORDER BY pr.id LIMIT ?",
+                        rs -> "- Paciente: " + rs.getString("paciente") + " | Registros: " + rs.getString("registros"));
+                progresso.etapa(4, SECOES_PDF);
+
+                escreverSecao(pdf, progresso, "Agenda Médica:",
+                        "SELECT s.id, m.nome AS medico, s.data, s.hora FROM agenda_medica_slots s " +
+                                "JOIN medicos m ON m.id = s.medico_id WHERE s.id > ? ORDER BY s.id LIMIT ?",
+                        rs -> "- Médico: " + rs.getString("medico") + " | Data: " + rs.getDate("data").toLocalDate() +
+                                " | Hora: " + rs.getTime("hora").toLocalTime());
+                progresso.etapa(5, SECOES_PDF);
+            }
+            doc.save(saida);
         }
-        return escreverLinha(content, y, texto, fonte, tamanho);
+    }
+
+    @FunctionalInterface
+    private interface MontadorLinha {
+        String montar(ResultSet rs) throws SQLException;
+    }
+
+    private record LinhaLida(long id, String texto) {}
+
+    // Lê a seção por faixas de id (keyset), escrevendo cada página lida antes de buscar a próxima
+    private void escreverSecao(EscritorPdf pdf, ProgressoRelatorio progresso, String titulo, String sql,
+                               MontadorLinha montador) throws IOException {
+        pdf.secao(titulo);
+
+        long ultimoId = 0;
+        List<LinhaLida> pagina;
+        do {
+            progresso.verificarCancelamento();
+            pagina = jdbcTemplate.query(sql, (rs, i) -> new LinhaLida(rs.getLong("id"), montador.montar(rs)),
+                    ultimoId, TAMANHO_PAGINA_LEITURA);
+            for (LinhaLida linha : pagina) {
+                pdf.linha(linha.texto());
+            }
+            progresso.linhas(pagina.size());
+            if (!pagina.isEmpty()) ultimoId = pagina.get(pagina.size() - 1).id();
+        } while (pagina.size() == TAMANHO_PAGINA_LEITURA);
     }
 
     public Relatorio gerarRelatorioConsultas(Usuario usuarioLogado) {
@@ -217,30 +670,20 @@ public class RelatorioService {
                 .mapToDouble(c -> c.getValor() != null ? c.getValor().doubleValue() : 0.0)
                 .sum();
 
-        // Montar conteúdo JSON
-        String conteudoJson;
+        // Montar conteúdo JSON (gravado comprimido)
+        Relatorio salvo;
         try {
-            conteudoJson = objectMapper.writeValueAsString(
+            salvo = salvarJson("Relatório de Consultas - " + LocalDateTime.now(), usuarioLogado,
                     new Object() {
                         public final List<Consulta> consultasList = consultas;
                         public final double totalConsultas = total;
-                    }
+                    },
+                    consultas.size()
             );
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             throw new RuntimeException("Erro ao gerar JSON do relatório de consultas.", e);
         }
 
-        Relatorio relatorio = Relatorio.builder()
-                .nome("Relatório de Consultas - " + LocalDateTime.now())
-                .conteudoJson(conteudoJson)
-                .dataGeracao(LocalDateTime.now())
-                .geradoPorId(usuarioLogado.getId())
-                .geradoPorEmail(usuarioLogado.getEmail())
-                .geradoPorPerfil(usuarioLogado.getPerfil().toString())
-                .build();
-
-        Relatorio salvo = relatorioRepository.save(relatorio);
-
         auditLogService.registrarAcao(
                 usuarioLogado.getId(),
                 usuarioLogado.getEmail(),
@@ -270,31 +713,21 @@ public class RelatorioService {
                 .mapToDouble(c -> c.getValor() != null ? c.getValor().doubleValue() : 0.0)
                 .sum();
 
-        // Montar conteúdo JSON
-        String conteudoJson;
+        // Montar conteúdo JSON (gravado comprimido)
+        Relatorio salvo;
         try {
-            conteudoJson = objectMapper.writeValueAsString(
+            salvo = salvarJson("Relatório de Consultas - Médico " + medicoId + " - " + LocalDateTime.now(), usuarioLogado,
                     new Object() {
                         public final Long medicoIdRelatorio = medicoId;
                         public final List<Consulta> consultasList = consultas;
                         public final double totalConsultas = total;
-                    }
+                    },
+                    consultas.size()
             );
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             throw new RuntimeException("Erro ao gerar JSON do relatório de consultas por médico.", e);
         }
 
-        Relatorio relatorio = Relatorio.builder()
-                .nome("Relatório de Consultas - Médico " + medicoId + " - " + LocalDateTime.now())
-                .conteudoJson(conteudoJson)
-                .dataGeracao(LocalDateTime.now())
-                .geradoPorId(usuarioLogado.getId())
-                .geradoPorEmail(usuarioLogado.getEmail())
-                .geradoPorPerfil(usuarioLogado.getPerfil().toString())
-                .build();
-
-        Relatorio salvo = relatorioRepository.save(relatorio);
-
         auditLogService.registrarAcao(
                 usuarioLogado.getId(),
                 usuarioLogado.getEmail(),
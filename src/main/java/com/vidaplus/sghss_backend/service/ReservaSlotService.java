@@ -0,0 +1,140 @@
+package com.vidaplus.sghss_backend.service;
+
+import com.vidaplus.sghss_backend.dto.ReservaSlotDTO;
+import com.vidaplus.sghss_backend.event.AgendaSlotAlteradoEvent;
+import com.vidaplus.sghss_backend.exception.SlotIndisponivelException;
+import com.vidaplus.sghss_backend.model.AgendaMedicaSlot;
+import com.vidaplus.sghss_backend.model.Usuario;
+import com.vidaplus.sghss_backend.model.enums.PerfilUsuario;
+import com.vidaplus.sghss_backend.repository.AgendaMedicaSlotRepository;
+import com.vidaplus.sghss_backend.repository.projection.ReservaAtiva;
+import com.vidaplus.sghss_backend.util.RodaDeExpiracao;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Holds temporários de slots (primeira fase do agendamento).
+ * O hold segura o slot por alguns minutos; a confirmação acontece em POST /agenda-medica/{slotId}/agendar.
+ * As expirações ficam numa roda de tempo em memória: o banco só é tocado quando algum hold vence.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReservaSlotService {
+
+    private static final long TICK_MILLIS = 1_000;
+    private static final int BALDES = 512;
+
+    private final AgendaMedicaSlotRepository agendaSlotRepository;
+    private final AgendaMedicaSlotService agendaSlotService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final RodaDeExpiracao<Long> expiracoes = new RodaDeExpiracao<>(TICK_MILLIS, BALDES, System.currentTimeMillis());
+
+    @Value("${agenda.reserva.ttl-segundos:300}")
+    private long ttlSegundos;
+
+    /**
+     * Cria (ou renova) o hold do usuário sobre o slot.
+     * ADMIN em qualquer slot; MEDICO apenas na própria agenda (mesmas regras da confirmação).
+     */
+    @Transactional
+    public ReservaSlotDTO reservar(Long slotId, Usuario usuarioLogado) {
+        AgendaMedicaSlot slot = agendaSlotService.buscarEntidadePorId(slotId);
+
+        if (usuarioLogado.getPerfil() == PerfilUsuario.PACIENTE) {
+            throw new AccessDeniedException("Paciente não pode reservar slots diretamente.");
+        }
+        if (usuarioLogado.getPerfil() == PerfilUsuario.MEDICO &&
+                !slot.getMedico().getUsuario().getId().equals(usuarioLogado.getId())) {
+            throw new AccessDeniedException("Médico só pode reservar seus próprios slots.");
+        }
+
+        return reservarPara(slotId, usuarioLogado.getId(), ttlSegundos);
+    }
+
+    // Uso interno: concede o hold em nome de um usuário, sem checagem de perfil
+    @Transactional
+    public ReservaSlotDTO reservarPara(Long slotId, Long usuarioId, long segundos) {
+        LocalDateTime agora = LocalDateTime.now();
+        LocalDateTime expiraEm = agora.plusSeconds(segundos);
+
+        int atualizados = agendaSlotRepository.reservarTemporariamente(slotId, usuarioId, expiraEm, agora);
+        if (atualizados == 0) {
+            throw new SlotIndisponivelException("Este slot já está ocupado ou reservado por outro usuário.");
+        }
+
+        AgendaMedicaSlot slot = agendaSlotService.buscarEntidadePorId(slotId);
+        eventPublisher.publishEvent(AgendaSlotAlteradoEvent.reservado(slot));
+        expiracoes.agendar(slotId, paraMillis(expiraEm));
+
+        return ReservaSlotDTO.builder()
+                .slotId(slotId)
+                .reservadoPorId(usuarioId)
+                .expiraEm(expiraEm)
+                .build();
+    }
+
+    // Desistência: só quem segura o hold pode liberá-lo antes do prazo
+    @Transactional
+    public void liberar(Long slotId, Usuario usuarioLogado) {
+        if (!liberarPara(slotId, usuarioLogado.getId())) {
+            throw new EntityNotFoundException("Reserva não encontrada para este usuário.");
+        }
+    }
+
+    // Uso interno: devolve false se o usuário não tinha hold no slot
+    @Transactional
+    public boolean liberarPara(Long slotId, Long usuarioId) {
+        int atualizados = agendaSlotRepository.liberarReserva(slotId, usuarioId);
+        if (atualizados == 0) {
+            return false;
+        }
+
+        AgendaMedicaSlot slot = agendaSlotService.buscarEntidadePorId(slotId);
+        eventPublisher.publishEvent(AgendaSlotAlteradoEvent.reservaLiberada(slot));
+        return true;
+    }
+
+    // Slots cujo prazo passou na roda (sem acesso ao banco)
+    public List<Long> vencidasAte(long agoraMillis) {
+        return expiracoes.avancar(agoraMillis);
+    }
+
+    /**
+     * Limpa os holds vencidos entre os candidatos. Holds renovados, confirmados ou liberados
+     * no meio do caminho não passam no filtro da consulta e ficam como estão.
+     */
+    @Transactional
+    public void liberarVencidas(List<Long> slotIds) {
+        List<AgendaMedicaSlot> vencidos = agendaSlotRepository.findReservasVencidas(slotIds, LocalDateTime.now());
+
+        for (AgendaMedicaSlot slot : vencidos) {
+            slot.setReservaExpiraEm(null);
+            slot.setReservadoPorId(null);
+            eventPublisher.publishEvent(AgendaSlotAlteradoEvent.reservaLiberada(slot));
+        }
+    }
+
+    // Holds criados antes de reiniciar a aplicação voltam para a roda
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregarReservasAtivas() {
+        for (ReservaAtiva reserva : agendaSlotRepository.findReservasAtivas(LocalDateTime.now())) {
+            expiracoes.agendar(reserva.getId(), paraMillis(reserva.getReservaExpiraEm()));
+        }
+    }
+
+    private static long paraMillis(LocalDateTime instante) {
+        return instante.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
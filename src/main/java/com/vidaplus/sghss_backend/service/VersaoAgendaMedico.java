@@ -0,0 +1,46 @@
+package com.vidaplus.sghss_backend.service;
+
+import com.vidaplus.sghss_backend.event.AgendaSlotAlteradoEvent;
+import com.vidaplus.sghss_backend.event.ConsultaAlteradaEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versão da agenda de cada médico, incrementada após o commit de qualquer alteração de slot ou consulta.
+ * Serve de ETag para o feed iCalendar: enquanto a versão não muda, o cliente recebe 304 sem que a agenda seja lida.
+ * Os contadores vivem só em memória; o identificador da inicialização entra na versão para que um restart
+ * invalide as ETags anteriores.
+ */
+@Component
+public class VersaoAgendaMedico {
+
+    private final String inicializacao = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<Long, AtomicLong> versoes = new ConcurrentHashMap<>();
+
+    public String versao(Long medicoId) {
+        AtomicLong contador = versoes.get(medicoId);
+        return inicializacao + "-" + medicoId + "-" + (contador != null ? contador.get() : 0);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarSlot(AgendaSlotAlteradoEvent evento) {
+        // Holds não mudam o que o feed mostra (ele lê a coluna disponivel)
+        if (evento.tipo() == AgendaSlotAlteradoEvent.Tipo.RESERVADO ||
+                evento.tipo() == AgendaSlotAlteradoEvent.Tipo.RESERVA_LIBERADA) return;
+        incrementar(evento.medicoId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarConsulta(ConsultaAlteradaEvent evento) {
+        incrementar(evento.medicoId());
+    }
+
+    private void incrementar(Long medicoId) {
+        if (medicoId == null) return;
+        versoes.computeIfAbsent(medicoId, id -> new AtomicLong()).incrementAndGet();
+    }
+}
@@ -0,0 +1,64 @@
+package com.vidaplus.sghss_backend.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Escrita de linhas iCalendar (RFC 5545): escapa o texto, quebra linhas acima de 75 octetos
+ * e termina cada linha com CRLF. Não guarda nada além do Writer recebido.
+ */
+public class EscritorIcs {
+
+    private static final int MAX_OCTETOS = 75;
+
+    private final Writer saida;
+
+    public EscritorIcs(Writer saida) {
+        this.saida = saida;
+    }
+
+    // Propriedade com valor já no formato do iCalendar (datas, durações, enumerados)
+    public EscritorIcs linha(String nome, String valor) throws IOException {
+        return escreverDobrado(nome + ":" + valor);
+    }
+
+    // Propriedade de texto livre: vírgula, ponto e vírgula, barra e quebras de linha são escapados
+    public EscritorIcs texto(String nome, String valor) throws IOException {
+        return linha(nome, escapar(valor));
+    }
+
+    private EscritorIcs escreverDobrado(String conteudo) throws IOException {
+        int octetos = 0;
+        for (int i = 0; i < conteudo.length(); ) {
+            int codigo = conteudo.codePointAt(i);
+            int tamanho = codigo < 0x80 ? 1 : codigo < 0x800 ? 2 : codigo < 0x10000 ? 3 : 4; // octetos em UTF-8
+            if (octetos + tamanho > MAX_OCTETOS) {
+                // Continuação: CRLF seguido de um espaço, que conta na linha seguinte
+                saida.write("\r\n ");
+                octetos = 1;
+            }
+            saida.write(Character.toChars(codigo));
+            octetos += tamanho;
+            i += Character.charCount(codigo);
+        }
+        saida.write("\r\n");
+        return this;
+    }
+
+    private static String escapar(String valor) {
+        if (valor == null) return "";
+        StringBuilder escapado = new StringBuilder(valor.length() + 8);
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '\\' -> escapado.append("\\\\");
+                case ';' -> escapado.append("\\;");
+                case ',' -> escapado.append("\\,");
+                case '\n' -> escapado.append("\\n");
+                case '\r' -> { /* descartado: só \n vira quebra no texto */ }
+                default -> escapado.append(c);
+            }
+        }
+        return escapado.toString();
+    }
+}
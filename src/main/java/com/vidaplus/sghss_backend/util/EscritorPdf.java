@@ -0,0 +1,125 @@
+package com.vidaplus.sghss_backend.util;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Escrita de texto corrido em páginas PDF. Guarda a página atual e troca de página sozinho
+ * (o chamador nunca segura um PDPageContentStream), quebra linhas longas pela largura útil e
+ * troca caracteres que as fontes padrão (WinAnsi) não desenham. Cada página é fechada assim que
+ * enche, então com um PDDocument em arquivo temporário (MemoryUsageSetting) o conteúdo não fica no heap.
+ */
+public class EscritorPdf implements Closeable {
+
+    private static final float MARGEM = 50;
+    private static final float ESPACO_ENTRE_LINHAS = 5;
+
+    private final PDDocument doc;
+    private final float larguraUtil;
+    private final float topo;
+
+    private PDPageContentStream conteudo;
+    private float y;
+    private int paginas;
+
+    public EscritorPdf(PDDocument doc) {
+        this.doc = doc;
+        this.larguraUtil = PDRectangle.LETTER.getWidth() - 2 * MARGEM;
+        this.topo = PDRectangle.LETTER.getHeight() - MARGEM;
+    }
+
+    public EscritorPdf titulo(String texto) throws IOException {
+        return escrever(texto, PDType1Font.HELVETICA_BOLD, 18, 0);
+    }
+
+    public EscritorPdf secao(String texto) throws IOException {
+        return escrever(texto, PDType1Font.HELVETICA_BOLD, 14, 20);
+    }
+
+    public EscritorPdf linha(String texto) throws IOException {
+        return escrever(texto, PDType1Font.HELVETICA, 10, 0);
+    }
+
+    public int getPaginas() {
+        return paginas;
+    }
+
+    private EscritorPdf escrever(String texto, PDType1Font fonte, int tamanho, float espacoAntes) throws IOException {
+        String restante = sanitizar(texto);
+        y -= espacoAntes;
+
+        // Linhas mais largas que a página continuam na linha de baixo
+        do {
+            int corte = caberNaLargura(restante, fonte, tamanho);
+            garantirEspaco(tamanho);
+
+            conteudo.beginText();
+            conteudo.setFont(fonte, tamanho);
+            conteudo.newLineAtOffset(MARGEM, y - tamanho);
+            conteudo.showText(restante.substring(0, corte));
+            conteudo.endText();
+
+            y -= tamanho + ESPACO_ENTRE_LINHAS;
+            restante = restante.substring(corte).stripLeading();
+        } while (!restante.isEmpty());
+
+        return this;
+    }
+
+    // Quantos caracteres cabem na largura útil, preferindo cortar num espaço
+    private int caberNaLargura(String texto, PDType1Font fonte, int tamanho) throws IOException {
+        float largura = 0;
+        int ultimoEspaco = -1;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            largura += fonte.getWidth(c) / 1000 * tamanho;
+            if (largura > larguraUtil) {
+                return ultimoEspaco > 0 ? ultimoEspaco : Math.max(i, 1);
+            }
+            if (c == ' ') ultimoEspaco = i;
+        }
+        return texto.length();
+    }
+
+    private void garantirEspaco(int tamanho) throws IOException {
+        if (conteudo != null && y - tamanho >= MARGEM) return;
+
+        if (conteudo != null) conteudo.close();
+        PDPage pagina = new PDPage(PDRectangle.LETTER);
+        doc.addPage(pagina);
+        conteudo = new PDPageContentStream(doc, pagina);
+        y = topo;
+        paginas++;
+    }
+
+    // As fontes padrão só desenham WinAnsi: ASCII visível e Latin-1 (acentos do português incluídos)
+    private static String sanitizar(String texto) {
+        if (texto == null || texto.isEmpty()) return " ";
+        StringBuilder limpo = new StringBuilder(texto.length());
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if ((c >= 0x20 && c < 0x7F) || (c >= 0xA0 && c <= 0xFF)) {
+                limpo.append(c);
+            } else if (Character.isWhitespace(c)) {
+                limpo.append(' ');
+            } else {
+                limpo.append('?');
+            }
+        }
+        return limpo.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (conteudo != null) {
+            conteudo.close();
+            conteudo = null;
+        }
+    }
+}
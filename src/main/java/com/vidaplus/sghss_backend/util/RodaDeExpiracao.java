@@ -0,0 +1,64 @@
+package com.vidaplus.sghss_backend.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Roda de tempo (hashed timing wheel) para prazos curtos.
+ * Cada item cai no balde do tick em que expira; a cada avanço só os baldes dos ticks
+ * decorridos são percorridos, sem varrer todos os itens pendentes nem consultar o banco.
+ */
+public class RodaDeExpiracao<T> {
+
+    private record Entrada<T>(T item, long tickExpiracao) {}
+
+    private final long tickMillis;
+    private final List<Queue<Entrada<T>>> baldes;
+    private final int mascara;
+    private long ultimoTick;
+
+    public RodaDeExpiracao(long tickMillis, int quantidadeBaldes, long agoraMillis) {
+        if (Integer.bitCount(quantidadeBaldes) != 1) {
+            throw new IllegalArgumentException("A quantidade de baldes deve ser potência de 2.");
+        }
+        this.tickMillis = tickMillis;
+        this.baldes = new ArrayList<>(quantidadeBaldes);
+        for (int i = 0; i < quantidadeBaldes; i++) {
+            baldes.add(new ConcurrentLinkedQueue<>());
+        }
+        this.mascara = quantidadeBaldes - 1;
+        this.ultimoTick = agoraMillis / tickMillis;
+    }
+
+    public synchronized void agendar(T item, long expiraEmMillis) {
+        long tick = Math.floorDiv(expiraEmMillis + tickMillis - 1, tickMillis);
+        // Prazos já vencidos entram no próximo tick a ser processado
+        long tickSeguro = Math.max(tick, ultimoTick + 1);
+        baldes.get((int) (tickSeguro & mascara)).add(new Entrada<>(item, tick));
+    }
+
+    // Avança até o instante informado e devolve os itens vencidos
+    public synchronized List<T> avancar(long agoraMillis) {
+        long tickAtual = agoraMillis / tickMillis;
+        List<T> vencidos = new ArrayList<>();
+
+        // Uma volta completa já cobre todos os baldes
+        long primeiro = Math.max(ultimoTick + 1, tickAtual - baldes.size() + 1);
+        for (long tick = primeiro; tick <= tickAtual; tick++) {
+            Iterator<Entrada<T>> it = baldes.get((int) (tick & mascara)).iterator();
+            while (it.hasNext()) {
+                Entrada<T> entrada = it.next();
+                if (entrada.tickExpiracao() <= tickAtual) {
+                    vencidos.add(entrada.item());
+                    it.remove();
+                }
+            }
+        }
+
+        ultimoTick = Math.max(ultimoTick, tickAtual);
+        return vencidos;
+    }
+}
@@ -0,0 +1,33 @@
+package com.vidaplus.sghss_backend.util;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Locale;
+
+/**
+ * Identifica qual restrição do banco uma DataIntegrityViolationException violou, para que só a violação
+ * esperada (ex.: unicidade disputada por requisições simultâneas) vire resposta de negócio; as demais
+ * (NOT NULL, chave estrangeira) continuam sendo erros. O MySQL 8 informa o nome como "tabela.restricao".
+ */
+public final class ViolacaoRestricao {
+
+    private ViolacaoRestricao() {
+    }
+
+    public static boolean violou(DataIntegrityViolationException e, String restricao) {
+        String procurado = restricao.toLowerCase(Locale.ROOT);
+        for (Throwable causa = e; causa != null; causa = causa.getCause()) {
+            if (causa instanceof ConstraintViolationException violacao && violacao.getConstraintName() != null
+                    && violacao.getConstraintName().toLowerCase(Locale.ROOT).contains(procurado)) {
+                return true;
+            }
+            if (causa instanceof SQLIntegrityConstraintViolationException sql && sql.getMessage() != null
+                    && sql.getMessage().toLowerCase(Locale.ROOT).contains(procurado)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
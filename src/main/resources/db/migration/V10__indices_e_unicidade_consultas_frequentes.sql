@@ -0,0 +1,33 @@
+-- ============================
+-- Migration V10 - Índices compostos para as consultas mais frequentes e unicidade dos slots
+-- ============================
+
+-- 1️⃣ Slots repetidos (mesmo médico, data e hora): mantém os que têm consulta vinculada e,
+--    entre os livres/bloqueados, o de menor id. Dois slots repetidos com consulta precisam de ajuste manual.
+DELETE s1 FROM agenda_medica_slots s1
+JOIN agenda_medica_slots s2
+    ON s1.medico_id = s2.medico_id
+    AND s1.data = s2.data
+    AND s1.hora = s2.hora
+    AND s1.id <> s2.id
+WHERE s1.consulta_id IS NULL
+  AND (s2.consulta_id IS NOT NULL OR s2.id < s1.id);
+
+-- Contadores diários recalculados depois da limpeza
+DELETE FROM agenda_disponibilidade_diaria;
+
+INSERT INTO agenda_disponibilidade_diaria (medico_id, data, livres, total)
+SELECT medico_id, data, SUM(CASE WHEN disponivel THEN 1 ELSE 0 END), COUNT(*)
+FROM agenda_medica_slots
+GROUP BY medico_id, data;
+
+-- 2️⃣ Um slot por médico/data/hora. Atende também existsByMedicoAndDataAndHora,
+--    findByMedicoAndDataAndDisponivelTrue e a grade por período (prefixo medico_id, data)
+ALTER TABLE agenda_medica_slots
+ADD CONSTRAINT uk_agenda_medico_data_hora UNIQUE (medico_id, data, hora);
+
+-- 3️⃣ Consultas por médico e por paciente (findByMedicoUsuario, findByPacienteUsuario), já em ordem de agenda
+CREATE INDEX idx_consultas_medico_data_hora ON consultas (medico_id, data, hora);
+CREATE INDEX idx_consultas_paciente_data_hora ON consultas (paciente_id, data, hora);
+
+-- Índices de tabelas criadas pelo Hibernate (audit_logs, notificacao) ficam declarados nas próprias entidades
@@ -0,0 +1,23 @@
+-- ============================
+-- Migration V11 - Lista de espera por médico ou especialidade
+-- ============================
+
+CREATE TABLE lista_espera (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    paciente_id BIGINT NOT NULL,
+    medico_id BIGINT NULL,
+    especialidade VARCHAR(100) NULL,
+    data_inicio DATE NOT NULL,
+    data_fim DATE NOT NULL,
+    prioridade INT NOT NULL DEFAULT 0,
+    status VARCHAR(30) NOT NULL,
+    criado_em DATETIME NOT NULL,
+    slot_ofertado_id BIGINT NULL,
+    oferta_expira_em DATETIME NULL,
+    CONSTRAINT fk_lista_espera_paciente FOREIGN KEY (paciente_id) REFERENCES pacientes(id),
+    CONSTRAINT fk_lista_espera_medico FOREIGN KEY (medico_id) REFERENCES medicos(id)
+);
+
+-- Carga das filas na inicialização e busca da oferta de um slot
+CREATE INDEX idx_lista_espera_status ON lista_espera (status, slot_ofertado_id);
+CREATE INDEX idx_lista_espera_paciente ON lista_espera (paciente_id, status);
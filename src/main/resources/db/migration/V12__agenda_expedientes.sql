@@ -0,0 +1,20 @@
+-- ============================
+-- Migration V12 - Expedientes: disponibilidade como faixas de horário + duração do slot
+-- ============================
+
+-- Uma linha por médico/dia da semana/faixa substitui todas as linhas "livres" dessa faixa
+-- em agenda_medica_slots; só horários ocupados ou bloqueados passam a existir como linha
+CREATE TABLE agenda_expedientes (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    medico_id BIGINT NOT NULL,
+    dia_semana VARCHAR(10) NOT NULL,
+    hora_inicio TIME NOT NULL,
+    hora_fim TIME NOT NULL,
+    duracao_minutos INT NOT NULL,
+    vigente_de DATE NOT NULL,
+    vigente_ate DATE NULL,
+    criado_em DATETIME NOT NULL,
+    CONSTRAINT fk_expediente_medico FOREIGN KEY (medico_id) REFERENCES medicos(id)
+);
+
+CREATE INDEX idx_expedientes_medico_vigencia ON agenda_expedientes (medico_id, vigente_de);
@@ -0,0 +1,9 @@
+-- ============================
+-- Migration V13 - Índices do painel de semana/mês (GET /agenda-medica/painel)
+-- ============================
+
+-- Contagem por dia e status sem filtro de médico: o índice cobre a consulta (não lê as linhas)
+CREATE INDEX idx_consultas_data_status ON consultas (data, status);
+
+-- Ocupação de todos os médicos num período: a PK (medico_id, data) não serve para faixa só de data
+CREATE INDEX idx_disponibilidade_diaria_data ON agenda_disponibilidade_diaria (data, medico_id, livres, total);
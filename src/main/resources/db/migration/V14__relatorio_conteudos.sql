@@ -0,0 +1,25 @@
+-- ============================
+-- Migration V14 - Conteúdo dos relatórios comprimido e fora da tabela relatorios
+-- ============================
+
+-- relatorios era criada pelo Hibernate (ddl-auto); em banco novo passa a existir aqui, já sem o corpo do relatório.
+-- Em banco existente a tabela fica como está e o Hibernate acrescenta as colunas de metadados.
+CREATE TABLE IF NOT EXISTS relatorios (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    nome VARCHAR(255),
+    data_geracao DATETIME(6),
+    gerado_por_id BIGINT,
+    gerado_por_email VARCHAR(255),
+    gerado_por_perfil VARCHAR(255),
+    tamanho_bytes BIGINT,
+    tamanho_comprimido BIGINT,
+    total_registros BIGINT
+);
+
+-- Corpo do relatório (JSON em gzip), lido só no download; listar relatórios não toca nesta tabela
+CREATE TABLE relatorio_conteudos (
+    relatorio_id BIGINT PRIMARY KEY,
+    compressao VARCHAR(10) NOT NULL DEFAULT 'gzip',
+    conteudo LONGBLOB NOT NULL,
+    CONSTRAINT fk_relatorio_conteudo_relatorio FOREIGN KEY (relatorio_id) REFERENCES relatorios(id) ON DELETE CASCADE
+);
@@ -0,0 +1,30 @@
+-- ============================
+-- Migration V15 - Relatórios incrementais (delta desde uma marca d'água)
+-- ============================
+
+-- atualizado_em é mantido pelo próprio banco, inclusive nas atualizações em lote feitas por JDBC;
+-- as linhas já existentes recebem o instante da migração
+ALTER TABLE pacientes
+    ADD COLUMN atualizado_em DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6);
+ALTER TABLE medicos
+    ADD COLUMN atualizado_em DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6);
+ALTER TABLE consultas
+    ADD COLUMN atualizado_em DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6);
+ALTER TABLE prontuarios
+    ADD COLUMN atualizado_em DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6);
+ALTER TABLE agenda_medica_slots
+    ADD COLUMN atualizado_em DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6);
+
+-- O delta lê por faixa de atualizado_em: custo proporcional às linhas novas, não ao histórico
+CREATE INDEX idx_pacientes_atualizado_em ON pacientes (atualizado_em);
+CREATE INDEX idx_medicos_atualizado_em ON medicos (atualizado_em);
+CREATE INDEX idx_consultas_atualizado_em ON consultas (atualizado_em);
+CREATE INDEX idx_prontuarios_atualizado_em ON prontuarios (atualizado_em);
+CREATE INDEX idx_agenda_slots_atualizado_em ON agenda_medica_slots (atualizado_em);
+
+ALTER TABLE relatorios
+    ADD COLUMN marca_dagua DATETIME(6) NULL,
+    ADD COLUMN base_relatorio_id BIGINT NULL,
+    ADD COLUMN desde DATETIME(6) NULL;
+
+CREATE INDEX idx_relatorios_marca_dagua ON relatorios (marca_dagua);
@@ -0,0 +1,18 @@
+-- ============================
+-- Migration V16 - Tipo da notificação como VARCHAR
+-- ============================
+
+-- A tabela notificacao foi criada pelo Hibernate (ddl-auto=update), que gera @Enumerated(STRING) no MySQL como
+-- enum(...) só com os valores da época e nunca alarga a coluna: VAGA_DISPONIVEL e AGENDA_BLOQUEADA falhavam
+-- no insert. Em banco novo o Flyway roda antes do Hibernate, então a tabela é criada aqui já no formato da entidade.
+CREATE TABLE IF NOT EXISTS notificacao (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    mensagem VARCHAR(255),
+    tipo VARCHAR(30),
+    data_criacao DATETIME(6),
+    lida BIT NOT NULL,
+    paciente_id BIGINT,
+    CONSTRAINT fk_notificacao_paciente_id FOREIGN KEY (paciente_id) REFERENCES pacientes(id)
+);
+
+ALTER TABLE notificacao MODIFY COLUMN tipo VARCHAR(30);
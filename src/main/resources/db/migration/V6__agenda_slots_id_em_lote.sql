@@ -0,0 +1,13 @@
+-- ============================
+-- Migration V6 - Ids de agenda_medica_slots alocados em blocos
+-- ============================
+
+-- MySQL não tem sequences: o Hibernate emula a sequence nesta tabela e reserva
+-- blocos de 50 ids por acesso, o que libera o INSERT em lote (JDBC batch) dos slots
+CREATE TABLE agenda_medica_slots_seq (
+    next_val BIGINT
+);
+
+-- Começa acima do maior id existente (o otimizador "pooled" usa o valor lido como teto do bloco)
+INSERT INTO agenda_medica_slots_seq (next_val)
+SELECT COALESCE(MAX(id), 0) + 51 FROM agenda_medica_slots;
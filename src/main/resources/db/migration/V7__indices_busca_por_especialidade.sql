@@ -0,0 +1,9 @@
+-- ============================
+-- Migration V7 - Índices para a busca de primeiros horários livres por especialidade
+-- ============================
+
+-- Slots livres em ordem cronológica (WHERE disponivel = true ORDER BY data, hora)
+CREATE INDEX idx_agenda_disponivel_data_hora ON agenda_medica_slots (disponivel, data, hora);
+
+-- Médicos de uma especialidade
+CREATE INDEX idx_medicos_especialidade ON medicos (especialidade);
@@ -0,0 +1,8 @@
+-- ============================
+-- Migration V8 - Reserva temporária (hold) de slots durante o agendamento
+-- ============================
+
+-- Enquanto reserva_expira_em estiver no futuro, só o usuário reservado_por_id pode confirmar o slot
+ALTER TABLE agenda_medica_slots
+ADD COLUMN reserva_expira_em DATETIME NULL,
+ADD COLUMN reservado_por_id BIGINT NULL;
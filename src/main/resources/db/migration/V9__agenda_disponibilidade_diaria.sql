@@ -0,0 +1,17 @@
+-- ============================
+-- Migration V9 - Contadores diários de disponibilidade por médico
+-- ============================
+
+-- Mantida na mesma transação das escritas de agenda; reconstruída periodicamente para corrigir desvios
+CREATE TABLE agenda_disponibilidade_diaria (
+    medico_id BIGINT NOT NULL,
+    data DATE NOT NULL,
+    livres INT NOT NULL DEFAULT 0,
+    total INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (medico_id, data)
+);
+
+INSERT INTO agenda_disponibilidade_diaria (medico_id, data, livres, total)
+SELECT medico_id, data, SUM(CASE WHEN disponivel THEN 1 ELSE 0 END), COUNT(*)
+FROM agenda_medica_slots
+GROUP BY medico_id, data;
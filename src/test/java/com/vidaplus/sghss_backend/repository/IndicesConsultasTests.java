@@ -0,0 +1,179 @@
+package com.vidaplus.sghss_backend.repository;
+
+import com.vidaplus.sghss_backend.model.Medico;
+import com.vidaplus.sghss_backend.model.Paciente;
+import com.vidaplus.sghss_backend.model.Usuario;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Confere, no MySQL da aplicação (o mesmo usado por SghssBackendApplicationTests, já migrado pelo Flyway),
+ * que os métodos dos repositórios usam índice e não fazem varredura completa.
+ * Cada teste chama o método real do repositório; o SQL que o Hibernate gerou (com os valores já interpolados
+ * pelo driver) é lido do histórico de comandos da própria conexão em performance_schema e passa por EXPLAIN.
+ */
+@SpringBootTest
+@Transactional
+class IndicesConsultasTests {
+
+    private static final LocalDate DATA = LocalDate.of(2030, 1, 7);
+    private static final LocalTime HORA = LocalTime.of(8, 0);
+
+    @Autowired
+    private AgendaMedicaSlotRepository agendaSlotRepository;
+
+    @Autowired
+    private ConsultaRepository consultaRepository;
+
+    @Autowired
+    private NotificacaoRepository notificacaoRepository;
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Autowired
+    private AgendaDisponibilidadeDiariaRepository disponibilidadeDiariaRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void existsByMedicoAndDataAndHora() {
+        agendaSlotRepository.existsByMedicoAndDataAndHora(medico(), DATA, HORA);
+        assertUsaIndice("agenda_medica_slots", "uk_agenda_medico_data_hora", "medico_id", "data", "hora");
+    }
+
+    @Test
+    void findByMedicoAndDataAndDisponivelTrue() {
+        agendaSlotRepository.findByMedicoAndDataAndDisponivelTrue(medico(), DATA);
+        assertUsaIndice("agenda_medica_slots", "uk_agenda_medico_data_hora", "medico_id", "data", "hora");
+    }
+
+    @Test
+    void findResumosPorMedicoEPeriodo() {
+        agendaSlotRepository.findResumosPorMedicoEPeriodo(1L, DATA, DATA.plusDays(30));
+        assertUsaIndice("agenda_medica_slots", "uk_agenda_medico_data_hora", "medico_id", "data", "hora");
+    }
+
+    @Test
+    void findResumosLivresDeHoldPorMedicoEPeriodo() {
+        agendaSlotRepository.findResumosLivresDeHoldPorMedicoEPeriodo(1L, DATA, DATA.plusDays(30), DATA.atStartOfDay());
+        assertUsaIndice("agenda_medica_slots", "uk_agenda_medico_data_hora", "medico_id", "data", "hora");
+    }
+
+    @Test
+    void findPrimeirosLivresPorEspecialidade() {
+        agendaSlotRepository.findPrimeirosLivresPorEspecialidade("Cardiologia", DATA, HORA, DATA.atStartOfDay(),
+                PageRequest.of(0, 10));
+        assertUsaIndice("medicos", "idx_medicos_especialidade", "especialidade");
+        assertIndiceExiste("agenda_medica_slots", "idx_agenda_disponivel_data_hora", "disponivel", "data", "hora");
+    }
+
+    @Test
+    void findByMedicoUsuario() {
+        consultaRepository.findByMedicoUsuario(entityManager.getReference(Usuario.class, 1L));
+        assertUsaIndice("consultas", "idx_consultas_medico_data_hora", "medico_id", "data", "hora");
+    }
+
+    @Test
+    void findByPacienteUsuario() {
+        consultaRepository.findByPacienteUsuario(entityManager.getReference(Usuario.class, 1L));
+        assertUsaIndice("consultas", "idx_consultas_paciente_data_hora", "paciente_id", "data", "hora");
+    }
+
+    @Test
+    void findByPacienteAndLidaFalse() {
+        notificacaoRepository.findByPacienteAndLidaFalse(entityManager.getReference(Paciente.class, 1L));
+        assertUsaIndice("notificacao", "idx_notificacao_paciente_lida", "paciente_id", "lida");
+    }
+
+    @Test
+    void findByDataHoraBetween() {
+        auditLogRepository.findByDataHoraBetween(DATA.atStartOfDay(), LocalDateTime.of(2030, 1, 31, 23, 59, 59));
+        assertUsaIndice("audit_logs", "idx_audit_logs_data_hora", "data_hora");
+    }
+
+    @Test
+    void findByUsuarioId() {
+        auditLogRepository.findByUsuarioId(1L);
+        assertUsaIndice("audit_logs", "idx_audit_logs_usuario_data_hora", "usuario_id", "data_hora");
+    }
+
+    @Test
+    void findCalendario() {
+        disponibilidadeDiariaRepository.findCalendario(1L, DATA, DATA.plusDays(30));
+        assertUsaIndice("agenda_disponibilidade_diaria", "PRIMARY", "medico_id", "data");
+    }
+
+    private Medico medico() {
+        return entityManager.getReference(Medico.class, 1L);
+    }
+
+    /**
+     * Último SELECT da conexão atual sobre a tabela: o índice precisa existir com as colunas na ordem esperada
+     * e o EXPLAIN desse SQL não pode varrer a tabela inteira. Em tabelas vazias o MySQL pode resolver a consulta
+     * sem acessar a tabela (linha sem tabela no plano), o que também é aceito.
+     */
+    private void assertUsaIndice(String tabela, String indice, String... colunas) {
+        String sql = ultimoSelect(tabela);
+        assertIndiceExiste(tabela, indice, colunas);
+
+        String alias = alias(sql, tabela);
+        List<Map<String, Object>> plano = jdbcTemplate.queryForList("EXPLAIN " + sql);
+        boolean encontrou = false;
+        for (Map<String, Object> linha : plano) {
+            if (!alias.equals(linha.get("table"))) continue;
+            encontrou = true;
+            assertNotEquals("ALL", linha.get("type"), "Varredura completa em " + tabela + " para: " + sql);
+        }
+        if (!encontrou) {
+            assertTrue(plano.size() == 1 && plano.get(0).get("table") == null,
+                    "Tabela " + tabela + " ausente do plano de: " + sql);
+        }
+    }
+
+    private void assertIndiceExiste(String tabela, String indice, String... colunas) {
+        List<String> encontradas = jdbcTemplate.queryForList(
+                "SELECT column_name FROM information_schema.statistics " +
+                        "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ? ORDER BY seq_in_index",
+                String.class, tabela, indice);
+        assertEquals(List.of(colunas), encontradas, "Colunas do índice " + indice + " em " + tabela);
+    }
+
+    // SQL gerado pelo Hibernate na mesma conexão da transação do teste (o driver já interpolou os parâmetros)
+    private String ultimoSelect(String tabela) {
+        return jdbcTemplate.queryForObject(
+                "SELECT sql_text FROM performance_schema.events_statements_history " +
+                        "WHERE thread_id = PS_CURRENT_THREAD_ID() AND LOWER(sql_text) LIKE 'select%' " +
+                        "AND LOWER(sql_text) REGEXP ? AND sql_text NOT LIKE '%performance_schema%' " +
+                        "ORDER BY event_id DESC LIMIT 1",
+                String.class, "(from|join) " + tabela + " ");
+    }
+
+    // Alias que o Hibernate deu à tabela (ex.: "ams1_0"), que é o nome exibido pelo EXPLAIN
+    private static String alias(String sql, String tabela) {
+        Matcher m = Pattern.compile("(?i)(?:from|join)\\s+" + tabela + "\\s+(\\w+)").matcher(sql);
+        assertTrue(m.find(), "Tabela " + tabela + " não encontrada em: " + sql);
+        return m.group(1);
+    }
+}
@@ -0,0 +1,159 @@
+package com.vidaplus.sghss_backend.service;
+
+import com.vidaplus.sghss_backend.repository.AgendaMedicaSlotRepository;
+import com.vidaplus.sghss_backend.repository.ConsultaRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Faixas de escrita sem banco: transações e EntityManager são mocks, o que importa aqui é que toda requisição
+ * enfileirada recebe resposta (sucesso ou erro) e que a faixa continua atendendo depois de uma falha.
+ * Uma única faixa e uma primeira escrita presa num latch fazem as seguintes se acumularem na fila; o teste só
+ * solta a primeira quando todas já estão lá (profundidade da fila), então elas sempre formam um lote.
+ */
+class FaixasEscritaAgendaTests {
+
+    private static final long MEDICO_ID = 1L;
+    private static final int ESCRITAS = 5;
+
+    private PlatformTransactionManager transactionManager;
+    private FaixasEscritaAgenda faixas;
+
+    @BeforeEach
+    void iniciar() {
+        transactionManager = mock(PlatformTransactionManager.class);
+        faixas = new FaixasEscritaAgenda(transactionManager,
+                mock(AgendaMedicaSlotRepository.class), mock(ConsultaRepository.class), mock(EntityManager.class));
+        ReflectionTestUtils.setField(faixas, "habilitado", true);
+        ReflectionTestUtils.setField(faixas, "quantidade", 1);
+        ReflectionTestUtils.setField(faixas, "loteMaximo", 32);
+        faixas.iniciar();
+    }
+
+    @AfterEach
+    void encerrar() {
+        faixas.encerrar();
+    }
+
+    @Test
+    void falhaDeUmaEscritaNoLoteSoAtingeEla() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        CompletableFuture<Object> bloqueio = bloquearFaixa(liberar);
+
+        List<CompletableFuture<Object>> escritas = new ArrayList<>();
+        for (int i = 0; i < ESCRITAS; i++) {
+            int indice = i;
+            escritas.add(emSegundoPlano(() -> {
+                if (indice == 2) throw new IllegalStateException("slot ocupado");
+                return indice;
+            }));
+        }
+        aguardarNaFila(ESCRITAS);
+        liberar.countDown();
+
+        bloqueio.get(5, TimeUnit.SECONDS);
+        for (int i = 0; i < escritas.size(); i++) {
+            if (i == 2) {
+                ExecutionException erro = assertThrows(ExecutionException.class,
+                        () -> escritas.get(2).get(5, TimeUnit.SECONDS));
+                assertInstanceOf(IllegalStateException.class, erro.getCause());
+            } else {
+                assertEquals(i, escritas.get(i).get(5, TimeUnit.SECONDS));
+            }
+        }
+
+        // Escrita que prende a faixa + o lote desfeito + cada escrita repetida em transação própria
+        verify(transactionManager, times(1 + 1 + ESCRITAS)).getTransaction(any());
+    }
+
+    @Test
+    void errorNoLoteNaoDeixaRequisicoesEsperandoNemDerrubaAFaixa() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        CompletableFuture<Object> bloqueio = bloquearFaixa(liberar);
+
+        List<CompletableFuture<Object>> escritas = new ArrayList<>();
+        for (int i = 0; i < ESCRITAS; i++) {
+            int indice = i;
+            escritas.add(emSegundoPlano(() -> {
+                if (indice == 2) throw new StackOverflowError();
+                return indice;
+            }));
+        }
+        aguardarNaFila(ESCRITAS);
+        liberar.countDown();
+
+        bloqueio.get(5, TimeUnit.SECONDS);
+        // Error no lote: nenhuma escrita é repetida e todas as do mesmo lote recebem o erro (nenhuma fica no join)
+        for (CompletableFuture<Object> escrita : escritas) {
+            ExecutionException erro = assertThrows(ExecutionException.class, () -> escrita.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(StackOverflowError.class, causaRaiz(erro));
+        }
+
+        assertEquals("depois", faixas.executar(MEDICO_ID, () -> "depois"));
+    }
+
+    // Ocupa a faixa com uma escrita presa no latch e só volta quando ela já está executando (fora da fila)
+    private CompletableFuture<Object> bloquearFaixa(CountDownLatch liberar) throws InterruptedException {
+        CountDownLatch iniciou = new CountDownLatch(1);
+        CompletableFuture<Object> bloqueio = emSegundoPlano(() -> {
+            iniciou.countDown();
+            return aguardar(liberar);
+        });
+        assertTrue(iniciou.await(5, TimeUnit.SECONDS), "A escrita que prende a faixa não começou.");
+        return bloqueio;
+    }
+
+    private void aguardarNaFila(int quantidade) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (faixas.pendentes(MEDICO_ID) < quantidade) {
+            assertTrue(System.nanoTime() < limite, "As escritas não chegaram à fila da faixa.");
+            Thread.sleep(1);
+        }
+    }
+
+    private CompletableFuture<Object> emSegundoPlano(Supplier<Object> escrita) {
+        return CompletableFuture.supplyAsync(() -> faixas.executar(MEDICO_ID, escrita), comThreadPropria());
+    }
+
+    // Cada chamada em thread própria: executar(...) bloqueia quem chama até a faixa responder
+    private static Executor comThreadPropria() {
+        return tarefa -> new Thread(tarefa).start();
+    }
+
+    private static Throwable causaRaiz(Throwable erro) {
+        Throwable causa = erro;
+        while (causa.getCause() != null) causa = causa.getCause();
+        return causa;
+    }
+
+    private static Object aguardar(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
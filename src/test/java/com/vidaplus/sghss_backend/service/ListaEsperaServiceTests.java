@@ -0,0 +1,137 @@
+package com.vidaplus.sghss_backend.service;
+
+import com.vidaplus.sghss_backend.model.AgendaMedicaSlot;
+import com.vidaplus.sghss_backend.model.ListaEspera;
+import com.vidaplus.sghss_backend.model.Medico;
+import com.vidaplus.sghss_backend.model.Paciente;
+import com.vidaplus.sghss_backend.model.Usuario;
+import com.vidaplus.sghss_backend.model.enums.PerfilUsuario;
+import com.vidaplus.sghss_backend.model.enums.StatusListaEspera;
+import com.vidaplus.sghss_backend.repository.AgendaMedicaSlotRepository;
+import com.vidaplus.sghss_backend.repository.ListaEsperaRepository;
+import com.vidaplus.sghss_backend.repository.MedicoRepository;
+import com.vidaplus.sghss_backend.repository.PacienteRepository;
+import com.vidaplus.sghss_backend.repository.UsuarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Cancelamento e aceite de uma oferta da lista de espera, conferidos direto no banco (MySQL da aplicação).
+ * Os dois caminhos passam por UPDATEs de slot com clearAutomatically; o status da inscrição precisa
+ * chegar gravado mesmo assim. Cada teste roda numa transação desfeita ao final.
+ */
+@SpringBootTest
+@Transactional
+class ListaEsperaServiceTests {
+
+    @Autowired
+    private ListaEsperaService listaEsperaService;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private PacienteRepository pacienteRepository;
+
+    @Autowired
+    private MedicoRepository medicoRepository;
+
+    @Autowired
+    private AgendaMedicaSlotRepository agendaSlotRepository;
+
+    @Autowired
+    private ListaEsperaRepository listaEsperaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Usuario usuarioPaciente;
+    private AgendaMedicaSlot slot;
+    private ListaEspera inscricao;
+
+    @BeforeEach
+    void prepararOferta() {
+        String sufixo = UUID.randomUUID().toString().substring(0, 8);
+        usuarioPaciente = usuarioRepository.save(Usuario.builder()
+                .email("paciente-" + sufixo + "@teste.local")
+                .senhaHash("x")
+                .perfil(PerfilUsuario.PACIENTE)
+                .build());
+        Paciente paciente = pacienteRepository.save(Paciente.builder()
+                .nome("Paciente " + sufixo)
+                .cpf("cpf-" + sufixo)
+                .dataNascimento(LocalDate.of(1990, 1, 1))
+                .usuario(usuarioPaciente)
+                .build());
+        Usuario usuarioMedico = usuarioRepository.save(Usuario.builder()
+                .email("medico-" + sufixo + "@teste.local")
+                .senhaHash("x")
+                .perfil(PerfilUsuario.MEDICO)
+                .build());
+        Medico medico = medicoRepository.save(Medico.builder()
+                .nome("Médico " + sufixo)
+                .crm("crm-" + sufixo)
+                .especialidade("Cardiologia")
+                .usuario(usuarioMedico)
+                .build());
+
+        // Slot já reservado em nome do paciente, como o motor deixa ao registrar a oferta
+        LocalDateTime expiraEm = LocalDateTime.now().plusMinutes(15).truncatedTo(ChronoUnit.SECONDS);
+        LocalDate data = LocalDate.now().plusDays(7);
+        slot = agendaSlotRepository.saveAndFlush(AgendaMedicaSlot.builder()
+                .medico(medico)
+                .data(data)
+                .hora(LocalTime.of(9, 0))
+                .disponivel(true)
+                .reservaExpiraEm(expiraEm)
+                .reservadoPorId(usuarioPaciente.getId())
+                .build());
+
+        inscricao = listaEsperaRepository.saveAndFlush(ListaEspera.builder()
+                .paciente(paciente)
+                .medico(medico)
+                .dataInicio(data.minusDays(1))
+                .dataFim(data.plusDays(1))
+                .status(StatusListaEspera.OFERTADO)
+                .criadoEm(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS))
+                .slotOfertadoId(slot.getId())
+                .ofertaExpiraEm(expiraEm)
+                .build());
+    }
+
+    @Test
+    void cancelarOfertaGravaCanceladoELiberaOSlot() {
+        listaEsperaService.cancelar(inscricao.getId(), usuarioPaciente);
+
+        assertEquals(StatusListaEspera.CANCELADO.name(), statusNoBanco());
+        assertNull(jdbcTemplate.queryForObject(
+                "SELECT reservado_por_id FROM agenda_medica_slots WHERE id = ?", Long.class, slot.getId()));
+    }
+
+    @Test
+    void aceitarOfertaGravaAtendidoEOcupaOSlot() {
+        listaEsperaService.aceitarOferta(inscricao.getId(), usuarioPaciente);
+
+        assertEquals(StatusListaEspera.ATENDIDO.name(), statusNoBanco());
+        assertNotNull(jdbcTemplate.queryForObject(
+                "SELECT consulta_id FROM agenda_medica_slots WHERE id = ?", Long.class, slot.getId()));
+    }
+
+    private String statusNoBanco() {
+        return jdbcTemplate.queryForObject("SELECT status FROM lista_espera WHERE id = ?", String.class, inscricao.getId());
+    }
+}